@@ -3,11 +3,13 @@ package com.cryptotrader;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication(exclude = org.springframework.boot.actuate.autoconfigure.metrics.SystemMetricsAutoConfiguration.class)
 
 @EnableAsync
+@EnableScheduling
 @EnableTransactionManagement
 public class CryptoTradingApiApplication {
 
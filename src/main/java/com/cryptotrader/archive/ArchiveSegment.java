@@ -0,0 +1,87 @@
+package com.cryptotrader.archive;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Index entry for one archive file: its month, the min/max of the user id, created_at and
+ * trade id it holds, and the set of user ids in it, so readers can skip files without opening them.
+ */
+public class ArchiveSegment {
+
+    private final Path path;
+    private final YearMonth month;
+    private final int rows;
+    private final long minUserId;
+    private final long maxUserId;
+    private final LocalDateTime minCreatedAt;
+    private final LocalDateTime maxCreatedAt;
+    private final long minId;
+    private final long maxId;
+    // Sorted; null for version 1 files, which only carry the user id range
+    private final long[] userIds;
+
+    public ArchiveSegment(Path path, YearMonth month, int rows, long minUserId, long maxUserId,
+                          LocalDateTime minCreatedAt, LocalDateTime maxCreatedAt, long minId, long maxId, long[] userIds) {
+        this.path = path;
+        this.month = month;
+        this.rows = rows;
+        this.minUserId = minUserId;
+        this.maxUserId = maxUserId;
+        this.minCreatedAt = minCreatedAt;
+        this.maxCreatedAt = maxCreatedAt;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.userIds = userIds;
+    }
+
+    public boolean mayContainUser(long userId) {
+        if (rows == 0 || userId < minUserId || userId > maxUserId) {
+            return false;
+        }
+        return userIds == null || Arrays.binarySearch(userIds, userId) >= 0;
+    }
+
+    // Whether any row could fall within [from, to]; a null bound is open
+    public boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return rows > 0 && (from == null || !maxCreatedAt.isBefore(from)) && (to == null || !minCreatedAt.isAfter(to));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long getMinUserId() {
+        return minUserId;
+    }
+
+    public long getMaxUserId() {
+        return maxUserId;
+    }
+
+    public LocalDateTime getMinCreatedAt() {
+        return minCreatedAt;
+    }
+
+    public LocalDateTime getMaxCreatedAt() {
+        return maxCreatedAt;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+}
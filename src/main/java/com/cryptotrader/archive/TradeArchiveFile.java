@@ -0,0 +1,467 @@
+package com.cryptotrader.archive;
+
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed columnar archive of terminal trades for one calendar month.
+ *
+ * Layout (big endian, java.io.Data* encoding): magic, version, month, row count, the
+ * min/max index (user id, created_at micros, trade id) and, since version 2, the distinct user
+ * ids (count, then delta encoded), then one deflated block per column.
+ * Low-cardinality strings are dictionary encoded, timestamps are epoch microseconds (UTC) and
+ * decimals are scale plus unscaled bytes. Rows are sorted on (user id, created_at, id) so one
+ * user's trades are contiguous and already in history order.
+ */
+public final class TradeArchiveFile {
+
+    public static final int MAGIC = 0x54524143; // "TRAC"
+    public static final int VERSION = 2;
+    public static final String EXTENSION = ".trac";
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    public static final Comparator<Trade> ROW_ORDER = Comparator
+            .comparing((Trade trade) -> trade.getUser().getId())
+            .thenComparing(Trade::getCreatedAt)
+            .thenComparing(Trade::getId);
+
+    private static final List<Column> COLUMNS = List.of(
+            longColumn("id", Trade::getId, Trade::setId),
+            longColumn("user_id", trade -> trade.getUser().getId(), (trade, userId) -> trade.setUser(userStub(userId))),
+            dictionaryColumn("exchange", Trade::getExchange, Trade::setExchange),
+            dictionaryColumn("symbol", Trade::getSymbol, Trade::setSymbol),
+            dictionaryColumn("order_type", Trade::getOrderType, Trade::setOrderType),
+            dictionaryColumn("side", Trade::getSide, Trade::setSide),
+            decimalColumn("amount", Trade::getAmount, Trade::setAmount),
+            decimalColumn("price", Trade::getPrice, Trade::setPrice),
+            decimalColumn("filled_amount", Trade::getFilledAmount, Trade::setFilledAmount),
+            decimalColumn("average_price", Trade::getAveragePrice, Trade::setAveragePrice),
+            decimalColumn("total_cost", Trade::getTotalCost, Trade::setTotalCost),
+            decimalColumn("fee_amount", Trade::getFeeAmount, Trade::setFeeAmount),
+            dictionaryColumn("fee_currency", Trade::getFeeCurrency, Trade::setFeeCurrency),
+            dictionaryColumn("status", Trade::getStatus, Trade::restoreStatus),
+            textColumn("exchange_order_id", Trade::getExchangeOrderId, Trade::setExchangeOrderId),
+            textColumn("error_message", Trade::getErrorMessage, Trade::setErrorMessage),
+            timeColumn("created_at", Trade::getCreatedAt, Trade::setCreatedAt),
+            timeColumn("updated_at", Trade::getUpdatedAt, Trade::setUpdatedAt),
+            timeColumn("executed_at", Trade::getExecutedAt, Trade::setExecutedAt),
+            timeColumn("cancelled_at", Trade::getCancelledAt, Trade::setCancelledAt),
+            decimalColumn("trigger_price", Trade::getTriggerPrice, Trade::setTriggerPrice),
+            decimalColumn("trailing_offset", Trade::getTrailingOffset, Trade::setTrailingOffset),
+            timeColumn("triggered_at", Trade::getTriggeredAt, Trade::setTriggeredAt));
+
+    private TradeArchiveFile() {
+    }
+
+    /**
+     * Writes the trades of one month atomically: the file only appears under its final name
+     * once it has been fully written and synced, and returns only once the rename is synced too,
+     * so callers may delete the source rows.
+     */
+    public static ArchiveSegment write(Path path, YearMonth month, List<Trade> trades) throws IOException {
+        List<Trade> rows = new ArrayList<>(trades);
+        rows.sort(ROW_ORDER);
+
+        long minUserId = Long.MAX_VALUE, maxUserId = Long.MIN_VALUE;
+        long minCreatedAt = Long.MAX_VALUE, maxCreatedAt = Long.MIN_VALUE;
+        long minId = Long.MAX_VALUE, maxId = Long.MIN_VALUE;
+        List<Long> userIds = new ArrayList<>();
+        for (Trade trade : rows) {
+            long userId = trade.getUser().getId();
+            long createdAt = toMicros(trade.getCreatedAt());
+            // Rows are sorted by user id, so each new id is the largest seen so far
+            if (userIds.isEmpty() || userIds.get(userIds.size() - 1) != userId) {
+                userIds.add(userId);
+            }
+            minUserId = Math.min(minUserId, userId);
+            maxUserId = Math.max(maxUserId, userId);
+            minCreatedAt = Math.min(minCreatedAt, createdAt);
+            maxCreatedAt = Math.max(maxCreatedAt, createdAt);
+            minId = Math.min(minId, trade.getId());
+            maxId = Math.max(maxId, trade.getId());
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        boolean newDirectory = !Files.isDirectory(path.getParent());
+        Files.createDirectories(path.getParent());
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(month.toString());
+            out.writeInt(rows.size());
+            out.writeLong(minUserId);
+            out.writeLong(maxUserId);
+            out.writeLong(minCreatedAt);
+            out.writeLong(maxCreatedAt);
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            out.writeInt(userIds.size());
+            long previous = 0;
+            for (long userId : userIds) {
+                out.writeLong(userId - previous);
+                previous = userId;
+            }
+            out.writeShort(COLUMNS.size());
+
+            for (Column column : COLUMNS) {
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                column.encode(rows, new DataOutputStream(raw));
+                byte[] compressed = deflate(raw.toByteArray());
+
+                out.writeUTF(column.name);
+                out.writeInt(raw.size());
+                out.writeInt(compressed.length);
+                out.write(compressed);
+            }
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename is only durable once the directory entry is
+        syncDirectory(path.getParent());
+        if (newDirectory && path.getParent().getParent() != null) {
+            syncDirectory(path.getParent().getParent());
+        }
+        return new ArchiveSegment(path, month, rows.size(), minUserId, maxUserId,
+                fromMicros(minCreatedAt), fromMicros(maxCreatedAt), minId, maxId,
+                userIds.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * Reads only the header, which is all the index needs.
+     */
+    public static ArchiveSegment readSegment(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 256))) {
+            return readHeader(path, in);
+        }
+    }
+
+    /**
+     * Decodes every row, in (user id, created_at, id) order. The trades are detached copies
+     * whose user is an id-only stub; they must never be persisted.
+     */
+    public static List<Trade> readTrades(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            ArchiveSegment segment = readHeader(path, in);
+
+            List<Trade> rows = new ArrayList<>(segment.getRows());
+            for (int i = 0; i < segment.getRows(); i++) {
+                rows.add(new Trade());
+            }
+
+            Map<String, Column> byName = new HashMap<>();
+            COLUMNS.forEach(column -> byName.put(column.name, column));
+
+            int columns = in.readUnsignedShort();
+            for (int c = 0; c < columns; c++) {
+                String name = in.readUTF();
+                int rawLength = in.readInt();
+                byte[] compressed = new byte[in.readInt()];
+                in.readFully(compressed);
+
+                Column column = byName.get(name);
+                if (column != null) {
+                    byte[] raw = inflate(compressed, rawLength);
+                    column.decode(rows, new DataInputStream(new ByteArrayInputStream(raw)));
+                }
+            }
+            return rows;
+        }
+    }
+
+    public static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return NULL_LONG;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        if (micros == NULL_LONG) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static ArchiveSegment readHeader(Path path, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a trade archive file: " + path);
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported trade archive version: " + version);
+        }
+
+        YearMonth month = YearMonth.parse(in.readUTF());
+        int rows = in.readInt();
+        long minUserId = in.readLong();
+        long maxUserId = in.readLong();
+        long minCreatedAt = in.readLong();
+        long maxCreatedAt = in.readLong();
+        long minId = in.readLong();
+        long maxId = in.readLong();
+
+        long[] userIds = null;
+        if (version >= 2) {
+            userIds = new long[in.readInt()];
+            long previous = 0;
+            for (int i = 0; i < userIds.length; i++) {
+                previous += in.readLong();
+                userIds[i] = previous;
+            }
+        }
+
+        return new ArchiveSegment(path, month, rows, minUserId, maxUserId,
+                fromMicros(minCreatedAt), fromMicros(maxCreatedAt), minId, maxId, userIds);
+    }
+
+    private static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for sync on every platform (e.g. Windows); the move itself was atomic
+            if (!System.getProperty("os.name", "").toLowerCase().startsWith("windows")) {
+                throw e;
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished()) {
+                offset += inflater.inflate(raw, offset, rawLength - offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt trade archive column", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static User userStub(long userId) {
+        User user = new User();
+        user.setId(userId);
+        return user;
+    }
+
+    // Column codecs
+
+    private abstract static class Column {
+        private final String name;
+
+        private Column(String name) {
+            this.name = name;
+        }
+
+        abstract void encode(List<Trade> rows, DataOutputStream out) throws IOException;
+
+        abstract void decode(List<Trade> rows, DataInputStream in) throws IOException;
+    }
+
+    private static Column longColumn(String name, Function<Trade, Long> getter, BiConsumer<Trade, Long> setter) {
+        return new Column(name) {
+            @Override
+            void encode(List<Trade> rows, DataOutputStream out) throws IOException {
+                // Delta encoded: sorted ids and user ids compress to runs of small values
+                long previous = 0;
+                for (Trade trade : rows) {
+                    long value = getter.apply(trade);
+                    out.writeLong(value - previous);
+                    previous = value;
+                }
+            }
+
+            @Override
+            void decode(List<Trade> rows, DataInputStream in) throws IOException {
+                long previous = 0;
+                for (Trade trade : rows) {
+                    previous += in.readLong();
+                    setter.accept(trade, previous);
+                }
+            }
+        };
+    }
+
+    private static Column timeColumn(String name, Function<Trade, LocalDateTime> getter, BiConsumer<Trade, LocalDateTime> setter) {
+        return new Column(name) {
+            @Override
+            void encode(List<Trade> rows, DataOutputStream out) throws IOException {
+                for (Trade trade : rows) {
+                    out.writeLong(toMicros(getter.apply(trade)));
+                }
+            }
+
+            @Override
+            void decode(List<Trade> rows, DataInputStream in) throws IOException {
+                for (Trade trade : rows) {
+                    setter.accept(trade, fromMicros(in.readLong()));
+                }
+            }
+        };
+    }
+
+    private static Column decimalColumn(String name, Function<Trade, BigDecimal> getter, BiConsumer<Trade, BigDecimal> setter) {
+        return new Column(name) {
+            @Override
+            void encode(List<Trade> rows, DataOutputStream out) throws IOException {
+                for (Trade trade : rows) {
+                    BigDecimal value = getter.apply(trade);
+                    if (value == null) {
+                        out.writeByte(0);
+                        continue;
+                    }
+                    byte[] unscaled = value.unscaledValue().toByteArray();
+                    out.writeByte(unscaled.length);
+                    out.write(unscaled);
+                    out.writeShort(value.scale());
+                }
+            }
+
+            @Override
+            void decode(List<Trade> rows, DataInputStream in) throws IOException {
+                for (Trade trade : rows) {
+                    int length = in.readUnsignedByte();
+                    if (length == 0) {
+                        setter.accept(trade, null);
+                        continue;
+                    }
+                    byte[] unscaled = new byte[length];
+                    in.readFully(unscaled);
+                    setter.accept(trade, new BigDecimal(new BigInteger(unscaled), in.readShort()));
+                }
+            }
+        };
+    }
+
+    private static Column dictionaryColumn(String name, Function<Trade, String> getter, BiConsumer<Trade, String> setter) {
+        return new Column(name) {
+            @Override
+            void encode(List<Trade> rows, DataOutputStream out) throws IOException {
+                Map<String, Integer> codes = new HashMap<>();
+                List<String> dictionary = new ArrayList<>();
+                int[] encoded = new int[rows.size()];
+
+                for (int i = 0; i < rows.size(); i++) {
+                    String value = getter.apply(rows.get(i));
+                    if (value == null) {
+                        encoded[i] = -1;
+                        continue;
+                    }
+                    encoded[i] = codes.computeIfAbsent(value, k -> {
+                        dictionary.add(k);
+                        return dictionary.size() - 1;
+                    });
+                }
+
+                out.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    out.writeUTF(value);
+                }
+                for (int code : encoded) {
+                    out.writeInt(code);
+                }
+            }
+
+            @Override
+            void decode(List<Trade> rows, DataInputStream in) throws IOException {
+                String[] dictionary = new String[in.readInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.readUTF();
+                }
+                for (Trade trade : rows) {
+                    int code = in.readInt();
+                    setter.accept(trade, code < 0 ? null : dictionary[code]);
+                }
+            }
+        };
+    }
+
+    private static Column textColumn(String name, Function<Trade, String> getter, BiConsumer<Trade, String> setter) {
+        return new Column(name) {
+            @Override
+            void encode(List<Trade> rows, DataOutputStream out) throws IOException {
+                for (Trade trade : rows) {
+                    String value = getter.apply(trade);
+                    if (value == null) {
+                        out.writeInt(-1);
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+            }
+
+            @Override
+            void decode(List<Trade> rows, DataInputStream in) throws IOException {
+                for (Trade trade : rows) {
+                    int length = in.readInt();
+                    if (length < 0) {
+                        setter.accept(trade, null);
+                    } else {
+                        byte[] bytes = new byte[length];
+                        in.readFully(bytes);
+                        setter.accept(trade, new String(bytes, StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.cryptotrader.backtest;
+
+import com.cryptotrader.dto.BacktestRequest;
+import com.cryptotrader.service.BacktestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Command line entry point, active under the "backtest" profile:
+ *
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=backtest --spring.main.web-application-type=none \
+ *      --exchange=binance --symbols=BTCUSDT,ETHUSDT --fast=5,10,20 --slow=50,100,200
+ *
+ * java -jar app.jar --spring.profiles.active=backtest --spring.main.web-application-type=none \
+ *      --import-csv=btc.csv --exchange=binance --symbols=BTCUSDT
+ * </pre>
+ *
+ * CSV imports expect rows of epochMillis,open,high,low,close,volume and write the binary file
+ * the backtest reads.
+ */
+@Component
+@Profile("backtest")
+public class BacktestCommandLineRunner implements ApplicationRunner {
+
+    @Autowired
+    private BacktestService backtestService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        try {
+            if (args.containsOption("import-csv")) {
+                importCsv(Paths.get(option(args, "import-csv")), option(args, "exchange"), option(args, "symbols"));
+            } else {
+                runSweep(args);
+            }
+        } catch (Exception e) {
+            System.err.println("Backtest failed: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private void runSweep(ApplicationArguments args) {
+        BacktestRequest request = new BacktestRequest();
+        request.setExchange(option(args, "exchange"));
+        request.setSymbols(Arrays.asList(option(args, "symbols").split(",")));
+        request.setFastWindows(parseInts(option(args, "fast")));
+        request.setSlowWindows(parseInts(option(args, "slow")));
+        if (args.containsOption("capital")) {
+            request.setInitialCapital(Double.parseDouble(option(args, "capital")));
+        }
+        if (args.containsOption("fee")) {
+            request.setFeeRate(Double.parseDouble(option(args, "fee")));
+        }
+
+        long started = System.currentTimeMillis();
+        List<BacktestResult> results = backtestService.runSweep(request);
+        results.forEach(System.out::println);
+        System.out.printf("%d runs in %d ms%n", results.size(), System.currentTimeMillis() - started);
+    }
+
+    private void importCsv(Path csv, String exchange, String symbol) throws Exception {
+        List<double[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length < 6 || !Character.isDigit(parts[0].trim().charAt(0))) {
+                    continue; // header or malformed row
+                }
+                double[] row = new double[6];
+                for (int i = 0; i < 6; i++) {
+                    row[i] = Double.parseDouble(parts[i].trim());
+                }
+                rows.add(row);
+            }
+        }
+
+        int size = rows.size();
+        long[] timestamps = new long[size];
+        double[][] columns = new double[5][size];
+        for (int i = 0; i < size; i++) {
+            double[] row = rows.get(i);
+            timestamps[i] = (long) row[0];
+            for (int c = 0; c < 5; c++) {
+                columns[c][i] = row[c + 1];
+            }
+        }
+
+        Path target = backtestService.resolveDataFile(exchange, symbol);
+        MarketDataFile.writeCandles(target, timestamps, columns[0], columns[1], columns[2], columns[3], columns[4]);
+        System.out.printf("Imported %d candles into %s%n", size, target);
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("Missing --" + name);
+        }
+        return values.get(0);
+    }
+
+    private static List<Integer> parseInts(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.cryptotrader.backtest;
+
+/**
+ * Single-position, long-only bar replay. Every simulated order is passed to an
+ * {@link OrderValidator} first, so backtests reject exactly what live placement would.
+ */
+public class BacktestEngine {
+
+    @FunctionalInterface
+    public interface OrderValidator {
+        /**
+         * Throws if the order would be rejected by live order validation.
+         */
+        void validate(String symbol, String side, double amount, double price);
+    }
+
+    private final double initialCapital;
+    private final double feeRate;
+    private final double positionFraction;
+    private final OrderValidator validator;
+
+    public BacktestEngine(double initialCapital, double feeRate, double positionFraction, OrderValidator validator) {
+        this.initialCapital = initialCapital;
+        this.feeRate = feeRate;
+        this.positionFraction = positionFraction;
+        this.validator = validator;
+    }
+
+    public BacktestResult run(PriceSeries series, BacktestStrategy strategy) {
+        long started = System.nanoTime();
+
+        double[] close = series.getClose();
+        double[] volume = series.getVolume();
+        int bars = series.size();
+
+        double cash = initialCapital;
+        double position = 0;
+        double entryCost = 0;
+        double peakEquity = initialCapital;
+        double maxDrawdown = 0;
+        int trades = 0;
+        int wins = 0;
+        int rejected = 0;
+
+        for (int i = 0; i < bars; i++) {
+            double price = close[i];
+            int signal = strategy.onBar(i, close, volume);
+
+            if (signal == BacktestStrategy.BUY && position == 0) {
+                double spend = cash * positionFraction;
+                double amount = spend * (1 - feeRate) / price;
+                if (accepted(series.getSymbol(), "BUY", amount, price)) {
+                    position = amount;
+                    cash -= spend;
+                    entryCost = spend;
+                    trades++;
+                } else {
+                    rejected++;
+                }
+            } else if (signal == BacktestStrategy.SELL && position > 0) {
+                if (accepted(series.getSymbol(), "SELL", position, price)) {
+                    double proceeds = position * price * (1 - feeRate);
+                    cash += proceeds;
+                    if (proceeds > entryCost) {
+                        wins++;
+                    }
+                    position = 0;
+                    trades++;
+                } else {
+                    rejected++;
+                }
+            }
+
+            double equity = cash + position * price;
+            if (equity > peakEquity) {
+                peakEquity = equity;
+            } else {
+                maxDrawdown = Math.max(maxDrawdown, (peakEquity - equity) / peakEquity);
+            }
+        }
+
+        double finalEquity = cash + (bars > 0 ? position * close[bars - 1] : 0);
+        long elapsedMicros = (System.nanoTime() - started) / 1_000;
+
+        return new BacktestResult(series.getSymbol(), strategy.describe(), bars, trades, wins, rejected,
+                finalEquity, (finalEquity / initialCapital - 1) * 100, maxDrawdown * 100, elapsedMicros);
+    }
+
+    private boolean accepted(String symbol, String side, double amount, double price) {
+        try {
+            validator.validate(symbol, side, amount, price);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
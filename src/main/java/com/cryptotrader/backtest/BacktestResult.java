@@ -0,0 +1,76 @@
+package com.cryptotrader.backtest;
+
+public class BacktestResult {
+
+    private final String symbol;
+    private final String strategy;
+    private final int bars;
+    private final int trades;
+    private final int winningTrades;
+    private final int rejectedOrders;
+    private final double finalEquity;
+    private final double returnPct;
+    private final double maxDrawdownPct;
+    private final long elapsedMicros;
+
+    public BacktestResult(String symbol, String strategy, int bars, int trades, int winningTrades,
+                          int rejectedOrders, double finalEquity, double returnPct,
+                          double maxDrawdownPct, long elapsedMicros) {
+        this.symbol = symbol;
+        this.strategy = strategy;
+        this.bars = bars;
+        this.trades = trades;
+        this.winningTrades = winningTrades;
+        this.rejectedOrders = rejectedOrders;
+        this.finalEquity = finalEquity;
+        this.returnPct = returnPct;
+        this.maxDrawdownPct = maxDrawdownPct;
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public int getBars() {
+        return bars;
+    }
+
+    public int getTrades() {
+        return trades;
+    }
+
+    public int getWinningTrades() {
+        return winningTrades;
+    }
+
+    public int getRejectedOrders() {
+        return rejectedOrders;
+    }
+
+    public double getFinalEquity() {
+        return finalEquity;
+    }
+
+    public double getReturnPct() {
+        return returnPct;
+    }
+
+    public double getMaxDrawdownPct() {
+        return maxDrawdownPct;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s %-14s trades=%d wins=%d rejected=%d return=%.2f%% maxDD=%.2f%% (%d us)",
+                symbol, strategy, trades, winningTrades, rejectedOrders, returnPct, maxDrawdownPct, elapsedMicros);
+    }
+}
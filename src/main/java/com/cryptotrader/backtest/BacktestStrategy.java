@@ -0,0 +1,19 @@
+package com.cryptotrader.backtest;
+
+/**
+ * A strategy sees one bar at a time. Implementations are stateful, so every backtest run
+ * gets its own instance.
+ */
+public interface BacktestStrategy {
+
+    int BUY = 1;
+    int SELL = -1;
+    int HOLD = 0;
+
+    /**
+     * Returns {@link #BUY}, {@link #SELL} or {@link #HOLD} for bar {@code index}.
+     */
+    int onBar(int index, double[] close, double[] volume);
+
+    String describe();
+}
@@ -0,0 +1,101 @@
+package com.cryptotrader.backtest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Columnar binary market data files, read through memory-mapped I/O.
+ *
+ * Layout (little endian): a 16 byte header of magic, version, kind and row count, followed by
+ * one contiguous column per field. Candle files carry timestamp, open, high, low, close and
+ * volume columns; tick files carry timestamp, price and size. Only the columns a backtest
+ * needs (timestamp, close/price, volume/size) are copied onto the heap.
+ */
+public final class MarketDataFile {
+
+    public static final int MAGIC = 0x4354444D; // "MDTC"
+    public static final int VERSION = 1;
+    public static final int KIND_CANDLES = 1;
+    public static final int KIND_TICKS = 2;
+
+    private static final int HEADER_BYTES = 16;
+
+    private MarketDataFile() {
+    }
+
+    public static PriceSeries load(Path path, String symbol) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a market data file: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported market data file version: " + buffer.getInt(4));
+            }
+
+            int kind = buffer.getInt(8);
+            int rows = buffer.getInt(12);
+            long columnBytes = (long) rows * Long.BYTES;
+
+            // Column indexes of close/price and volume/size for each file kind
+            int closeColumn = kind == KIND_CANDLES ? 4 : 1;
+            int volumeColumn = kind == KIND_CANDLES ? 5 : 2;
+            int columns = kind == KIND_CANDLES ? 6 : 3;
+
+            if (kind != KIND_CANDLES && kind != KIND_TICKS) {
+                throw new IOException("Unknown market data kind: " + kind);
+            }
+            if (channel.size() < HEADER_BYTES + columnBytes * columns) {
+                throw new IOException("Truncated market data file: " + path);
+            }
+
+            long[] timestamps = new long[rows];
+            double[] close = new double[rows];
+            double[] volume = new double[rows];
+
+            column(buffer, 0, columnBytes).asLongBuffer().get(timestamps);
+            column(buffer, closeColumn, columnBytes).asDoubleBuffer().get(close);
+            column(buffer, volumeColumn, columnBytes).asDoubleBuffer().get(volume);
+
+            return new PriceSeries(symbol, timestamps, close, volume);
+        }
+    }
+
+    public static void writeCandles(Path path, long[] timestamps, double[] open, double[] high,
+                                    double[] low, double[] close, double[] volume) throws IOException {
+        int rows = timestamps.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + rows * Long.BYTES * 6).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(KIND_CANDLES).putInt(rows);
+
+        buffer.asLongBuffer().put(timestamps);
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        for (double[] column : new double[][] { open, high, low, close, volume }) {
+            buffer.asDoubleBuffer().put(column);
+            buffer.position(buffer.position() + rows * Double.BYTES);
+        }
+
+        buffer.flip();
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static ByteBuffer column(MappedByteBuffer buffer, int index, long columnBytes) {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.position((int) (HEADER_BYTES + index * columnBytes));
+        view.limit((int) (HEADER_BYTES + (index + 1) * columnBytes));
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
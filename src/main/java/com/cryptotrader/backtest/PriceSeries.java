@@ -0,0 +1,43 @@
+package com.cryptotrader.backtest;
+
+/**
+ * Column-oriented price history for one symbol. Prices and volumes are kept in primitive
+ * arrays so strategies iterate over contiguous memory without boxing.
+ */
+public class PriceSeries {
+
+    private final String symbol;
+    private final long[] timestamps;
+    private final double[] close;
+    private final double[] volume;
+
+    public PriceSeries(String symbol, long[] timestamps, double[] close, double[] volume) {
+        if (timestamps.length != close.length || close.length != volume.length) {
+            throw new IllegalArgumentException("Series columns must have the same length");
+        }
+        this.symbol = symbol;
+        this.timestamps = timestamps;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    public int size() {
+        return close.length;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public double[] getClose() {
+        return close;
+    }
+
+    public double[] getVolume() {
+        return volume;
+    }
+}
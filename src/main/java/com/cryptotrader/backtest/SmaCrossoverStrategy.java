@@ -0,0 +1,56 @@
+package com.cryptotrader.backtest;
+
+/**
+ * Goes long when the fast simple moving average crosses above the slow one and exits on the
+ * opposite cross. Both averages are maintained as running sums, so each bar is O(1).
+ */
+public class SmaCrossoverStrategy implements BacktestStrategy {
+
+    private final int fastWindow;
+    private final int slowWindow;
+
+    private double fastSum;
+    private double slowSum;
+    private int previousState;
+
+    public SmaCrossoverStrategy(int fastWindow, int slowWindow) {
+        if (fastWindow <= 0 || slowWindow <= fastWindow) {
+            throw new IllegalArgumentException("Require 0 < fastWindow < slowWindow");
+        }
+        this.fastWindow = fastWindow;
+        this.slowWindow = slowWindow;
+    }
+
+    @Override
+    public int onBar(int index, double[] close, double[] volume) {
+        fastSum += close[index];
+        slowSum += close[index];
+        if (index >= fastWindow) {
+            fastSum -= close[index - fastWindow];
+        }
+        if (index >= slowWindow) {
+            slowSum -= close[index - slowWindow];
+        }
+        if (index < slowWindow - 1) {
+            return HOLD;
+        }
+
+        int state = fastSum / fastWindow > slowSum / slowWindow ? 1 : -1;
+        int signal = previousState != 0 && state != previousState ? (state > 0 ? BUY : SELL) : HOLD;
+        previousState = state;
+        return signal;
+    }
+
+    @Override
+    public String describe() {
+        return "SMA(" + fastWindow + "/" + slowWindow + ")";
+    }
+
+    public int getFastWindow() {
+        return fastWindow;
+    }
+
+    public int getSlowWindow() {
+        return slowWindow;
+    }
+}
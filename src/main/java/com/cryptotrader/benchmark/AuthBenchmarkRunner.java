@@ -0,0 +1,119 @@
+package com.cryptotrader.benchmark;
+
+import com.cryptotrader.entity.User;
+import com.cryptotrader.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * Per-request token verification overhead, active under the "auth-benchmark" profile:
+ *
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=dev,auth-benchmark --spring.main.web-application-type=none --requests=200000 --tokens=1000
+ * </pre>
+ *
+ * "rebuild x2" reproduces the previous filter: a signing key and parser built per call, with
+ * the token parsed once to validate it and again to read it. "shared parser" verifies once with
+ * a parser built at startup. "verified cache" is {@link JwtUtils#parseClaims}, which also skips
+ * tokens verified recently. Requests cycle over a pool of distinct tokens, like active sessions;
+ * once the pool exceeds app.security.jwt.verified-cache-size the cache stops helping.
+ */
+@Component
+@Profile("auth-benchmark")
+public class AuthBenchmarkRunner implements ApplicationRunner {
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${app.security.jwt.secret}")
+    private String jwtSecret;
+
+    // Keeps results reachable so the JIT cannot drop the work being measured
+    private long sink;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int requests = args.containsOption("requests") ? Integer.parseInt(args.getOptionValues("requests").get(0)) : 200000;
+        int tokenCount = args.containsOption("tokens") ? Integer.parseInt(args.getOptionValues("tokens").get(0)) : 1000;
+        int exitCode = 0;
+
+        try {
+            String[] tokens = new String[tokenCount];
+            for (int i = 0; i < tokenCount; i++) {
+                User user = User.fromTokenClaims((long) i + 1, "benchmark-" + i, 0);
+                tokens[i] = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null,
+                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))));
+            }
+            System.out.printf("Requests: %d, distinct tokens: %d%n", requests, tokenCount);
+
+            JwtParser sharedParser = Jwts.parserBuilder()
+                    .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8)))
+                    .build();
+            Function<String, Claims> rebuild = token -> {
+                parser().parseClaimsJws(token);
+                return parser().parseClaimsJws(token).getBody();
+            };
+            Function<String, Claims> shared = token -> sharedParser.parseClaimsJws(token).getBody();
+            Function<String, Claims> cached = jwtUtils::parseClaims;
+
+            // Warm up the JIT (and the verified cache) before measuring
+            int warmup = Math.min(requests, 20000);
+            run(rebuild, tokens, warmup);
+            run(shared, tokens, warmup);
+            run(cached, tokens, warmup);
+
+            report("rebuild x2", requests, () -> run(rebuild, tokens, requests));
+            report("shared parser", requests, () -> run(shared, tokens, requests));
+            report("verified cache", requests, () -> run(cached, tokens, requests));
+        } catch (Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private JwtParser parser() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+    }
+
+    private void run(Function<String, Claims> verify, String[] tokens, int requests) {
+        for (int i = 0; i < requests; i++) {
+            sink += verify.apply(tokens[i % tokens.length]).getSubject().length();
+        }
+    }
+
+    private static void report(String mode, int requests, Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long started = System.nanoTime();
+        work.run();
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        System.out.printf("%-16s %10d requests %10.0f ns/request %10d bytes/request%n", mode, requests,
+                (double) elapsed / requests, allocated / Math.max(requests, 1));
+    }
+}
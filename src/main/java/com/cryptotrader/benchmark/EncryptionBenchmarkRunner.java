@@ -0,0 +1,118 @@
+package com.cryptotrader.benchmark;
+
+import com.cryptotrader.service.EncryptionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.UnaryOperator;
+
+/**
+ * Credential decrypt throughput, which bounds how fast exchange instances can be created,
+ * active under the "encryption-benchmark" profile:
+ *
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=dev,encryption-benchmark --spring.main.web-application-type=none --operations=200000
+ * </pre>
+ *
+ * "ecb per call" reproduces the previous service: the key re-derived and Cipher.getInstance
+ * called on every decrypt. "gcm" is {@link EncryptionService#decrypt}, with the key derived
+ * once and a Cipher reused per thread. Both decrypt a 64 character secret.
+ */
+@Component
+@Profile("encryption-benchmark")
+public class EncryptionBenchmarkRunner implements ApplicationRunner {
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${app.security.encryption.key}")
+    private String encryptionKey;
+
+    // Keeps results reachable so the JIT cannot drop the work being measured
+    private long sink;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int operations = args.containsOption("operations") ? Integer.parseInt(args.getOptionValues("operations").get(0)) : 200000;
+        int exitCode = 0;
+
+        try {
+            String secret = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+            String legacyCiphertext = legacyEncrypt(secret);
+            String gcmCiphertext = encryptionService.encrypt(secret);
+            System.out.printf("Operations: %d, ciphertext: %d chars (ecb), %d chars (gcm)%n",
+                    operations, legacyCiphertext.length(), gcmCiphertext.length());
+
+            UnaryOperator<String> legacy = this::legacyDecrypt;
+            UnaryOperator<String> gcm = encryptionService::decrypt;
+
+            // Warm up the JIT before measuring
+            int warmup = Math.min(operations, 20000);
+            run(legacy, legacyCiphertext, warmup);
+            run(gcm, gcmCiphertext, warmup);
+
+            report("ecb per call", operations, () -> run(legacy, legacyCiphertext, operations));
+            report("gcm", operations, () -> run(gcm, gcmCiphertext, operations));
+        } catch (Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private void run(UnaryOperator<String> decrypt, String ciphertext, int operations) {
+        for (int i = 0; i < operations; i++) {
+            sink += decrypt.apply(ciphertext).length();
+        }
+    }
+
+    private String legacyEncrypt(String plainText) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, legacyKey());
+        return Base64.getEncoder().encodeToString(cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String legacyDecrypt(String encryptedText) {
+        try {
+            Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE, legacyKey());
+            return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedText)), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private SecretKeySpec legacyKey() {
+        byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[16];
+        System.arraycopy(keyBytes, 0, key, 0, Math.min(keyBytes.length, 16));
+        return new SecretKeySpec(key, "AES");
+    }
+
+    private static void report(String mode, int operations, Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long started = System.nanoTime();
+        work.run();
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        System.out.printf("%-14s %10d decrypts %10.0f ns/op %12.0f ops/s %8d bytes/op%n", mode, operations,
+                (double) elapsed / operations, operations / (elapsed / 1_000_000_000.0), allocated / Math.max(operations, 1));
+    }
+}
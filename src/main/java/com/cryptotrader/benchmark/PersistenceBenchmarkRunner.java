@@ -0,0 +1,189 @@
+package com.cryptotrader.benchmark;
+
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.dto.TradeResponse;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.TradeRepository;
+import com.cryptotrader.repository.UserRepository;
+import com.cryptotrader.service.TradeWriteBehindBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trade write throughput benchmark, active under the "benchmark" profile. It runs against
+ * whatever datasource is configured, so the same command measures H2 (dev defaults) and
+ * PostgreSQL (prod profile with DATABASE_URL set):
+ *
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=dev,benchmark --spring.main.web-application-type=none --spring.jpa.show-sql=false --rows=20000
+ * java -jar app.jar --spring.profiles.active=prod,benchmark --spring.main.web-application-type=none --spring.jpa.show-sql=false --rows=20000
+ * </pre>
+ *
+ * "row-at-a-time" reproduces the previous write pattern: inserts flushed one statement per row,
+ * as IDENTITY keys forced, and one transaction per status update. "batched" uses pooled sequence
+ * keys with JDBC batching for inserts and the write-behind buffer for status updates.
+ * "history read" compares loading the same rows as managed entities with the constructor
+ * projection the history endpoint uses, reporting time and heap allocated per row.
+ * Rows created by the benchmark are deleted afterwards.
+ */
+@Component
+@Profile("benchmark")
+public class PersistenceBenchmarkRunner implements ApplicationRunner {
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TradeWriteBehindBuffer tradeWriteBehindBuffer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int rows = args.containsOption("rows") ? Integer.parseInt(args.getOptionValues("rows").get(0)) : 20000;
+        int exitCode = 0;
+
+        User user = userRepository.save(new User("benchmark-" + System.currentTimeMillis(),
+                "benchmark-" + System.nanoTime() + "@example.com", "unused"));
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            System.out.printf("Database: %s, rows: %d, batch size: %d%n", database, rows, batchSize);
+
+            // Warm up connections, statement caches and the JIT before measuring
+            insertRowAtATime(user, Math.min(rows, 1000));
+            insertBatched(user, Math.min(rows, 1000));
+
+            List<Long> baselineIds = new ArrayList<>();
+            report("insert", "row-at-a-time", rows, () -> baselineIds.addAll(insertRowAtATime(user, rows)));
+
+            List<Long> batchedIds = new ArrayList<>();
+            report("insert", "batched", rows, () -> batchedIds.addAll(insertBatched(user, rows)));
+
+            report("status update", "row-at-a-time", rows, () -> {
+                for (Long tradeId : baselineIds) {
+                    transactionTemplate.executeWithoutResult(status -> tradeRepository.findById(tradeId)
+                            .ifPresent(trade -> trade.markAsPartiallyFilled(BigDecimal.ONE, BigDecimal.TEN)));
+                }
+            });
+
+            report("status update", "batched", rows, () -> {
+                for (Long tradeId : batchedIds) {
+                    tradeWriteBehindBuffer.enqueue(tradeId, trade -> trade.markAsPartiallyFilled(BigDecimal.ONE, BigDecimal.TEN));
+                }
+                tradeWriteBehindBuffer.flush();
+            });
+
+            int readRows = baselineIds.size() + batchedIds.size();
+            TradeHistoryFilter noFilter = new TradeHistoryFilter(null, null, null, null);
+
+            reportAllocation("history read", "entity", readRows, () -> transactionTemplate.executeWithoutResult(status -> {
+                List<Trade> trades = entityManager.createQuery(
+                        "SELECT t FROM Trade t WHERE t.user = :user ORDER BY t.createdAt, t.id", Trade.class)
+                        .setParameter("user", user)
+                        .getResultList();
+                trades.forEach(TradeResponse::of);
+                entityManager.clear();
+            }));
+
+            reportAllocation("history read", "projection", readRows, () -> transactionTemplate.executeWithoutResult(status ->
+                    tradeRepository.findHistoryPage(user, noFilter, null, true, readRows)));
+        } catch (Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM trades WHERE user_id = ?", user.getId());
+                jdbcTemplate.update("DELETE FROM trade_stats_rollups WHERE user_id = ?", user.getId());
+            });
+            userRepository.deleteById(user.getId());
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private List<Long> insertRowAtATime(User user, int rows) {
+        List<Long> ids = new ArrayList<>(rows);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < rows; i++) {
+                Trade trade = newTrade(user, i);
+                entityManager.persist(trade);
+                entityManager.flush();
+                ids.add(trade.getId());
+            }
+            entityManager.clear();
+        });
+        return ids;
+    }
+
+    private List<Long> insertBatched(User user, int rows) {
+        List<Long> ids = new ArrayList<>(rows);
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < rows; i++) {
+                Trade trade = newTrade(user, i);
+                entityManager.persist(trade);
+                ids.add(trade.getId());
+                if ((i + 1) % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        return ids;
+    }
+
+    private Trade newTrade(User user, int i) {
+        return new Trade(entityManager.getReference(User.class, user.getId()),
+                i % 2 == 0 ? "binance" : "kraken", "BTC/USDT", "LIMIT", i % 2 == 0 ? "BUY" : "SELL",
+                new BigDecimal("0.01"), new BigDecimal("30000"));
+    }
+
+    private static void reportAllocation(String operation, String mode, int rows, Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        report(operation, mode, rows, work);
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        System.out.printf("%-14s %-14s %8d bytes allocated per row%n", operation, mode, allocated / Math.max(rows, 1));
+    }
+
+    private static void report(String operation, String mode, int rows, Runnable work) {
+        long started = System.nanoTime();
+        work.run();
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+        System.out.printf("%-14s %-14s %8d rows %8.2f s %10.0f rows/s%n", operation, mode, rows, seconds, rows / seconds);
+    }
+}
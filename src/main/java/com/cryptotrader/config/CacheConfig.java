@@ -0,0 +1,45 @@
+package com.cryptotrader.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * In-process Caffeine caches for values read on every request. They hold immutable values
+ * (snapshots, versions), never managed entities. Caches are declared up front so actuator binds
+ * their hit/miss metrics (cache.gets) at startup.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ACTIVE_API_KEYS = "activeApiKeys";
+    public static final String SECURITY_VERSIONS = "securityVersions";
+
+    // The TTL only bounds staleness across instances; local writes evict immediately
+    @Value("${app.cache.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}")
+    private String cacheSpec;
+
+    // Bounds how long another instance keeps accepting tokens revoked by a version bump
+    @Value("${app.security.jwt.version-cache-ttl-ms:30000}")
+    private long versionCacheTtlMs;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ACTIVE_API_KEYS);
+        cacheManager.setCacheSpecification(cacheSpec);
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(SECURITY_VERSIONS, Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofMillis(versionCacheTtlMs))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+}
@@ -2,11 +2,13 @@ package com.cryptotrader.controller;
 
 import com.cryptotrader.dto.ApiKeyRequest;
 import com.cryptotrader.dto.ApiResponse;
+import com.cryptotrader.dto.PaperAccountRequest;
 import com.cryptotrader.entity.ApiKey;
 import com.cryptotrader.entity.User;
 import com.cryptotrader.repository.ApiKeyRepository;
 import com.cryptotrader.service.EncryptionService;
 import com.cryptotrader.service.ExchangeService;
+import com.cryptotrader.service.PaperTradingService;
 import com.cryptotrader.service.RateLimitingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +18,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -39,6 +42,9 @@ public class ApiKeyController {
     @Autowired
     private RateLimitingService rateLimitingService;
     
+    @Autowired
+    private PaperTradingService paperTradingService;
+    
     private static final List<String> SUPPORTED_EXCHANGES = List.of("binance", "coinbase", "kraken");
     
     @PostMapping
@@ -99,6 +105,52 @@ public class ApiKeyController {
         }
     }
     
+    @PostMapping("/paper")
+    public ResponseEntity<?> addPaperAccount(@Valid @RequestBody PaperAccountRequest request,
+                                           Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Rate limiting
+        if (!rateLimitingService.tryConsumeApiKeyOperation(user.getId().toString())) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Too many API key operations. Please wait before trying again."));
+        }
+        
+        try {
+            String exchange = request.getExchange().toLowerCase();
+            
+            // Validate exchange
+            if (!SUPPORTED_EXCHANGES.contains(exchange)) {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Unsupported exchange: " + request.getExchange()));
+            }
+            
+            // Paper and live accounts share the (user, exchange) slot
+            if (apiKeyRepository.existsByUserAndExchange(user, exchange)) {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.error("API key for " + request.getExchange() + " already exists"));
+            }
+            
+            // Paper accounts have no credentials; placeholders keep the encrypted columns decryptable
+            String placeholder = encryptionService.encrypt("paper-" + exchange);
+            ApiKey apiKey = new ApiKey(user, exchange, placeholder, placeholder);
+            apiKey.setAccountType("PAPER");
+            apiKey = apiKeyRepository.save(apiKey);
+            
+            paperTradingService.openAccount(apiKey, request.getInitialBalances());
+            
+            logger.info("Paper account added for user {} on exchange {}", user.getUsername(), exchange);
+            
+            return ResponseEntity.ok(ApiResponse.success("Paper account added successfully", createApiKeyResponse(apiKey)));
+            
+        } catch (Exception e) {
+            logger.error("Error adding paper account for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to add paper account"));
+        }
+    }
+    
     @GetMapping
     public ResponseEntity<?> getApiKeys(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -143,6 +195,10 @@ public class ApiKeyController {
             // Clear exchange cache for this user
             exchangeService.clearExchangeCache(user);
             
+            if (apiKey.isPaper()) {
+                paperTradingService.closeAccount(apiKey);
+            }
+            
             // Delete API key
             apiKeyRepository.delete(apiKey);
             
@@ -223,16 +279,18 @@ public class ApiKeyController {
         return null;
     }
     
+    // HashMap, since never-used and never-tested keys have null timestamps that Map.of rejects
     private Map<String, Object> createApiKeyResponse(ApiKey apiKey) {
-        return Map.of(
-            "id", apiKey.getId(),
-            "exchange", apiKey.getExchange(),
-            "createdAt", apiKey.getCreatedAt(),
-            "lastUsed", apiKey.getLastUsed(),
-            "isActive", apiKey.getIsActive(),
-            "hasPassphrase", apiKey.hasPassphrase(),
-            "testConnectionStatus", apiKey.getTestConnectionStatus() != null ? apiKey.getTestConnectionStatus() : "NOT_TESTED",
-            "testConnectionAt", apiKey.getTestConnectionAt()
-        );
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", apiKey.getId());
+        response.put("exchange", apiKey.getExchange());
+        response.put("createdAt", apiKey.getCreatedAt());
+        response.put("lastUsed", apiKey.getLastUsed());
+        response.put("isActive", apiKey.getIsActive());
+        response.put("accountType", apiKey.getAccountType() != null ? apiKey.getAccountType() : "LIVE");
+        response.put("hasPassphrase", apiKey.hasPassphrase());
+        response.put("testConnectionStatus", apiKey.getTestConnectionStatus() != null ? apiKey.getTestConnectionStatus() : "NOT_TESTED");
+        response.put("testConnectionAt", apiKey.getTestConnectionAt());
+        return response;
     }
 }
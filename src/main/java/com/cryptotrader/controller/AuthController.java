@@ -3,11 +3,17 @@ package com.cryptotrader.controller;
 import com.cryptotrader.dto.ApiResponse;
 import com.cryptotrader.dto.JwtResponse;
 import com.cryptotrader.dto.LoginRequest;
+import com.cryptotrader.dto.RefreshTokenRequest;
 import com.cryptotrader.dto.RegisterRequest;
 import com.cryptotrader.entity.User;
 import com.cryptotrader.repository.UserRepository;
 import com.cryptotrader.security.JwtUtils;
+import com.cryptotrader.security.PasswordHashingBusyException;
+import com.cryptotrader.service.LoginAttemptService;
 import com.cryptotrader.service.RateLimitingService;
+import com.cryptotrader.service.RefreshTokenService;
+import com.cryptotrader.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +27,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/auth")
@@ -44,6 +51,15 @@ public class AuthController {
     @Autowired
     private RateLimitingService rateLimitingService;
     
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+    
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
                                             HttpServletRequest request) {
@@ -57,6 +73,15 @@ public class AuthController {
                     .body(ApiResponse.error("Too many login attempts. Please try again later."));
         }
         
+        // Lets a locked account be refused without spending a password hash on it
+        Optional<User> account = userRepository.findByUsernameOrEmail(
+                loginRequest.getUsernameOrEmail(), loginRequest.getUsernameOrEmail());
+        if (account.isPresent() && loginAttemptService.isLocked(account.get())) {
+            logger.warn("Login attempt for locked account {} from IP: {}", loginRequest.getUsernameOrEmail(), clientIp);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Invalid username/email or password"));
+        }
+        
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -69,24 +94,26 @@ public class AuthController {
             User user = (User) authentication.getPrincipal();
             
             // Reset failed login attempts on successful login
-            user.resetFailedLoginAttempts();
-            userRepository.save(user);
+            loginAttemptService.recordSuccess(user);
             
-            JwtResponse jwtResponse = new JwtResponse(jwt, user.getId(), user.getUsername(), user.getEmail());
+            String refreshToken = refreshTokenService.issue(user);
+            JwtResponse jwtResponse = new JwtResponse(jwt, refreshToken, jwtUtils.getExpirationMs() / 1000,
+                    user.getId(), user.getUsername(), user.getEmail());
             
             logger.info("User {} logged in successfully from IP: {}", user.getUsername(), clientIp);
             
             return ResponseEntity.ok(ApiResponse.success("Login successful", jwtResponse));
             
+        } catch (PasswordHashingBusyException e) {
+            // Shed, not failed: the password was never checked
+            logger.warn("Login for {} from IP {} shed: {}", loginRequest.getUsernameOrEmail(), clientIp, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Login is temporarily busy. Please try again shortly."));
         } catch (Exception e) {
             logger.warn("Failed login attempt for {} from IP: {}", loginRequest.getUsernameOrEmail(), clientIp);
             
             // Increment failed login attempts
-            userRepository.findByUsernameOrEmail(loginRequest.getUsernameOrEmail(), loginRequest.getUsernameOrEmail())
-                    .ifPresent(user -> {
-                        user.incrementFailedLoginAttempts();
-                        userRepository.save(user);
-                    });
+            account.ifPresent(loginAttemptService::recordFailure);
             
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error("Invalid username/email or password"));
@@ -129,6 +156,9 @@ public class AuthController {
             
             return ResponseEntity.ok(ApiResponse.success("User registered successfully!"));
             
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Registration is temporarily busy. Please try again shortly."));
         } catch (Exception e) {
             logger.error("Error registering user: {}", e.getMessage());
             return ResponseEntity.badRequest()
@@ -136,8 +166,45 @@ public class AuthController {
         }
     }
     
+    // Exchanges a refresh token for a new access token and a new refresh token; each refresh token works once
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshRequest,
+                                        HttpServletRequest request) {
+        
+        String clientIp = getClientIpAddress(request);
+        
+        if (!rateLimitingService.tryConsumeApiRequest(clientIp)) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Too many requests. Please try again later."));
+        }
+        
+        return refreshTokenService.rotate(refreshRequest.getRefreshToken())
+                .<ResponseEntity<?>>map(rotation -> {
+                    User user = rotation.getUser();
+                    String jwt = jwtUtils.generateJwtToken(
+                            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+                    return ResponseEntity.ok(ApiResponse.success("Token refreshed",
+                            new JwtResponse(jwt, rotation.getRefreshToken(), jwtUtils.getExpirationMs() / 1000,
+                                    user.getId(), user.getUsername(), user.getEmail())));
+                })
+                .orElseGet(() -> ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Invalid or expired refresh token")));
+    }
+    
+    // Revokes the presented access token until it expires, and the login's refresh tokens when one is sent
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
+    public ResponseEntity<?> logoutUser(@RequestBody(required = false) RefreshTokenRequest logoutRequest,
+                                      HttpServletRequest request) {
+        String jwt = parseJwt(request);
+        Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+        if (claims != null) {
+            tokenRevocationService.revoke(claims.getId(), claims.getExpiration());
+        }
+        
+        if (logoutRequest != null && logoutRequest.getRefreshToken() != null) {
+            refreshTokenService.revoke(logoutRequest.getRefreshToken());
+        }
+        
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok(ApiResponse.success("Logout successful"));
     }
@@ -146,9 +213,9 @@ public class AuthController {
     public ResponseEntity<?> validateToken(HttpServletRequest request) {
         String jwt = parseJwt(request);
         
-        if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-            String username = jwtUtils.getUserNameFromJwtToken(jwt);
-            return ResponseEntity.ok(ApiResponse.success("Token is valid", username));
+        Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+        if (claims != null && !tokenRevocationService.isRevoked(claims.getId())) {
+            return ResponseEntity.ok(ApiResponse.success("Token is valid", claims.getSubject()));
         }
         
         return ResponseEntity.badRequest()
@@ -0,0 +1,56 @@
+package com.cryptotrader.controller;
+
+import com.cryptotrader.backtest.BacktestResult;
+import com.cryptotrader.dto.ApiResponse;
+import com.cryptotrader.dto.BacktestRequest;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.service.BacktestService;
+import com.cryptotrader.service.RateLimitingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/backtest")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class BacktestController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BacktestController.class);
+    
+    @Autowired
+    private BacktestService backtestService;
+    
+    @Autowired
+    private RateLimitingService rateLimitingService;
+    
+    @PostMapping("/run")
+    public ResponseEntity<?> runBacktest(@Valid @RequestBody BacktestRequest request,
+                                       Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        // Sweeps are CPU heavy, so they get their own small budget
+        if (!rateLimitingService.tryConsumeCustom("backtest_" + user.getId(), 5, Duration.ofMinutes(1), 1)) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Too many backtest requests. Please wait before trying again."));
+        }
+        
+        try {
+            List<BacktestResult> results = backtestService.runSweep(request);
+            
+            return ResponseEntity.ok(ApiResponse.success("Backtest completed successfully", results));
+            
+        } catch (Exception e) {
+            logger.error("Error running backtest for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
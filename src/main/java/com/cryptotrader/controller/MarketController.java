@@ -0,0 +1,57 @@
+package com.cryptotrader.controller;
+
+import com.cryptotrader.dto.ApiResponse;
+import com.cryptotrader.market.Candles;
+import com.cryptotrader.service.CandleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/market")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class MarketController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MarketController.class);
+    
+    private static final int MAX_CANDLES = 5000;
+    
+    @Autowired
+    private CandleService candleService;
+    
+    // Served from in-memory candle rings only; never calls the exchange
+    @GetMapping("/candles")
+    public ResponseEntity<?> getCandles(@RequestParam String exchange,
+                                      @RequestParam String symbol,
+                                      @RequestParam(defaultValue = "1m") String interval,
+                                      @RequestParam(required = false) Long from,
+                                      @RequestParam(required = false) Long to,
+                                      @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > MAX_CANDLES) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Limit must be between 1 and " + MAX_CANDLES));
+        }
+        
+        try {
+            Candles candles = candleService.getCandles(exchange, symbol, interval, from, to, limit);
+            
+            Map<String, Object> data = Map.of(
+                "exchange", exchange,
+                "symbol", symbol,
+                "interval", interval,
+                "candles", candles
+            );
+            
+            return ResponseEntity.ok(ApiResponse.success("Candles retrieved successfully", data));
+            
+        } catch (Exception e) {
+            logger.error("Error retrieving {} candles for {} on {}: {}", interval, symbol, exchange, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.cryptotrader.controller;
+
+import com.cryptotrader.dto.ApiResponse;
+import com.cryptotrader.dto.PositionPnl;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.portfolio.CostMethod;
+import com.cryptotrader.service.PnlService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/portfolio")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class PortfolioController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioController.class);
+    
+    @Autowired
+    private PnlService pnlService;
+    
+    @GetMapping("/pnl")
+    public ResponseEntity<?> getPnl(@RequestParam(defaultValue = "FIFO") String method,
+                                  Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        
+        CostMethod costMethod;
+        try {
+            costMethod = CostMethod.valueOf(method.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Method must be FIFO or AVERAGE"));
+        }
+        
+        try {
+            List<PositionPnl> positions = pnlService.getPositions(user.getId(), costMethod);
+            
+            // Amounts in different quote currencies cannot be added up
+            Map<String, Map<String, BigDecimal>> totals = new TreeMap<>();
+            for (PositionPnl position : positions) {
+                Map<String, BigDecimal> total = totals.computeIfAbsent(String.valueOf(position.getQuoteCurrency()), k -> new TreeMap<>());
+                total.merge("realizedPnl", position.getRealizedPnl(), BigDecimal::add);
+                total.merge("fees", position.getFees(), BigDecimal::add);
+                if (position.getUnrealizedPnl() != null) {
+                    total.merge("unrealizedPnl", position.getUnrealizedPnl(), BigDecimal::add);
+                }
+            }
+            
+            Map<String, Object> data = Map.of(
+                "method", costMethod,
+                "positions", positions,
+                "totals", totals
+            );
+            
+            return ResponseEntity.ok(ApiResponse.success("PnL retrieved successfully", data));
+            
+        } catch (Exception e) {
+            logger.error("Error computing PnL for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -1,27 +1,36 @@
 package com.cryptotrader.controller;
 
 import com.cryptotrader.dto.ApiResponse;
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.dto.TradeHistoryPage;
 import com.cryptotrader.dto.TradeRequest;
+import com.cryptotrader.dto.TradeResponse;
 import com.cryptotrader.entity.Trade;
 import com.cryptotrader.entity.User;
+import com.cryptotrader.journal.OrderState;
+import com.cryptotrader.service.FeeLedgerService;
+import com.cryptotrader.service.TradeExportService;
+import com.cryptotrader.service.TradeStatsService;
 import com.cryptotrader.service.TradingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.knowm.xchange.dto.marketdata.Ticker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/trading")
@@ -30,9 +39,27 @@ public class TradingController {
     
     private static final Logger logger = LoggerFactory.getLogger(TradingController.class);
     
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+    
+    private static final int MAX_STATS_DAYS = 366;
+    
+    private static final int MAX_FEE_MONTHS = 60;
+    
     @Autowired
     private TradingService tradingService;
     
+    @Autowired
+    private TradeStatsService tradeStatsService;
+    
+    @Autowired
+    private TradeExportService tradeExportService;
+    
+    @Autowired
+    private FeeLedgerService feeLedgerService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping("/order")
     public ResponseEntity<?> createOrder(@Valid @RequestBody TradeRequest request, 
                                        Authentication authentication) {
@@ -47,14 +74,16 @@ public class TradingController {
                 request.getOrderType(),
                 request.getSide(),
                 request.getAmount(),
-                request.getPrice()
+                request.getPrice(),
+                request.getStopPrice(),
+                request.getTrailingOffset()
             );
             
             logger.info("Order created: {} {} {} {} on {}", 
                        request.getSide(), request.getAmount(), request.getSymbol(), 
                        request.getOrderType(), request.getExchange());
             
-            return ResponseEntity.ok(ApiResponse.success("Order created successfully", createTradeResponse(trade)));
+            return ResponseEntity.ok(ApiResponse.success("Order created successfully", TradeResponse.of(trade)));
             
         } catch (Exception e) {
             logger.error("Error creating order for user {}: {}", user.getUsername(), e.getMessage());
@@ -85,6 +114,40 @@ public class TradingController {
         }
     }
     
+    @DeleteMapping("/orders")
+    public ResponseEntity<?> cancelAllOrders(@RequestParam(required = false) String exchange,
+                                           @RequestParam(required = false) String symbol,
+                                           Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        
+        try {
+            Map<String, Object> result = tradingService.cancelAllOrders(user, exchange, symbol);
+            
+            return ResponseEntity.ok(ApiResponse.success("Orders cancelled", result));
+            
+        } catch (Exception e) {
+            logger.error("Error cancelling orders for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/orders/open")
+    public ResponseEntity<?> getOpenOrders(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        
+        try {
+            List<OrderState> orders = tradingService.getOpenOrders(user);
+            
+            return ResponseEntity.ok(ApiResponse.success("Open orders retrieved successfully", orders));
+            
+        } catch (Exception e) {
+            logger.error("Error retrieving open orders for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/portfolio/{exchange}")
     public ResponseEntity<?> getPortfolio(@PathVariable String exchange, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
@@ -131,33 +194,40 @@ public class TradingController {
     }
     
     @GetMapping("/history")
-    public ResponseEntity<?> getTradeHistory(@RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<?> getTradeHistory(@RequestParam(required = false) String cursor,
                                            @RequestParam(defaultValue = "20") int size,
                                            @RequestParam(defaultValue = "createdAt") String sortBy,
                                            @RequestParam(defaultValue = "desc") String sortDir,
                                            @RequestParam(required = false) String exchange,
+                                           @RequestParam(required = false) String symbol,
+                                           @RequestParam(required = false) String status,
+                                           @RequestParam(required = false) String side,
                                            Authentication authentication) {
         
         User user = (User) authentication.getPrincipal();
         
+        // Keyset pagination only supports the indexed (createdAt, id) ordering
+        if (!"createdAt".equals(sortBy)) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Unsupported sort field: " + sortBy));
+        }
+        
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE));
+        }
+        
         try {
-            List<Trade> trades;
-            
-            if (exchange != null && !exchange.trim().isEmpty()) {
-                trades = tradingService.getUserTradesByExchange(user, exchange);
-            } else {
-                trades = tradingService.getUserTrades(user);
-            }
+            TradeHistoryFilter filter = new TradeHistoryFilter(exchange, symbol, status, side);
+            boolean ascending = Sort.Direction.fromString(sortDir).isAscending();
             
-            // Sort trades
-            Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
+            TradeHistoryPage<TradeResponse> page = tradingService.getTradeHistoryPage(user, filter, cursor, size, ascending);
             
-            List<Map<String, Object>> tradeResponses = trades.stream()
-                    .map(this::createTradeResponse)
-                    .collect(java.util.stream.Collectors.toList());
-            
-            return ResponseEntity.ok(ApiResponse.success("Trade history retrieved successfully", tradeResponses));
+            return ResponseEntity.ok(ApiResponse.success("Trade history retrieved successfully", page));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error retrieving trade history for user {}: {}", user.getUsername(), e.getMessage());
             return ResponseEntity.badRequest()
@@ -165,21 +235,69 @@ public class TradingController {
         }
     }
     
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportTradeHistory(@RequestParam(defaultValue = "csv") String format,
+                                              @RequestParam(defaultValue = "false") boolean gzip,
+                                              @RequestParam(required = false) String exchange,
+                                              @RequestParam(required = false) String symbol,
+                                              @RequestParam(required = false) String status,
+                                              @RequestParam(required = false) String side,
+                                              Authentication authentication) {
+        
+        User user = (User) authentication.getPrincipal();
+        
+        if (!TradeExportService.isSupportedFormat(format)) {
+            // Streaming endpoints can only return a body writer, so the usual error payload is written through one
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(outputStream -> objectMapper.writeValue(outputStream,
+                            ApiResponse.error("Unsupported export format: " + format)));
+        }
+        
+        String extension = format.toLowerCase();
+        TradeHistoryFilter filter = new TradeHistoryFilter(exchange, symbol, status, side);
+        
+        StreamingResponseBody body = outputStream -> {
+            try {
+                if (gzip) {
+                    // Sync flush so each periodic flush reaches the client instead of waiting in the deflater
+                    try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, 64 * 1024, true)) {
+                        tradeExportService.export(user, filter, extension, gzipStream);
+                    }
+                } else {
+                    tradeExportService.export(user, filter, extension, outputStream);
+                }
+            } catch (Exception e) {
+                // Headers are already sent, so the client sees a truncated download
+                logger.error("Error exporting trade history for user {}: {}", user.getUsername(), e.getMessage());
+                throw e;
+            }
+        };
+        
+        String filename = "trades." + extension + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : "ndjson".equals(extension) ? MediaType.parseMediaType("application/x-ndjson") : MediaType.parseMediaType("text/csv");
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(contentType)
+                .body(body);
+    }
+    
     @GetMapping("/order/{tradeId}")
     public ResponseEntity<?> getOrderStatus(@PathVariable Long tradeId, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         
         try {
-            Optional<Trade> tradeOpt = tradingService.getTradeById(user, tradeId);
+            Optional<TradeResponse> tradeOpt = tradingService.getTradeById(user, tradeId);
             
             if (!tradeOpt.isPresent()) {
                 return ResponseEntity.badRequest()
                         .body(ApiResponse.error("Trade not found"));
             }
             
-            Trade trade = tradeOpt.get();
-            
-            return ResponseEntity.ok(ApiResponse.success("Order status retrieved successfully", createTradeResponse(trade)));
+            return ResponseEntity.ok(ApiResponse.success("Order status retrieved successfully", tradeOpt.get()));
             
         } catch (Exception e) {
             logger.error("Error retrieving order status for trade {}: {}", tradeId, e.getMessage());
@@ -193,32 +311,7 @@ public class TradingController {
         User user = (User) authentication.getPrincipal();
         
         try {
-            List<Trade> allTrades = tradingService.getUserTrades(user);
-            
-            long totalTrades = allTrades.size();
-            long successfulTrades = allTrades.stream()
-                    .mapToLong(trade -> trade.isFilled() ? 1 : 0)
-                    .sum();
-            long failedTrades = allTrades.stream()
-                    .mapToLong(trade -> trade.isFailed() ? 1 : 0)
-                    .sum();
-            long pendingTrades = allTrades.stream()
-                    .mapToLong(trade -> trade.isPending() ? 1 : 0)
-                    .sum();
-            
-            BigDecimal totalVolume = allTrades.stream()
-                    .filter(Trade::isFilled)
-                    .map(trade -> trade.getTotalCost() != null ? trade.getTotalCost() : BigDecimal.ZERO)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            Map<String, Object> stats = Map.of(
-                "totalTrades", totalTrades,
-                "successfulTrades", successfulTrades,
-                "failedTrades", failedTrades,
-                "pendingTrades", pendingTrades,
-                "totalVolume", totalVolume,
-                "successRate", totalTrades > 0 ? (double) successfulTrades / totalTrades * 100 : 0.0
-            );
+            Map<String, Object> stats = tradeStatsService.getSummary(user);
             
             return ResponseEntity.ok(ApiResponse.success("Trading statistics retrieved successfully", stats));
             
@@ -229,27 +322,63 @@ public class TradingController {
         }
     }
     
-    private Map<String, Object> createTradeResponse(Trade trade) {
-        Map<String, Object> response = new java.util.HashMap<>();
-        response.put("id", trade.getId());
-        response.put("exchange", trade.getExchange());
-        response.put("symbol", trade.getSymbol());
-        response.put("orderType", trade.getOrderType());
-        response.put("side", trade.getSide());
-        response.put("amount", trade.getAmount());
-        response.put("price", trade.getPrice() != null ? trade.getPrice() : BigDecimal.ZERO);
-        response.put("filledAmount", trade.getFilledAmount() != null ? trade.getFilledAmount() : BigDecimal.ZERO);
-        response.put("averagePrice", trade.getAveragePrice() != null ? trade.getAveragePrice() : BigDecimal.ZERO);
-        response.put("totalCost", trade.getTotalCost() != null ? trade.getTotalCost() : BigDecimal.ZERO);
-        response.put("feeAmount", trade.getFeeAmount() != null ? trade.getFeeAmount() : BigDecimal.ZERO);
-        response.put("feeCurrency", trade.getFeeCurrency());
-        response.put("status", trade.getStatus());
-        response.put("exchangeOrderId", trade.getExchangeOrderId());
-        response.put("errorMessage", trade.getErrorMessage());
-        response.put("createdAt", trade.getCreatedAt());
-        response.put("updatedAt", trade.getUpdatedAt());
-        response.put("executedAt", trade.getExecutedAt());
-        response.put("cancelledAt", trade.getCancelledAt());
-        return response;
+    @GetMapping("/stats/exchanges")
+    public ResponseEntity<?> getTradingStatsByExchange(Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        
+        try {
+            Map<String, Map<String, Object>> stats = tradeStatsService.getSummaryByExchange(user);
+            
+            return ResponseEntity.ok(ApiResponse.success("Trading statistics retrieved successfully", stats));
+            
+        } catch (Exception e) {
+            logger.error("Error retrieving exchange trading stats for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to retrieve trading statistics"));
+        }
+    }
+    
+    @GetMapping("/stats/daily")
+    public ResponseEntity<?> getDailyTradingStats(@RequestParam(defaultValue = "30") int days,
+                                                  Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        
+        if (days < 1 || days > MAX_STATS_DAYS) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Days must be between 1 and " + MAX_STATS_DAYS));
+        }
+        
+        try {
+            List<Map<String, Object>> stats = tradeStatsService.getDailySummary(user, days);
+            
+            return ResponseEntity.ok(ApiResponse.success("Daily trading statistics retrieved successfully", stats));
+            
+        } catch (Exception e) {
+            logger.error("Error retrieving daily trading stats for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to retrieve trading statistics"));
+        }
+    }
+    
+    @GetMapping("/stats/fees")
+    public ResponseEntity<?> getFeeAnalytics(@RequestParam(defaultValue = "12") int months,
+                                           Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        
+        if (months < 1 || months > MAX_FEE_MONTHS) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Months must be between 1 and " + MAX_FEE_MONTHS));
+        }
+        
+        try {
+            Map<String, Object> analytics = feeLedgerService.getFeeAnalytics(user, months);
+            
+            return ResponseEntity.ok(ApiResponse.success("Fee analytics retrieved successfully", analytics));
+            
+        } catch (Exception e) {
+            logger.error("Error retrieving fee analytics for user {}: {}", user.getUsername(), e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Failed to retrieve fee analytics"));
+        }
     }
 }
@@ -0,0 +1,6 @@
+package com.cryptotrader.datasource;
+
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
@@ -0,0 +1,38 @@
+package com.cryptotrader.datasource;
+
+import com.cryptotrader.entity.ApiKey;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Marks the owning user of every written trade or API key for read-your-writes routing.
+ * The security context only names a user on request threads; this also covers fills flushed
+ * by the write-behind buffer, fired triggers and other @Async or scheduled writes.
+ */
+public class ReadYourWritesListener {
+
+    // Only present with app.datasource.replica.enabled=true; resolved lazily like TradeStatsListener's service
+    @Autowired
+    private ObjectProvider<ReadYourWritesTracker> readYourWritesTracker;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void afterWrite(Object entity) {
+        ReadYourWritesTracker tracker = readYourWritesTracker.getIfAvailable();
+        if (tracker == null) {
+            return;
+        }
+        User user = entity instanceof Trade ? ((Trade) entity).getUser()
+                : entity instanceof ApiKey ? ((ApiKey) entity).getUser() : null;
+        if (user != null) {
+            tracker.markWriteOnCommit(user.getId());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.cryptotrader.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when each user last committed a write, so their reads stay on the primary
+ * until the replica has had time to catch up.
+ */
+public class ReadYourWritesTracker {
+
+    private final long stickyMs;
+    private final Map<Long, Long> lastWriteAt = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long stickyMs) {
+        this.stickyMs = stickyMs;
+    }
+
+    public void markWrite(Long userId) {
+        lastWriteAt.put(userId, System.currentTimeMillis());
+    }
+
+    /**
+     * Marks the user once the current transaction commits, when the write becomes visible on
+     * the primary; without a transaction the write has already happened. Works for any thread,
+     * so writes from @Async and scheduled work count as well as those made by web requests.
+     */
+    public void markWriteOnCommit(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markWrite(userId);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> created = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    created.forEach(ReadYourWritesTracker.this::markWrite);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReadYourWritesTracker.this);
+                }
+            });
+            pending = created;
+        }
+        pending.add(userId);
+    }
+
+    /**
+     * True while the user's last write may not have replicated yet: within the configured
+     * window, stretched to twice the measured lag when the replica is running behind.
+     */
+    public boolean requiresPrimary(Long userId, long replicaLagMs) {
+        Long writtenAt = lastWriteAt.get(userId);
+        if (writtenAt == null) {
+            return false;
+        }
+
+        long window = Math.max(stickyMs, replicaLagMs * 2);
+        if (System.currentTimeMillis() - writtenAt < window) {
+            return true;
+        }
+
+        lastWriteAt.remove(userId, writtenAt);
+        return false;
+    }
+
+    public int getTrackedUsers() {
+        return lastWriteAt.size();
+    }
+}
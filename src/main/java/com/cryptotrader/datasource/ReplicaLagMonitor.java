@@ -0,0 +1,59 @@
+package com.cryptotrader.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Polls the replica's replication lag. The replica is only used while the last probe
+ * succeeded and reported a lag within the threshold.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final String lagQuery;
+    private final long maxLagMs;
+
+    private volatile boolean replicaUsable;
+    private volatile long lastLagMs;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, String lagQuery, long maxLagMs) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.replicaJdbcTemplate.setQueryTimeout(2);
+        this.lagQuery = lagQuery;
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void probe() {
+        try {
+            Number lag = replicaJdbcTemplate.queryForObject(lagQuery, Number.class);
+            lastLagMs = lag != null ? lag.longValue() : 0;
+
+            boolean usable = lastLagMs <= maxLagMs;
+            if (usable != replicaUsable) {
+                logger.info("Replica {} for reads (lag {} ms, threshold {} ms)", usable ? "enabled" : "disabled", lastLagMs, maxLagMs);
+            }
+            replicaUsable = usable;
+
+        } catch (Exception e) {
+            if (replicaUsable) {
+                logger.warn("Replica lag probe failed, routing reads to primary: {}", e.getMessage());
+            }
+            replicaUsable = false;
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLastLagMs() {
+        return lastLagMs;
+    }
+}
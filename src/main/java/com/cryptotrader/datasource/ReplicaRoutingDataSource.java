@@ -0,0 +1,56 @@
+package com.cryptotrader.datasource;
+
+import com.cryptotrader.entity.User;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else to the primary.
+ * Reads fall back to the primary while the replica lags beyond its threshold, and for a
+ * short window after the same user committed a write, so a just-placed order is always
+ * visible to the user who placed it.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction's read-only flag is
+ * only set after the transaction manager has asked for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor, ReadYourWritesTracker readYourWritesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Requests mark their user here; writes made off the request thread are marked by ReadYourWritesListener
+            if (userId != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                readYourWritesTracker.markWriteOnCommit(userId);
+            }
+            return DataSourceRole.PRIMARY;
+        }
+
+        if (!lagMonitor.isReplicaUsable()) {
+            return DataSourceRole.PRIMARY;
+        }
+        if (userId != null && readYourWritesTracker.requiresPrimary(userId, lagMonitor.getLastLagMs())) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User) {
+            return ((User) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.cryptotrader.dto;
+
+import com.cryptotrader.entity.ApiKey;
+import com.cryptotrader.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of an active API key, read by a constructor projection. This is what the
+ * active key cache holds, so a cached value is never a managed entity that callers could
+ * mutate or that goes stale inside a persistence context.
+ */
+public final class ApiKeySnapshot {
+
+    private final Long id;
+    private final String exchange;
+    private final String encryptedApiKey;
+    private final String encryptedApiSecret;
+    private final String encryptedPassphrase;
+    private final String accountType;
+    private final LocalDateTime createdAt;
+
+    public ApiKeySnapshot(Long id, String exchange, String encryptedApiKey, String encryptedApiSecret,
+                          String encryptedPassphrase, String accountType, LocalDateTime createdAt) {
+        this.id = id;
+        this.exchange = exchange;
+        this.encryptedApiKey = encryptedApiKey;
+        this.encryptedApiSecret = encryptedApiSecret;
+        this.encryptedPassphrase = encryptedPassphrase;
+        this.accountType = accountType;
+        this.createdAt = createdAt;
+    }
+
+    // A new detached key per call, for the exchange layer; it must never be saved
+    public ApiKey toApiKey(User user) {
+        ApiKey apiKey = new ApiKey(user, exchange, encryptedApiKey, encryptedApiSecret, encryptedPassphrase);
+        apiKey.setId(id);
+        apiKey.setAccountType(accountType);
+        apiKey.setCreatedAt(createdAt);
+        return apiKey;
+    }
+}
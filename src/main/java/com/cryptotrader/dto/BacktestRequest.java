@@ -0,0 +1,90 @@
+package com.cryptotrader.dto;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+public class BacktestRequest {
+    
+    @NotBlank(message = "Exchange is required")
+    private String exchange;
+    
+    @NotEmpty(message = "At least one symbol is required")
+    private List<String> symbols;
+    
+    @NotEmpty(message = "At least one fast window is required")
+    private List<Integer> fastWindows;
+    
+    @NotEmpty(message = "At least one slow window is required")
+    private List<Integer> slowWindows;
+    
+    @DecimalMin(value = "0.0", inclusive = false, message = "Initial capital must be greater than 0")
+    private double initialCapital = 10000;
+    
+    @DecimalMin(value = "0.0", message = "Fee rate cannot be negative")
+    private double feeRate = 0.001;
+    
+    @DecimalMin(value = "0.0", inclusive = false, message = "Position fraction must be greater than 0")
+    @DecimalMax(value = "1.0", message = "Position fraction cannot exceed 1")
+    private double positionFraction = 1.0;
+    
+    public BacktestRequest() {}
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public void setExchange(String exchange) {
+        this.exchange = exchange;
+    }
+    
+    public List<String> getSymbols() {
+        return symbols;
+    }
+    
+    public void setSymbols(List<String> symbols) {
+        this.symbols = symbols;
+    }
+    
+    public List<Integer> getFastWindows() {
+        return fastWindows;
+    }
+    
+    public void setFastWindows(List<Integer> fastWindows) {
+        this.fastWindows = fastWindows;
+    }
+    
+    public List<Integer> getSlowWindows() {
+        return slowWindows;
+    }
+    
+    public void setSlowWindows(List<Integer> slowWindows) {
+        this.slowWindows = slowWindows;
+    }
+    
+    public double getInitialCapital() {
+        return initialCapital;
+    }
+    
+    public void setInitialCapital(double initialCapital) {
+        this.initialCapital = initialCapital;
+    }
+    
+    public double getFeeRate() {
+        return feeRate;
+    }
+    
+    public void setFeeRate(double feeRate) {
+        this.feeRate = feeRate;
+    }
+    
+    public double getPositionFraction() {
+        return positionFraction;
+    }
+    
+    public void setPositionFraction(double positionFraction) {
+        this.positionFraction = positionFraction;
+    }
+}
@@ -7,6 +7,8 @@ public class JwtResponse {
     private Long id;
     private String username;
     private String email;
+    private String refreshToken;
+    private Long expiresIn; // access token lifetime in seconds
     
     public JwtResponse(String accessToken, Long id, String username, String email) {
         this.token = accessToken;
@@ -15,6 +17,12 @@ public class JwtResponse {
         this.email = email;
     }
     
+    public JwtResponse(String accessToken, String refreshToken, long expiresIn, Long id, String username, String email) {
+        this(accessToken, id, username, email);
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
+    
     public String getToken() {
         return token;
     }
@@ -54,4 +62,20 @@ public class JwtResponse {
     public void setEmail(String email) {
         this.email = email;
     }
+    
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+    
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+    
+    public Long getExpiresIn() {
+        return expiresIn;
+    }
+    
+    public void setExpiresIn(Long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
 }
@@ -0,0 +1,36 @@
+package com.cryptotrader.dto;
+
+import javax.validation.constraints.NotBlank;
+import java.math.BigDecimal;
+import java.util.Map;
+
+public class PaperAccountRequest {
+    
+    @NotBlank(message = "Exchange is required")
+    private String exchange;
+    
+    private Map<String, BigDecimal> initialBalances; // Optional, defaults to app.paper-trading.initial-balances
+    
+    public PaperAccountRequest() {}
+    
+    public PaperAccountRequest(String exchange, Map<String, BigDecimal> initialBalances) {
+        this.exchange = exchange;
+        this.initialBalances = initialBalances;
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public void setExchange(String exchange) {
+        this.exchange = exchange;
+    }
+    
+    public Map<String, BigDecimal> getInitialBalances() {
+        return initialBalances;
+    }
+    
+    public void setInitialBalances(Map<String, BigDecimal> initialBalances) {
+        this.initialBalances = initialBalances;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cryptotrader.dto;
+
+import java.math.BigDecimal;
+
+public class PositionPnl {
+    
+    private final String exchange;
+    private final String symbol;
+    private final String quoteCurrency;
+    private final BigDecimal quantity;
+    private final BigDecimal averageCost;
+    private final BigDecimal markPrice;
+    private final BigDecimal realizedPnl;
+    private final BigDecimal unrealizedPnl;
+    private final BigDecimal fees;
+    private final long fills;
+    
+    public PositionPnl(String exchange, String symbol, String quoteCurrency, BigDecimal quantity,
+                       BigDecimal averageCost, BigDecimal markPrice, BigDecimal realizedPnl,
+                       BigDecimal unrealizedPnl, BigDecimal fees, long fills) {
+        this.exchange = exchange;
+        this.symbol = symbol;
+        this.quoteCurrency = quoteCurrency;
+        this.quantity = quantity;
+        this.averageCost = averageCost;
+        this.markPrice = markPrice;
+        this.realizedPnl = realizedPnl;
+        this.unrealizedPnl = unrealizedPnl;
+        this.fees = fees;
+        this.fills = fills;
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public String getQuoteCurrency() {
+        return quoteCurrency;
+    }
+    
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+    
+    public BigDecimal getAverageCost() {
+        return averageCost;
+    }
+    
+    // Null when no cached price could be obtained
+    public BigDecimal getMarkPrice() {
+        return markPrice;
+    }
+    
+    public BigDecimal getRealizedPnl() {
+        return realizedPnl;
+    }
+    
+    public BigDecimal getUnrealizedPnl() {
+        return unrealizedPnl;
+    }
+    
+    public BigDecimal getFees() {
+        return fees;
+    }
+    
+    public long getFills() {
+        return fills;
+    }
+}
@@ -0,0 +1,53 @@
+package com.cryptotrader.dto;
+
+import com.cryptotrader.entity.Trade;
+
+public class TradeHistoryFilter {
+    
+    private final String exchange;
+    private final String symbol;
+    private final String status;
+    private final String side;
+    
+    public TradeHistoryFilter(String exchange, String symbol, String status, String side) {
+        this.exchange = normalize(exchange, false);
+        this.symbol = normalize(symbol, true);
+        this.status = normalize(status, true);
+        this.side = normalize(side, true);
+    }
+    
+    public static TradeHistoryFilter none() {
+        return new TradeHistoryFilter(null, null, null, null);
+    }
+    
+    // In-memory equivalent of the query predicates, for rows read outside the database
+    public boolean matches(Trade trade) {
+        return (exchange == null || exchange.equals(trade.getExchange()))
+                && (symbol == null || symbol.equals(trade.getSymbol()))
+                && (status == null || status.equals(trade.getStatus()))
+                && (side == null || side.equals(trade.getSide()));
+    }
+    
+    private static String normalize(String value, boolean upperCase) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return upperCase ? value.trim().toUpperCase() : value.trim().toLowerCase();
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public String getSide() {
+        return side;
+    }
+}
@@ -0,0 +1,26 @@
+package com.cryptotrader.dto;
+
+import java.util.List;
+
+public class TradeHistoryPage<T> {
+    
+    private final List<T> trades;
+    private final String nextCursor;
+    
+    public TradeHistoryPage(List<T> trades, String nextCursor) {
+        this.trades = trades;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<T> getTrades() {
+        return trades;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
@@ -14,7 +14,7 @@ public class TradeRequest {
     private String symbol;
     
     @NotBlank(message = "Order type is required")
-    private String orderType; // MARKET, LIMIT
+    private String orderType; // MARKET, LIMIT, STOP_MARKET, STOP_LIMIT, TAKE_PROFIT, TRAILING_STOP
     
     @NotBlank(message = "Side is required")
     private String side; // BUY, SELL
@@ -24,7 +24,13 @@ public class TradeRequest {
     private BigDecimal amount;
     
     @DecimalMin(value = "0.0", inclusive = false, message = "Price must be greater than 0")
-    private BigDecimal price; // Required for LIMIT orders
+    private BigDecimal price; // Required for LIMIT and STOP_LIMIT orders
+    
+    @DecimalMin(value = "0.0", inclusive = false, message = "Stop price must be greater than 0")
+    private BigDecimal stopPrice; // Required for conditional orders
+    
+    @DecimalMin(value = "0.0", inclusive = false, message = "Trailing offset must be greater than 0")
+    private BigDecimal trailingOffset; // Required for TRAILING_STOP orders
     
     public TradeRequest() {}
     
@@ -88,4 +94,20 @@ public class TradeRequest {
     public void setPrice(BigDecimal price) {
         this.price = price;
     }
+    
+    public BigDecimal getStopPrice() {
+        return stopPrice;
+    }
+    
+    public void setStopPrice(BigDecimal stopPrice) {
+        this.stopPrice = stopPrice;
+    }
+    
+    public BigDecimal getTrailingOffset() {
+        return trailingOffset;
+    }
+    
+    public void setTrailingOffset(BigDecimal trailingOffset) {
+        this.trailingOffset = trailingOffset;
+    }
 }
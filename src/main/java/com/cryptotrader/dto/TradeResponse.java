@@ -0,0 +1,187 @@
+package com.cryptotrader.dto;
+
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.journal.OrderState;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Immutable trade view returned by the order and history endpoints. Read paths build it
+ * straight from a constructor projection, so no entity, user proxy or dirty-checking
+ * snapshot is created per row.
+ */
+public final class TradeResponse {
+    
+    // Trade attributes passed to the constructor, in parameter order
+    public static final List<String> COLUMNS = List.of("id", "exchange", "symbol", "orderType", "side", "amount",
+            "price", "filledAmount", "averagePrice", "totalCost", "feeAmount", "feeCurrency", "status",
+            "exchangeOrderId", "errorMessage", "createdAt", "updatedAt", "executedAt", "cancelledAt",
+            "triggerPrice", "trailingOffset", "triggeredAt");
+    
+    private final Long id;
+    private final String exchange;
+    private final String symbol;
+    private final String orderType;
+    private final String side;
+    private final BigDecimal amount;
+    private final BigDecimal price;
+    private final BigDecimal filledAmount;
+    private final BigDecimal averagePrice;
+    private final BigDecimal totalCost;
+    private final BigDecimal feeAmount;
+    private final String feeCurrency;
+    private final String status;
+    private final String exchangeOrderId;
+    private final String errorMessage;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final LocalDateTime executedAt;
+    private final LocalDateTime cancelledAt;
+    private final BigDecimal triggerPrice;
+    private final BigDecimal trailingOffset;
+    private final LocalDateTime triggeredAt;
+    
+    public TradeResponse(Long id, String exchange, String symbol, String orderType, String side, BigDecimal amount,
+                         BigDecimal price, BigDecimal filledAmount, BigDecimal averagePrice, BigDecimal totalCost,
+                         BigDecimal feeAmount, String feeCurrency, String status, String exchangeOrderId,
+                         String errorMessage, LocalDateTime createdAt, LocalDateTime updatedAt,
+                         LocalDateTime executedAt, LocalDateTime cancelledAt, BigDecimal triggerPrice,
+                         BigDecimal trailingOffset, LocalDateTime triggeredAt) {
+        this.id = id;
+        this.exchange = exchange;
+        this.symbol = symbol;
+        this.orderType = orderType;
+        this.side = side;
+        this.amount = amount;
+        // Amounts not yet known are reported as zero rather than null
+        this.price = zeroIfNull(price);
+        this.filledAmount = zeroIfNull(filledAmount);
+        this.averagePrice = zeroIfNull(averagePrice);
+        this.totalCost = zeroIfNull(totalCost);
+        this.feeAmount = zeroIfNull(feeAmount);
+        this.feeCurrency = feeCurrency;
+        this.status = status;
+        this.exchangeOrderId = exchangeOrderId;
+        this.errorMessage = errorMessage;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.executedAt = executedAt;
+        this.cancelledAt = cancelledAt;
+        this.triggerPrice = triggerPrice;
+        this.trailingOffset = trailingOffset;
+        this.triggeredAt = triggeredAt;
+    }
+    
+    // For trades already in memory, e.g. a just-placed order or an archived row
+    public static TradeResponse of(Trade trade) {
+        return new TradeResponse(trade.getId(), trade.getExchange(), trade.getSymbol(), trade.getOrderType(),
+                trade.getSide(), trade.getAmount(), trade.getPrice(), trade.getFilledAmount(), trade.getAveragePrice(),
+                trade.getTotalCost(), trade.getFeeAmount(), trade.getFeeCurrency(), trade.getStatus(),
+                trade.getExchangeOrderId(), trade.getErrorMessage(), trade.getCreatedAt(), trade.getUpdatedAt(),
+                trade.getExecutedAt(), trade.getCancelledAt(), trade.getTriggerPrice(), trade.getTrailingOffset(),
+                trade.getTriggeredAt());
+    }
+    
+    // The same trade with the live status and fill from the journal-backed order state
+    public TradeResponse withLiveState(OrderState state) {
+        BigDecimal liveFilled = state.getFilledAmount() != null ? state.getFilledAmount() : filledAmount;
+        BigDecimal liveAverage = state.getAveragePrice() != null ? state.getAveragePrice() : averagePrice;
+        String liveOrderId = state.getExchangeOrderId() != null ? state.getExchangeOrderId() : exchangeOrderId;
+        return new TradeResponse(id, exchange, symbol, orderType, side, amount, price, liveFilled, liveAverage, totalCost, feeAmount, feeCurrency, state.getStatus().name(), liveOrderId,
+                errorMessage, createdAt, updatedAt, executedAt, cancelledAt, triggerPrice, trailingOffset, triggeredAt);
+    }
+    
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public String getSymbol() {
+        return symbol;
+    }
+    
+    public String getOrderType() {
+        return orderType;
+    }
+    
+    public String getSide() {
+        return side;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public BigDecimal getPrice() {
+        return price;
+    }
+    
+    public BigDecimal getFilledAmount() {
+        return filledAmount;
+    }
+    
+    public BigDecimal getAveragePrice() {
+        return averagePrice;
+    }
+    
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+    
+    public BigDecimal getFeeAmount() {
+        return feeAmount;
+    }
+    
+    public String getFeeCurrency() {
+        return feeCurrency;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public String getExchangeOrderId() {
+        return exchangeOrderId;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public LocalDateTime getExecutedAt() {
+        return executedAt;
+    }
+    
+    public LocalDateTime getCancelledAt() {
+        return cancelledAt;
+    }
+    
+    public BigDecimal getTriggerPrice() {
+        return triggerPrice;
+    }
+    
+    public BigDecimal getTrailingOffset() {
+        return trailingOffset;
+    }
+    
+    public LocalDateTime getTriggeredAt() {
+        return triggeredAt;
+    }
+}
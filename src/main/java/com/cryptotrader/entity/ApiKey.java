@@ -1,5 +1,6 @@
 package com.cryptotrader.entity;
 
+import com.cryptotrader.datasource.ReadYourWritesListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import javax.persistence.*;
@@ -8,11 +9,15 @@ import javax.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "api_keys")
+@EntityListeners(ReadYourWritesListener.class)
+@Table(name = "api_keys", indexes = {
+    @Index(name = "idx_api_keys_user_exchange_active", columnList = "user_id, exchange, is_active")
+})
 public class ApiKey {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "api_keys_seq")
+    @SequenceGenerator(name = "api_keys_seq", sequenceName = "api_keys_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "User is required")
@@ -25,17 +30,18 @@ public class ApiKey {
     @Column(nullable = false)
     private String exchange;
     
+    // Written once on insert; KeyRotationService rewrites them, so entity saves must leave them alone
     @NotBlank(message = "API key is required")
-    @Column(name = "encrypted_api_key", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "encrypted_api_key", nullable = false, updatable = false, columnDefinition = "TEXT")
     @JsonIgnore
     private String encryptedApiKey;
     
     @NotBlank(message = "API secret is required")
-    @Column(name = "encrypted_api_secret", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "encrypted_api_secret", nullable = false, updatable = false, columnDefinition = "TEXT")
     @JsonIgnore
     private String encryptedApiSecret;
     
-    @Column(name = "encrypted_passphrase", columnDefinition = "TEXT")
+    @Column(name = "encrypted_passphrase", updatable = false, columnDefinition = "TEXT")
     @JsonIgnore
     private String encryptedPassphrase;
     
@@ -57,6 +63,9 @@ public class ApiKey {
     @Column(name = "test_connection_at")
     private LocalDateTime testConnectionAt;
     
+    @Column(name = "account_type")
+    private String accountType = "LIVE"; // LIVE, PAPER
+    
     // Constructors
     public ApiKey() {
         this.createdAt = LocalDateTime.now();
@@ -89,6 +98,10 @@ public class ApiKey {
         return encryptedPassphrase != null && !encryptedPassphrase.trim().isEmpty();
     }
     
+    public boolean isPaper() {
+        return "PAPER".equals(accountType);
+    }
+    
     public boolean isExpired() {
         // Consider API key expired if not used for 90 days
         return lastUsed != null && lastUsed.isBefore(LocalDateTime.now().minusDays(90));
@@ -195,4 +208,12 @@ public class ApiKey {
     public void setTestConnectionAt(LocalDateTime testConnectionAt) {
         this.testConnectionAt = testConnectionAt;
     }
+    
+    public String getAccountType() {
+        return accountType;
+    }
+    
+    public void setAccountType(String accountType) {
+        this.accountType = accountType;
+    }
 }
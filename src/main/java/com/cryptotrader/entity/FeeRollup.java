@@ -0,0 +1,103 @@
+package com.cryptotrader.entity;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "fee_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_fee_rollups_user_exchange_currency_month", columnNames = {"user_id", "exchange", "currency", "fee_month"})
+})
+public class FeeRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private String exchange;
+    
+    @Column(nullable = false)
+    private String currency; // currency the fees were charged in
+    
+    @Column(name = "fee_month", nullable = false)
+    private LocalDate feeMonth; // first day of the month
+    
+    @Column(name = "maker_fills", nullable = false)
+    private long makerFills;
+    
+    @Column(name = "taker_fills", nullable = false)
+    private long takerFills;
+    
+    @Column(name = "maker_fees", nullable = false, precision = 28, scale = 8)
+    private BigDecimal makerFees = BigDecimal.ZERO;
+    
+    @Column(name = "taker_fees", nullable = false, precision = 28, scale = 8)
+    private BigDecimal takerFees = BigDecimal.ZERO;
+    
+    // Traded volume in the fee currency, so fees / volume is the effective rate
+    @Column(name = "maker_volume", nullable = false, precision = 28, scale = 8)
+    private BigDecimal makerVolume = BigDecimal.ZERO;
+    
+    @Column(name = "taker_volume", nullable = false, precision = 28, scale = 8)
+    private BigDecimal takerVolume = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Rows are written through FeeLedgerService upserts; the entity is read-only
+    public FeeRollup() {}
+    
+    // Getters
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public LocalDate getFeeMonth() {
+        return feeMonth;
+    }
+    
+    public long getMakerFills() {
+        return makerFills;
+    }
+    
+    public long getTakerFills() {
+        return takerFills;
+    }
+    
+    public BigDecimal getMakerFees() {
+        return makerFees;
+    }
+    
+    public BigDecimal getTakerFees() {
+        return takerFees;
+    }
+    
+    public BigDecimal getMakerVolume() {
+        return makerVolume;
+    }
+    
+    public BigDecimal getTakerVolume() {
+        return takerVolume;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
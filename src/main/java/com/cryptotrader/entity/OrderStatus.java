@@ -0,0 +1,42 @@
+package com.cryptotrader.entity;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Order lifecycle states and the transitions allowed between them. Stored by name in
+ * trades.status. Non-terminal states may repeat (e.g. successive partial fills); terminal
+ * states never change again.
+ */
+public enum OrderStatus {
+    TRIGGER_PENDING,
+    PENDING,
+    PARTIALLY_FILLED,
+    FILLED,
+    CANCELLED,
+    FAILED;
+
+    private Set<OrderStatus> next;
+
+    static {
+        TRIGGER_PENDING.next = EnumSet.of(TRIGGER_PENDING, PENDING, CANCELLED, FAILED);
+        PENDING.next = EnumSet.of(PENDING, PARTIALLY_FILLED, FILLED, CANCELLED, FAILED);
+        PARTIALLY_FILLED.next = EnumSet.of(PARTIALLY_FILLED, FILLED, CANCELLED, FAILED);
+        FILLED.next = EnumSet.noneOf(OrderStatus.class);
+        CANCELLED.next = EnumSet.noneOf(OrderStatus.class);
+        FAILED.next = EnumSet.noneOf(OrderStatus.class);
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return next.contains(target);
+    }
+
+    public boolean isTerminal() {
+        return next.isEmpty();
+    }
+
+    // TRIGGER_PENDING, PENDING and PARTIALLY_FILLED
+    public boolean isOpen() {
+        return !isTerminal();
+    }
+}
@@ -0,0 +1,72 @@
+package com.cryptotrader.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "paper_account_snapshots")
+public class PaperAccountSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "paper_account_snapshots_seq")
+    @SequenceGenerator(name = "paper_account_snapshots_seq", sequenceName = "paper_account_snapshots_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "api_key_id", nullable = false, unique = true)
+    private Long apiKeyId;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String balances; // JSON object of currency -> amount
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public PaperAccountSnapshot() {
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    public PaperAccountSnapshot(Long apiKeyId, String balances) {
+        this();
+        this.apiKeyId = apiKeyId;
+        this.balances = balances;
+    }
+    
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getApiKeyId() {
+        return apiKeyId;
+    }
+    
+    public void setApiKeyId(Long apiKeyId) {
+        this.apiKeyId = apiKeyId;
+    }
+    
+    public String getBalances() {
+        return balances;
+    }
+    
+    public void setBalances(String balances) {
+        this.balances = balances;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,5 +1,7 @@
 package com.cryptotrader.entity;
 
+import com.cryptotrader.datasource.ReadYourWritesListener;
+import com.cryptotrader.service.TradeStatsListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import javax.persistence.*;
@@ -10,11 +12,20 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trades")
+@Table(name = "trades", indexes = {
+    @Index(name = "idx_trades_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_trades_user_exchange_created", columnList = "user_id, exchange, created_at, id"),
+    @Index(name = "idx_trades_user_symbol_created", columnList = "user_id, symbol, created_at, id"),
+    @Index(name = "idx_trades_user_status_created", columnList = "user_id, status, created_at, id"),
+    @Index(name = "idx_trades_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_trades_exchange_order_id", columnList = "exchange_order_id, user_id")
+})
+@EntityListeners({TradeStatsListener.class, ReadYourWritesListener.class})
 public class Trade {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trades_seq")
+    @SequenceGenerator(name = "trades_seq", sequenceName = "trades_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "User is required")
@@ -33,7 +44,7 @@ public class Trade {
     
     @NotBlank(message = "Order type is required")
     @Column(name = "order_type", nullable = false)
-    private String orderType; // MARKET, LIMIT
+    private String orderType; // MARKET, LIMIT, STOP_MARKET, STOP_LIMIT, TAKE_PROFIT, TRAILING_STOP
     
     @NotBlank(message = "Side is required")
     @Column(nullable = false)
@@ -64,7 +75,7 @@ public class Trade {
     
     @NotBlank(message = "Status is required")
     @Column(nullable = false)
-    private String status; // PENDING, FILLED, PARTIALLY_FILLED, CANCELLED, FAILED
+    private String status; // TRIGGER_PENDING, PENDING, FILLED, PARTIALLY_FILLED, CANCELLED, FAILED
     
     @Column(name = "exchange_order_id")
     private String exchangeOrderId;
@@ -84,6 +95,30 @@ public class Trade {
     @Column(name = "cancelled_at")
     private LocalDateTime cancelledAt;
     
+    @Column(name = "trigger_price", precision = 20, scale = 8)
+    private BigDecimal triggerPrice; // Stop / take-profit level for conditional orders
+    
+    @Column(name = "trailing_offset", precision = 20, scale = 8)
+    private BigDecimal trailingOffset; // Distance kept from the best price for TRAILING_STOP
+    
+    @Column(name = "triggered_at")
+    private LocalDateTime triggeredAt;
+    
+    // Concurrent writers (cancel, fills, triggers) fail on a stale copy instead of overwriting each other
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+    
+    // Last flushed status and cost, so the stats rollup can apply the delta of each transition
+    @Transient
+    @JsonIgnore
+    private String persistedStatus;
+    
+    @Transient
+    @JsonIgnore
+    private BigDecimal persistedTotalCost;
+    
     // Constructors
     public Trade() {
         this.createdAt = LocalDateTime.now();
@@ -107,7 +142,7 @@ public class Trade {
     
     // Business methods
     public void markAsFilled(BigDecimal filledAmount, BigDecimal averagePrice, BigDecimal totalCost) {
-        this.status = "FILLED";
+        transitionTo(OrderStatus.FILLED);
         this.filledAmount = filledAmount;
         this.averagePrice = averagePrice;
         this.totalCost = totalCost;
@@ -115,21 +150,88 @@ public class Trade {
     }
     
     public void markAsPartiallyFilled(BigDecimal filledAmount, BigDecimal averagePrice) {
-        this.status = "PARTIALLY_FILLED";
+        transitionTo(OrderStatus.PARTIALLY_FILLED);
         this.filledAmount = filledAmount;
         this.averagePrice = averagePrice;
     }
     
+    /**
+     * Applies cumulative fill totals. A fill that raced a cancel or failure still happened on the
+     * venue, so a closed row keeps its status and only takes the larger fill totals.
+     */
+    public void applyFill(BigDecimal filledAmount, BigDecimal averagePrice, BigDecimal totalCost, boolean complete) {
+        if (getOrderStatus().isTerminal()) {
+            if (this.filledAmount == null || filledAmount.compareTo(this.filledAmount) > 0) {
+                this.filledAmount = filledAmount;
+                this.averagePrice = averagePrice;
+                this.totalCost = totalCost;
+            }
+            return;
+        }
+        if (complete) {
+            markAsFilled(filledAmount, averagePrice, totalCost);
+        } else {
+            markAsPartiallyFilled(filledAmount, averagePrice);
+            this.totalCost = totalCost;
+        }
+    }
+    
     public void markAsCancelled() {
-        this.status = "CANCELLED";
+        transitionTo(OrderStatus.CANCELLED);
         this.cancelledAt = LocalDateTime.now();
     }
     
     public void markAsFailed(String errorMessage) {
-        this.status = "FAILED";
+        transitionTo(OrderStatus.FAILED);
         this.errorMessage = errorMessage;
     }
     
+    public void markAsAcknowledged(String exchangeOrderId) {
+        transitionTo(OrderStatus.PENDING);
+        this.exchangeOrderId = exchangeOrderId;
+    }
+    
+    /**
+     * Makes a new, not yet saved order a conditional one that rests in the trigger engine.
+     */
+    public void armTrigger(BigDecimal triggerPrice, BigDecimal trailingOffset) {
+        if (id != null) {
+            throw new IllegalStateException("Trigger can only be armed before trade " + id + " is saved");
+        }
+        this.status = OrderStatus.TRIGGER_PENDING.name();
+        this.triggerPrice = triggerPrice;
+        this.trailingOffset = trailingOffset;
+    }
+    
+    /**
+     * Sets the status of a detached copy rebuilt from a record of what already happened (an
+     * archive file or the journal) without checking the lifecycle. Rows loaded from the table
+     * carry a version and are rejected, so live changes always go through transitionTo.
+     */
+    public void restoreStatus(String status) {
+        if (version != null) {
+            throw new IllegalStateException("Status of persisted trade " + id + " changes through transitionTo");
+        }
+        this.status = status;
+    }
+    
+    /**
+     * Moves to {@code target}, rejecting transitions the order lifecycle does not allow,
+     * e.g. a late fill arriving for an order that was already cancelled.
+     */
+    public void transitionTo(OrderStatus target) {
+        OrderStatus current = getOrderStatus();
+        if (!current.canTransitionTo(target)) {
+            throw new IllegalStateException("Illegal order transition " + current + " -> " + target + " for trade " + id);
+        }
+        this.status = target.name();
+    }
+    
+    @JsonIgnore
+    public OrderStatus getOrderStatus() {
+        return OrderStatus.valueOf(status);
+    }
+    
     public void setFee(BigDecimal feeAmount, String feeCurrency) {
         this.feeAmount = feeAmount;
         this.feeCurrency = feeCurrency;
@@ -139,6 +241,41 @@ public class Trade {
         return "PENDING".equals(status);
     }
     
+    public boolean isPartiallyFilled() {
+        return "PARTIALLY_FILLED".equals(status);
+    }
+    
+    public boolean isAwaitingTrigger() {
+        return "TRIGGER_PENDING".equals(status);
+    }
+    
+    // Fired trigger claimed by the executor whose exchange order is not recorded yet
+    public boolean isBeingPlaced() {
+        return isPending() && triggeredAt != null && exchangeOrderId == null;
+    }
+    
+    public boolean isConditional() {
+        return triggerPrice != null;
+    }
+    
+    // Order type actually sent to the exchange once a conditional order fires
+    public String getExecutionOrderType() {
+        return executionOrderType(orderType);
+    }
+    
+    public static String executionOrderType(String orderType) {
+        switch (orderType) {
+            case "STOP_LIMIT":
+                return "LIMIT";
+            case "STOP_MARKET":
+            case "TAKE_PROFIT":
+            case "TRAILING_STOP":
+                return "MARKET";
+            default:
+                return orderType;
+        }
+    }
+    
     public boolean isFilled() {
         return "FILLED".equals(status);
     }
@@ -160,6 +297,20 @@ public class Trade {
         this.updatedAt = LocalDateTime.now();
     }
     
+    @PostLoad
+    public void syncPersistedState() {
+        this.persistedStatus = status;
+        this.persistedTotalCost = totalCost;
+    }
+    
+    public String getPersistedStatus() {
+        return persistedStatus;
+    }
+    
+    public BigDecimal getPersistedTotalCost() {
+        return persistedTotalCost;
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -269,7 +420,8 @@ public class Trade {
         return status;
     }
     
-    public void setStatus(String status) {
+    // Field access for JPA; status changes go through transitionTo, armTrigger or restoreStatus
+    private void setStatus(String status) {
         this.status = status;
     }
     
@@ -320,4 +472,32 @@ public class Trade {
     public void setCancelledAt(LocalDateTime cancelledAt) {
         this.cancelledAt = cancelledAt;
     }
+    
+    public BigDecimal getTriggerPrice() {
+        return triggerPrice;
+    }
+    
+    public void setTriggerPrice(BigDecimal triggerPrice) {
+        this.triggerPrice = triggerPrice;
+    }
+    
+    public BigDecimal getTrailingOffset() {
+        return trailingOffset;
+    }
+    
+    public void setTrailingOffset(BigDecimal trailingOffset) {
+        this.trailingOffset = trailingOffset;
+    }
+    
+    public LocalDateTime getTriggeredAt() {
+        return triggeredAt;
+    }
+    
+    public void setTriggeredAt(LocalDateTime triggeredAt) {
+        this.triggeredAt = triggeredAt;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
 }
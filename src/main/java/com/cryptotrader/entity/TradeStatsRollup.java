@@ -0,0 +1,109 @@
+package com.cryptotrader.entity;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "trade_stats_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_trade_stats_rollups_user_exchange_date", columnNames = {"user_id", "exchange", "trade_date"})
+})
+public class TradeStatsRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private String exchange;
+    
+    @Column(name = "trade_date", nullable = false)
+    private LocalDate tradeDate;
+    
+    @Column(name = "total_trades", nullable = false)
+    private long totalTrades;
+    
+    @Column(name = "filled_trades", nullable = false)
+    private long filledTrades;
+    
+    @Column(name = "failed_trades", nullable = false)
+    private long failedTrades;
+    
+    @Column(name = "cancelled_trades", nullable = false)
+    private long cancelledTrades;
+    
+    @Column(name = "open_trades", nullable = false)
+    private long openTrades; // TRIGGER_PENDING, PENDING, PARTIALLY_FILLED
+    
+    @Column(name = "filled_volume", nullable = false, precision = 28, scale = 8)
+    private BigDecimal filledVolume = BigDecimal.ZERO;
+    
+    @Column(name = "buy_volume", nullable = false, precision = 28, scale = 8)
+    private BigDecimal buyVolume = BigDecimal.ZERO;
+    
+    @Column(name = "sell_volume", nullable = false, precision = 28, scale = 8)
+    private BigDecimal sellVolume = BigDecimal.ZERO;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Rows are written through TradeStatsService upserts; the entity is read-only
+    public TradeStatsRollup() {}
+    
+    // Getters
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getExchange() {
+        return exchange;
+    }
+    
+    public LocalDate getTradeDate() {
+        return tradeDate;
+    }
+    
+    public long getTotalTrades() {
+        return totalTrades;
+    }
+    
+    public long getFilledTrades() {
+        return filledTrades;
+    }
+    
+    public long getFailedTrades() {
+        return failedTrades;
+    }
+    
+    public long getCancelledTrades() {
+        return cancelledTrades;
+    }
+    
+    public long getOpenTrades() {
+        return openTrades;
+    }
+    
+    public BigDecimal getFilledVolume() {
+        return filledVolume;
+    }
+    
+    public BigDecimal getBuyVolume() {
+        return buyVolume;
+    }
+    
+    public BigDecimal getSellVolume() {
+        return sellVolume;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
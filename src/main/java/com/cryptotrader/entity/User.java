@@ -18,7 +18,8 @@ import java.util.List;
 public class User implements UserDetails {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Username is required")
@@ -52,6 +53,10 @@ public class User implements UserDetails {
     @Column(name = "locked_until")
     private LocalDateTime lockedUntil;
     
+    // Carried in issued tokens; bumping it revokes every token issued before
+    @Column(name = "security_version", nullable = false)
+    private int securityVersion;
+    
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<ApiKey> apiKeys;
@@ -72,6 +77,18 @@ public class User implements UserDetails {
         this.password = password;
     }
     
+    /**
+     * Request principal rebuilt from verified token claims. Not loaded from the database: only
+     * the id, username and security version are set, which is what request handling reads.
+     */
+    public static User fromTokenClaims(Long id, String username, int securityVersion) {
+        User user = new User();
+        user.id = id;
+        user.username = username;
+        user.securityVersion = securityVersion;
+        return user;
+    }
+    
     // UserDetails implementation
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -109,16 +126,9 @@ public class User implements UserDetails {
     }
     
     // Business methods
-    public void incrementFailedLoginAttempts() {
-        this.failedLoginAttempts++;
-        if (this.failedLoginAttempts >= 5) {
-            this.lockedUntil = LocalDateTime.now().plusMinutes(15);
-        }
-    }
-    
-    public void resetFailedLoginAttempts() {
-        this.failedLoginAttempts = 0;
-        this.lockedUntil = null;
+    // Failed login counters and lockouts are maintained by LoginAttemptService
+    public void invalidateTokens() {
+        this.securityVersion++;
     }
     
     @PreUpdate
@@ -148,9 +158,17 @@ public class User implements UserDetails {
     }
     
     public void setPassword(String password) {
+        if (this.password != null && !this.password.equals(password)) {
+            invalidateTokens();
+        }
         this.password = password;
     }
     
+    // Same password under a stronger hash, so issued tokens stay valid
+    public void upgradePasswordHash(String encodedPassword) {
+        this.password = encodedPassword;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -172,6 +190,9 @@ public class User implements UserDetails {
     }
     
     public void setIsActive(Boolean isActive) {
+        if (Boolean.TRUE.equals(this.isActive) && !Boolean.TRUE.equals(isActive)) {
+            invalidateTokens();
+        }
         this.isActive = isActive;
     }
     
@@ -188,9 +209,16 @@ public class User implements UserDetails {
     }
     
     public void setLockedUntil(LocalDateTime lockedUntil) {
+        if (lockedUntil != null && lockedUntil.isAfter(LocalDateTime.now())) {
+            invalidateTokens();
+        }
         this.lockedUntil = lockedUntil;
     }
     
+    public int getSecurityVersion() {
+        return securityVersion;
+    }
+    
     public List<ApiKey> getApiKeys() {
         return apiKeys;
     }
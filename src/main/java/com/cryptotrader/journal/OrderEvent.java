@@ -0,0 +1,245 @@
+package com.cryptotrader.journal;
+
+import com.cryptotrader.archive.TradeArchiveFile;
+import com.cryptotrader.entity.OrderStatus;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One journaled order event. Events built from a {@link Trade} carry its full current state;
+ * events raised without the entity at hand (e.g. paper fills) carry only the fields they
+ * change. Null fields are not written, and replay only applies the fields that are present.
+ *
+ * The sequence number is assigned by the journal writer, so it is 0 until the event has been
+ * read back from disk.
+ */
+public final class OrderEvent {
+
+    private final long sequence;
+    private final long timestampMicros;
+    private final OrderEventType type;
+    private final long tradeId;
+    private final Long userId;
+    private final String exchange;
+    private final String symbol;
+    private final String orderType;
+    private final String side;
+    private final BigDecimal amount;
+    private final BigDecimal price;
+    private final BigDecimal triggerPrice;
+    private final String exchangeOrderId;
+    private final BigDecimal filledAmount;
+    private final BigDecimal averagePrice;
+    private final BigDecimal totalCost;
+    private final BigDecimal feeAmount;
+    private final String feeCurrency;
+    private final String message;
+
+    public OrderEvent(long sequence, long timestampMicros, OrderEventType type, long tradeId, Long userId,
+                      String exchange, String symbol, String orderType, String side, BigDecimal amount,
+                      BigDecimal price, BigDecimal triggerPrice, String exchangeOrderId, BigDecimal filledAmount,
+                      BigDecimal averagePrice, BigDecimal totalCost, BigDecimal feeAmount, String feeCurrency,
+                      String message) {
+        this.sequence = sequence;
+        this.timestampMicros = timestampMicros;
+        this.type = type;
+        this.tradeId = tradeId;
+        this.userId = userId;
+        this.exchange = exchange;
+        this.symbol = symbol;
+        this.orderType = orderType;
+        this.side = side;
+        this.amount = amount;
+        this.price = price;
+        this.triggerPrice = triggerPrice;
+        this.exchangeOrderId = exchangeOrderId;
+        this.filledAmount = filledAmount;
+        this.averagePrice = averagePrice;
+        this.totalCost = totalCost;
+        this.feeAmount = feeAmount;
+        this.feeCurrency = feeCurrency;
+        this.message = message;
+    }
+
+    /**
+     * Snapshot of the trade as it is now. Only the user id is read, which does not initialize
+     * a lazy user proxy.
+     */
+    public static OrderEvent of(OrderEventType type, Trade trade) {
+        return new OrderEvent(0, nowMicros(), type, trade.getId(),
+                trade.getUser() != null ? trade.getUser().getId() : null,
+                trade.getExchange(), trade.getSymbol(), trade.getOrderType(), trade.getSide(), trade.getAmount(),
+                trade.getPrice(), trade.getTriggerPrice(), trade.getExchangeOrderId(), trade.getFilledAmount(),
+                trade.getAveragePrice(), trade.getTotalCost(), trade.getFeeAmount(), trade.getFeeCurrency(),
+                trade.getErrorMessage());
+    }
+
+    public static OrderEvent fill(long tradeId, Long userId, boolean complete, BigDecimal filledAmount,
+                                  BigDecimal averagePrice, BigDecimal totalCost, BigDecimal feeAmount, String feeCurrency) {
+        return new OrderEvent(0, nowMicros(), complete ? OrderEventType.FILLED : OrderEventType.PARTIALLY_FILLED,
+                tradeId, userId, null, null, null, null, null, null, null, null, filledAmount, averagePrice, totalCost,
+                feeAmount, feeCurrency, null);
+    }
+
+    public static OrderEvent failed(long tradeId, Long userId, String message) {
+        return new OrderEvent(0, nowMicros(), OrderEventType.FAILED, tradeId, userId, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, message);
+    }
+
+    // Same local-clock microseconds as the trade timestamps, so replayed times line up with the rows
+    static long nowMicros() {
+        return TradeArchiveFile.toMicros(LocalDateTime.now());
+    }
+
+    /**
+     * Starts the replayed state of a trade from its ACCEPTED event.
+     */
+    public Trade toTrade() {
+        Trade trade = new Trade();
+        trade.setId(tradeId);
+        if (userId != null) {
+            User user = new User();
+            user.setId(userId);
+            trade.setUser(user);
+        }
+        trade.setCreatedAt(getTimestamp());
+        trade.restoreStatus(initialStatus().name());
+        applyTo(trade);
+        return trade;
+    }
+
+    // Status of an order first seen through this event
+    public OrderStatus initialStatus() {
+        if (type == OrderEventType.ACCEPTED || type == OrderEventType.SENT) {
+            return triggerPrice != null && exchangeOrderId == null ? OrderStatus.TRIGGER_PENDING : OrderStatus.PENDING;
+        }
+        return type.getResultingStatus();
+    }
+
+    /**
+     * Folds this event into the replayed state of its trade. The journal is the record of what
+     * happened, so transitions are applied as written rather than validated.
+     */
+    public void applyTo(Trade trade) {
+        if (exchange != null) trade.setExchange(exchange);
+        if (symbol != null) trade.setSymbol(symbol);
+        if (orderType != null) trade.setOrderType(orderType);
+        if (side != null) trade.setSide(side);
+        if (amount != null) trade.setAmount(amount);
+        if (price != null) trade.setPrice(price);
+        if (triggerPrice != null) trade.setTriggerPrice(triggerPrice);
+        if (exchangeOrderId != null) trade.setExchangeOrderId(exchangeOrderId);
+        if (filledAmount != null) trade.setFilledAmount(filledAmount);
+        if (averagePrice != null) trade.setAveragePrice(averagePrice);
+        if (totalCost != null) trade.setTotalCost(totalCost);
+        if (feeAmount != null) trade.setFee(feeAmount, feeCurrency);
+
+        LocalDateTime at = getTimestamp();
+        switch (type) {
+            case ACKED:
+                // A triggered conditional order becomes a regular pending order
+                if (trade.isAwaitingTrigger()) {
+                    trade.setTriggeredAt(at);
+                }
+                break;
+            case FILLED:
+                trade.setExecutedAt(at);
+                break;
+            case CANCELLED:
+                trade.setCancelledAt(at);
+                break;
+            case FAILED:
+                trade.setErrorMessage(message);
+                break;
+            default:
+                break;
+        }
+        if (type.getResultingStatus() != null) {
+            trade.restoreStatus(type.getResultingStatus().name());
+        }
+        trade.setUpdatedAt(at);
+    }
+
+    public LocalDateTime getTimestamp() {
+        return TradeArchiveFile.fromMicros(timestampMicros);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampMicros() {
+        return timestampMicros;
+    }
+
+    public OrderEventType getType() {
+        return type;
+    }
+
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public BigDecimal getTriggerPrice() {
+        return triggerPrice;
+    }
+
+    public String getExchangeOrderId() {
+        return exchangeOrderId;
+    }
+
+    public BigDecimal getFilledAmount() {
+        return filledAmount;
+    }
+
+    public BigDecimal getAveragePrice() {
+        return averagePrice;
+    }
+
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+
+    public BigDecimal getFeeAmount() {
+        return feeAmount;
+    }
+
+    public String getFeeCurrency() {
+        return feeCurrency;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
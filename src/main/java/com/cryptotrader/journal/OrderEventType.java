@@ -0,0 +1,50 @@
+package com.cryptotrader.journal;
+
+import com.cryptotrader.entity.OrderStatus;
+
+/**
+ * Order lifecycle events recorded in the journal. Codes are part of the on-disk format
+ * and must never be reused.
+ */
+public enum OrderEventType {
+    ACCEPTED(1, null),                           // trade row created (or conditional order armed)
+    SENT(2, null),                               // about to be submitted to the exchange
+    ACKED(3, OrderStatus.PENDING),               // exchange returned an order id
+    PARTIALLY_FILLED(4, OrderStatus.PARTIALLY_FILLED),
+    FILLED(5, OrderStatus.FILLED),
+    CANCELLED(6, OrderStatus.CANCELLED),
+    FAILED(7, OrderStatus.FAILED);
+
+    private static final OrderEventType[] BY_CODE = new OrderEventType[8];
+
+    static {
+        for (OrderEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+    private final OrderStatus resultingStatus;
+
+    OrderEventType(int code, OrderStatus resultingStatus) {
+        this.code = (byte) code;
+        this.resultingStatus = resultingStatus;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    // Status the order moves to, or null when the event leaves it unchanged
+    public OrderStatus getResultingStatus() {
+        return resultingStatus;
+    }
+
+    public static OrderEventType fromCode(byte code) {
+        OrderEventType type = code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown order event code: " + code);
+        }
+        return type;
+    }
+}
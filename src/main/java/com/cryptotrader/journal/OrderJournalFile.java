@@ -0,0 +1,279 @@
+package com.cryptotrader.journal;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk format of the order event journal.
+ *
+ * The journal is a directory of fixed-size, preallocated segment files named after the
+ * sequence of their first record. A segment starts with a 16 byte header (magic, version,
+ * first sequence) followed by records:
+ *
+ * <pre>
+ * int length | int crc32c(payload) | payload
+ * payload = long sequence | long timestamp micros | byte type | long trade id | short field mask | fields...
+ * </pre>
+ *
+ * Optional fields are only written when their mask bit is set: strings as short length plus
+ * UTF-8 bytes, decimals as scale plus unscaled bytes. The length is written last, so a zero
+ * length marks the end of the data and a record torn by a crash fails its checksum.
+ */
+public final class OrderJournalFile {
+
+    public static final int MAGIC = 0x4f4a4e4c; // "OJNL"
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".journal";
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_HEADER_SIZE = 8;
+    public static final int MAX_PAYLOAD_SIZE = 16 * 1024;
+
+    private static final int MAX_TEXT_BYTES = 4096;
+
+    private static final int USER_ID = 1;
+    private static final int EXCHANGE = 1 << 1;
+    private static final int SYMBOL = 1 << 2;
+    private static final int ORDER_TYPE = 1 << 3;
+    private static final int SIDE = 1 << 4;
+    private static final int AMOUNT = 1 << 5;
+    private static final int PRICE = 1 << 6;
+    private static final int TRIGGER_PRICE = 1 << 7;
+    private static final int EXCHANGE_ORDER_ID = 1 << 8;
+    private static final int FILLED_AMOUNT = 1 << 9;
+    private static final int AVERAGE_PRICE = 1 << 10;
+    private static final int TOTAL_COST = 1 << 11;
+    private static final int FEE_AMOUNT = 1 << 12;
+    private static final int FEE_CURRENCY = 1 << 13;
+    private static final int MESSAGE = 1 << 14;
+
+    private OrderJournalFile() {
+    }
+
+    public static Path segmentPath(Path dir, long firstSequence) {
+        return dir.resolve(String.format("%020d%s", firstSequence, EXTENSION));
+    }
+
+    // Segment files in sequence order
+    public static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public static void writeHeader(ByteBuffer segment, long firstSequence) {
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putLong(8, firstSequence);
+    }
+
+    public static long readHeader(ByteBuffer segment, Path path) throws IOException {
+        if (segment.limit() < HEADER_SIZE || segment.getInt(0) != MAGIC) {
+            throw new IOException("Not an order journal segment: " + path);
+        }
+        if (segment.getInt(4) != VERSION) {
+            throw new IOException("Unsupported order journal version " + segment.getInt(4) + " in " + path);
+        }
+        return segment.getLong(8);
+    }
+
+    /**
+     * Encodes the payload of one record into {@code out}, from position 0.
+     */
+    public static void encode(ByteBuffer out, long sequence, OrderEvent event) {
+        out.clear();
+        out.putLong(sequence);
+        out.putLong(event.getTimestampMicros());
+        out.put(event.getType().getCode());
+        out.putLong(event.getTradeId());
+
+        int maskPosition = out.position();
+        out.putShort((short) 0);
+        int mask = 0;
+
+        if (event.getUserId() != null) { mask |= USER_ID; out.putLong(event.getUserId()); }
+        mask |= putText(out, EXCHANGE, event.getExchange());
+        mask |= putText(out, SYMBOL, event.getSymbol());
+        mask |= putText(out, ORDER_TYPE, event.getOrderType());
+        mask |= putText(out, SIDE, event.getSide());
+        mask |= putDecimal(out, AMOUNT, event.getAmount());
+        mask |= putDecimal(out, PRICE, event.getPrice());
+        mask |= putDecimal(out, TRIGGER_PRICE, event.getTriggerPrice());
+        mask |= putText(out, EXCHANGE_ORDER_ID, event.getExchangeOrderId());
+        mask |= putDecimal(out, FILLED_AMOUNT, event.getFilledAmount());
+        mask |= putDecimal(out, AVERAGE_PRICE, event.getAveragePrice());
+        mask |= putDecimal(out, TOTAL_COST, event.getTotalCost());
+        mask |= putDecimal(out, FEE_AMOUNT, event.getFeeAmount());
+        mask |= putText(out, FEE_CURRENCY, event.getFeeCurrency());
+        mask |= putText(out, MESSAGE, event.getMessage());
+
+        out.putShort(maskPosition, (short) mask);
+        out.flip();
+    }
+
+    public static OrderEvent decode(ByteBuffer in) {
+        long sequence = in.getLong();
+        long timestampMicros = in.getLong();
+        OrderEventType type = OrderEventType.fromCode(in.get());
+        long tradeId = in.getLong();
+        int mask = in.getShort() & 0xffff;
+
+        Long userId = (mask & USER_ID) != 0 ? in.getLong() : null;
+        String exchange = getText(in, mask, EXCHANGE);
+        String symbol = getText(in, mask, SYMBOL);
+        String orderType = getText(in, mask, ORDER_TYPE);
+        String side = getText(in, mask, SIDE);
+        BigDecimal amount = getDecimal(in, mask, AMOUNT);
+        BigDecimal price = getDecimal(in, mask, PRICE);
+        BigDecimal triggerPrice = getDecimal(in, mask, TRIGGER_PRICE);
+        String exchangeOrderId = getText(in, mask, EXCHANGE_ORDER_ID);
+        BigDecimal filledAmount = getDecimal(in, mask, FILLED_AMOUNT);
+        BigDecimal averagePrice = getDecimal(in, mask, AVERAGE_PRICE);
+        BigDecimal totalCost = getDecimal(in, mask, TOTAL_COST);
+        BigDecimal feeAmount = getDecimal(in, mask, FEE_AMOUNT);
+        String feeCurrency = getText(in, mask, FEE_CURRENCY);
+        String message = getText(in, mask, MESSAGE);
+
+        return new OrderEvent(sequence, timestampMicros, type, tradeId, userId, exchange, symbol, orderType, side,
+                amount, price, triggerPrice, exchangeOrderId, filledAmount, averagePrice, totalCost, feeAmount,
+                feeCurrency, message);
+    }
+
+    public static int checksum(ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Offset just past the last intact record of a segment, stopping at the first zero length
+     * or checksum mismatch. {@code visitor} receives each intact record in order.
+     */
+    public static int scan(ByteBuffer segment, Consumer<OrderEvent> visitor) {
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= segment.limit()) {
+            int length = segment.getInt(position);
+            if (length <= 0 || length > MAX_PAYLOAD_SIZE || position + RECORD_HEADER_SIZE + length > segment.limit()) {
+                break;
+            }
+
+            ByteBuffer payload = segment.duplicate();
+            payload.position(position + RECORD_HEADER_SIZE).limit(position + RECORD_HEADER_SIZE + length);
+            if (checksum(payload) != segment.getInt(position + 4)) {
+                break;
+            }
+
+            if (visitor != null) {
+                visitor.accept(decode(payload.slice()));
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /**
+     * Feeds every event with a sequence of at least {@code fromSequence} to {@code consumer},
+     * in order. Returns the last sequence delivered, or {@code fromSequence - 1} if none was.
+     */
+    public static long replay(Path dir, long fromSequence, Consumer<OrderEvent> consumer) throws IOException {
+        List<Path> segments = segments(dir);
+        long[] last = { fromSequence - 1 };
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            // Segments wholly before the start are skipped by the next segment's first sequence
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                readHeader(segment, path);
+                scan(segment, event -> {
+                    if (event.getSequence() >= fromSequence) {
+                        consumer.accept(event);
+                        last[0] = event.getSequence();
+                    }
+                });
+            }
+        }
+        return last[0];
+    }
+
+    /**
+     * Deletes the segments whose records all precede {@code sequence}. The newest segment is
+     * always kept, since the writer appends to it. Returns the number of segments deleted.
+     */
+    public static int trimBefore(Path dir, long sequence) throws IOException {
+        List<Path> segments = segments(dir);
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= sequence; i++) {
+            Files.deleteIfExists(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    public static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+    }
+
+    private static int putText(ByteBuffer out, int bit, String value) {
+        if (value == null) {
+            return 0;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_TEXT_BYTES);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+        return bit;
+    }
+
+    private static String getText(ByteBuffer in, int mask, int bit) {
+        if ((mask & bit) == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[in.getShort() & 0xffff];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int putDecimal(ByteBuffer out, int bit, BigDecimal value) {
+        if (value == null) {
+            return 0;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.putShort((short) value.scale());
+        out.put((byte) unscaled.length);
+        out.put(unscaled);
+        return bit;
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer in, int mask, int bit) {
+        if ((mask & bit) == 0) {
+            return null;
+        }
+        int scale = in.getShort();
+        byte[] unscaled = new byte[in.get() & 0xff];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
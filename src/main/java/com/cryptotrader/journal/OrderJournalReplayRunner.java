@@ -0,0 +1,169 @@
+package com.cryptotrader.journal;
+
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.repository.TradeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Order journal replay tool, active under the "journal-replay" profile:
+ *
+ * <pre>
+ * java -jar app.jar --spring.profiles.active=prod,journal-replay --spring.main.web-application-type=none --mode=print --from=1
+ * java -jar app.jar --spring.profiles.active=prod,journal-replay --spring.main.web-application-type=none --mode=rebuild [--apply]
+ * </pre>
+ *
+ * "print" writes events from the given sequence as NDJSON to stdout for downstream consumers.
+ * "rebuild" folds the journal into per-trade state and reports trade rows that disagree with it,
+ * e.g. fills lost from the write-behind buffer in a crash; with --apply those rows are updated.
+ * Trades no longer in the table (archived) are skipped.
+ */
+@Component
+@Profile("journal-replay")
+public class OrderJournalReplayRunner implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${app.journal.dir:data/journal}")
+    private String journalDir;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String mode = option(args, "mode", "print");
+        long from = Long.parseLong(option(args, "from", "1"));
+        int exitCode = 0;
+
+        try {
+            if ("rebuild".equals(mode)) {
+                rebuild(from, args.containsOption("apply"));
+            } else {
+                print(from);
+            }
+        } catch (Exception e) {
+            System.err.println("Journal replay failed: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+
+    private void print(long from) throws Exception {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        long last = OrderJournalFile.replay(Paths.get(journalDir), from, event -> {
+            try {
+                out.write(objectMapper.writeValueAsString(event));
+                out.write('\n');
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        out.flush();
+        System.err.printf("Replayed events %d..%d%n", from, last);
+    }
+
+    private void rebuild(long from, boolean apply) throws Exception {
+        Map<Long, Trade> journaled = new LinkedHashMap<>();
+        long last = OrderJournalFile.replay(Paths.get(journalDir), from, event -> {
+            Trade state = journaled.get(event.getTradeId());
+            if (state == null) {
+                journaled.put(event.getTradeId(), event.toTrade());
+            } else {
+                event.applyTo(state);
+            }
+        });
+        System.out.printf("Replayed events %d..%d covering %d trades%n", from, last, journaled.size());
+
+        int[] counts = new int[3]; // diverged, missing, updated
+        List<Long> ids = new ArrayList<>(journaled.keySet());
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Trade> rows = tradeRepository.findAllById(batch);
+                counts[1] += batch.size() - rows.size();
+
+                for (Trade row : rows) {
+                    Trade state = journaled.get(row.getId());
+                    if (matches(row, state)) {
+                        continue;
+                    }
+                    counts[0]++;
+                    System.out.printf("Trade %d: table %s %s, journal %s %s%n", row.getId(), row.getStatus(),
+                            row.getFilledAmount(), state.getStatus(), state.getFilledAmount());
+                    if (apply && copyState(state, row)) {
+                        counts[2]++;
+                    }
+                }
+            });
+        }
+
+        System.out.printf("%d trades diverged, %d not in the table, %d updated%n", counts[0], counts[1], counts[2]);
+    }
+
+    private static boolean matches(Trade row, Trade state) {
+        return Objects.equals(row.getStatus(), state.getStatus())
+                && compare(row.getFilledAmount(), state.getFilledAmount())
+                && Objects.equals(row.getExchangeOrderId(), state.getExchangeOrderId());
+    }
+
+    private static boolean compare(java.math.BigDecimal left, java.math.BigDecimal right) {
+        return left == null || right == null ? left == right : left.compareTo(right) == 0;
+    }
+
+    // The row still only moves along the order lifecycle; a divergence the lifecycle forbids is reported, not applied
+    private static boolean copyState(Trade state, Trade row) {
+        if (!Objects.equals(row.getStatus(), state.getStatus())) {
+            try {
+                row.transitionTo(state.getOrderStatus());
+            } catch (IllegalStateException e) {
+                System.out.printf("Trade %d: not updated, %s%n", row.getId(), e.getMessage());
+                return false;
+            }
+        }
+        row.setExchangeOrderId(state.getExchangeOrderId());
+        row.setFilledAmount(state.getFilledAmount());
+        row.setAveragePrice(state.getAveragePrice());
+        row.setTotalCost(state.getTotalCost());
+        row.setFee(state.getFeeAmount(), state.getFeeCurrency());
+        row.setErrorMessage(state.getErrorMessage());
+        row.setExecutedAt(state.getExecutedAt());
+        row.setCancelledAt(state.getCancelledAt());
+        row.setTriggeredAt(state.getTriggeredAt());
+        return true;
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        return args.containsOption(name) ? args.getOptionValues(name).get(0) : defaultValue;
+    }
+}
@@ -0,0 +1,90 @@
+package com.cryptotrader.journal;
+
+import com.cryptotrader.entity.OrderStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable in-memory state of one open order, folded from its journal events. Each event
+ * produces a new instance, so readers never see a half-applied update.
+ */
+public final class OrderState {
+
+    private final long tradeId;
+    private final long userId;
+    private final OrderStatus status;
+    private final BigDecimal filledAmount;
+    private final BigDecimal averagePrice;
+    private final String exchangeOrderId;
+    private final long lastSequence;
+    private final long updatedAtMicros;
+
+    public OrderState(long tradeId, long userId, OrderStatus status, BigDecimal filledAmount, BigDecimal averagePrice,
+                      String exchangeOrderId, long lastSequence, long updatedAtMicros) {
+        this.tradeId = tradeId;
+        this.userId = userId;
+        this.status = status;
+        this.filledAmount = filledAmount;
+        this.averagePrice = averagePrice;
+        this.exchangeOrderId = exchangeOrderId;
+        this.lastSequence = lastSequence;
+        this.updatedAtMicros = updatedAtMicros;
+    }
+
+    // State of an order first seen through this event
+    public static OrderState start(long sequence, OrderEvent event) {
+        return new OrderState(event.getTradeId(), event.getUserId(), event.initialStatus(), event.getFilledAmount(),
+                event.getAveragePrice(), event.getExchangeOrderId(), sequence, event.getTimestampMicros());
+    }
+
+    /**
+     * Returns the state after {@code event}, or throws IllegalStateException when the event
+     * would move the order along a transition {@link OrderStatus} does not allow.
+     */
+    public OrderState apply(long sequence, OrderEvent event) {
+        OrderStatus target = event.getType().getResultingStatus();
+        if (target == null) {
+            target = status;
+        }
+        if (!status.canTransitionTo(target)) {
+            throw new IllegalStateException("Illegal order transition " + status + " -> " + target + " for trade " + tradeId);
+        }
+        return new OrderState(tradeId, userId, target,
+                event.getFilledAmount() != null ? event.getFilledAmount() : filledAmount,
+                event.getAveragePrice() != null ? event.getAveragePrice() : averagePrice,
+                event.getExchangeOrderId() != null ? event.getExchangeOrderId() : exchangeOrderId,
+                sequence, event.getTimestampMicros());
+    }
+
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getFilledAmount() {
+        return filledAmount;
+    }
+
+    public BigDecimal getAveragePrice() {
+        return averagePrice;
+    }
+
+    public String getExchangeOrderId() {
+        return exchangeOrderId;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getUpdatedAtMicros() {
+        return updatedAtMicros;
+    }
+}
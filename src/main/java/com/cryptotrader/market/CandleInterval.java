@@ -0,0 +1,105 @@
+package com.cryptotrader.market;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Candle intervals maintained incrementally. Any other interval that is a whole multiple of
+ * one of these is served by downsampling the largest one that divides it.
+ */
+public enum CandleInterval {
+    S1("1s", 1_000L, 3_600),            // last hour
+    M1("1m", 60_000L, 10_080),          // last week
+    M5("5m", 300_000L, 8_640),          // last 30 days
+    H1("1h", 3_600_000L, 8_760),        // last year
+    D1("1d", 86_400_000L, 3_650);       // last 10 years
+
+    private final String label;
+    private final long millis;
+    private final int capacity;
+
+    CandleInterval(String label, long millis, int capacity) {
+        this.label = label;
+        this.millis = millis;
+        this.capacity = capacity;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    // Bars kept in memory; older ones remain only in the local store
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Open time (epoch millis, UTC aligned) of the bar containing the timestamp
+    public long bucketOf(long timestampMillis) {
+        return timestampMillis - Math.floorMod(timestampMillis, millis);
+    }
+
+    public static Optional<CandleInterval> of(String label) {
+        for (CandleInterval interval : values()) {
+            if (interval.label.equalsIgnoreCase(label)) {
+                return Optional.of(interval);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Largest maintained interval the requested length is a whole multiple of, or null
+    public static CandleInterval baseFor(long millis) {
+        CandleInterval[] intervals = values();
+        for (int i = intervals.length - 1; i >= 0; i--) {
+            if (millis % intervals[i].millis == 0) {
+                return intervals[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses interval specs such as "1s", "15m", "4h", "1d" or "1w" into milliseconds.
+     */
+    public static long parseMillis(String spec) {
+        String value = spec == null ? "" : spec.trim().toLowerCase(Locale.ROOT);
+        if (value.length() < 2) {
+            throw new IllegalArgumentException("Invalid candle interval: " + spec);
+        }
+
+        long unit;
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                unit = 1_000L;
+                break;
+            case 'm':
+                unit = 60_000L;
+                break;
+            case 'h':
+                unit = 3_600_000L;
+                break;
+            case 'd':
+                unit = 86_400_000L;
+                break;
+            case 'w':
+                unit = 7 * 86_400_000L;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid candle interval: " + spec);
+        }
+
+        try {
+            long count = Long.parseLong(value.substring(0, value.length() - 1));
+            if (count <= 0 || count > 1000) {
+                throw new IllegalArgumentException("Invalid candle interval: " + spec);
+            }
+            return count * unit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid candle interval: " + spec);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.cryptotrader.market;
+
+/**
+ * The most recent bars of one interval for one (exchange, symbol), in a preallocated ring of
+ * primitive arrays. Ticks update the newest bar in place, so ingestion does not allocate, and
+ * range reads binary search the ring by open time.
+ */
+public final class CandleSeries {
+
+    private final CandleInterval interval;
+    private final int capacity;
+    private final long[] time;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+
+    private int head = -1; // physical index of the newest bar
+    private int size;
+
+    // Open time of the newest bar written to the local store
+    private volatile long persistedThrough = Long.MIN_VALUE;
+
+    public CandleSeries(CandleInterval interval) {
+        this.interval = interval;
+        this.capacity = interval.getCapacity();
+        this.time = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    /**
+     * Folds a trade or price tick into its bar. Returns false for ticks that belong to a bar
+     * that has already closed; those are dropped rather than rewriting persisted history.
+     */
+    public synchronized boolean onTick(long timestampMillis, double price, double quantity) {
+        long bucket = interval.bucketOf(timestampMillis);
+        if (size > 0) {
+            long newest = time[head];
+            if (bucket == newest) {
+                high[head] = Math.max(high[head], price);
+                low[head] = Math.min(low[head], price);
+                close[head] = price;
+                volume[head] += quantity;
+                return true;
+            }
+            if (bucket < newest) {
+                return false;
+            }
+        }
+        append(bucket, price, price, price, price, quantity);
+        return true;
+    }
+
+    // Loads a stored bar; a repeated open time replaces the previous copy (last write wins)
+    public synchronized void restore(long t, double o, double h, double l, double c, double v) {
+        if (size > 0 && t <= time[head]) {
+            if (t == time[head]) {
+                set(head, t, o, h, l, c, v);
+            }
+            return;
+        }
+        append(t, o, h, l, c, v);
+    }
+
+    /**
+     * Bars opening in [from, to), at most the most recent {@code limit} of them.
+     */
+    public synchronized Candles range(long from, long to, int limit) {
+        int end = lowerBound(to);
+        int start = Math.max(lowerBound(from), end - limit);
+        return copy(start, end);
+    }
+
+    /**
+     * Bars not yet written to the local store. The newest bar is still open and is only
+     * included when {@code includeOpen} is set, e.g. at shutdown.
+     */
+    public synchronized Candles unpersisted(boolean includeOpen) {
+        int end = includeOpen ? size : Math.max(size - 1, 0);
+        return copy(Math.min(lowerBound(persistedThrough + 1), end), end);
+    }
+
+    public void markPersisted(long openTime) {
+        persistedThrough = openTime;
+    }
+
+    private Candles copy(int start, int end) {
+        Candles out = new Candles(end - start);
+        for (int i = start; i < end; i++) {
+            int p = physical(i);
+            out.add(time[p], open[p], high[p], low[p], close[p], volume[p]);
+        }
+        return out;
+    }
+
+    private void append(long t, double o, double h, double l, double c, double v) {
+        head = (head + 1) % capacity;
+        set(head, t, o, h, l, c, v);
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    private void set(int p, long t, double o, double h, double l, double c, double v) {
+        time[p] = t;
+        open[p] = o;
+        high[p] = h;
+        low[p] = l;
+        close[p] = c;
+        volume[p] = v;
+    }
+
+    // Logical index 0 is the oldest bar still in the ring
+    private int physical(int logical) {
+        return (head - size + 1 + logical + capacity) % capacity;
+    }
+
+    // Logical index of the first bar opening at or after t
+    private int lowerBound(long t) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time[physical(mid)] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
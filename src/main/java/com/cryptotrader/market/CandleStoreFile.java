@@ -0,0 +1,151 @@
+package com.cryptotrader.market;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only local store for closed candles, one file per (exchange, symbol, interval).
+ *
+ * Layout (little endian): a 16 byte header of magic, version and interval millis, then fixed
+ * 48 byte records of open time, open, high, low, close and volume. Fixed records make the
+ * tail cheap to locate on startup; a record torn by a crash is cut off before the next append.
+ * A bar may appear twice (e.g. written open at shutdown, then again once closed); readers keep
+ * the last copy. Only the newest capacity bars can ever be served, so files are compacted to
+ * those once they grow past twice that.
+ */
+public final class CandleStoreFile {
+
+    public static final int MAGIC = 0x434e444c; // "CNDL"
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".candles";
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = Long.BYTES + 5 * Double.BYTES;
+
+    private CandleStoreFile() {
+    }
+
+    public static Path path(Path dir, CandleInterval interval) {
+        return dir.resolve(interval.getLabel() + EXTENSION);
+    }
+
+    public static void append(Path path, CandleInterval interval, Candles candles) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(interval.getMillis()).flip();
+                channel.truncate(0);
+                writeFully(channel, header, 0);
+                size = HEADER_SIZE;
+            }
+
+            long end = HEADER_SIZE + (size - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+            if (end != size) {
+                channel.truncate(end);
+            }
+
+            ByteBuffer records = ByteBuffer.allocate(candles.size() * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < candles.size(); i++) {
+                records.putLong(candles.timeAt(i))
+                        .putDouble(candles.openAt(i))
+                        .putDouble(candles.highAt(i))
+                        .putDouble(candles.lowAt(i))
+                        .putDouble(candles.closeAt(i))
+                        .putDouble(candles.volumeAt(i));
+            }
+            records.flip();
+            writeFully(channel, records, end);
+        }
+    }
+
+    /**
+     * Restores the newest bars (as many as the series holds) and returns the open time of the
+     * last one, or Long.MIN_VALUE when the file has none.
+     */
+    public static long load(Path path, CandleSeries series) throws IOException {
+        if (!Files.exists(path)) {
+            return Long.MIN_VALUE;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (readFully(channel, header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a candle store file: " + path);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported candle store version: " + header.getInt(4));
+            }
+            if (header.getLong(8) != series.getInterval().getMillis()) {
+                throw new IOException("Candle store interval mismatch: " + path);
+            }
+
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            // One spare record so a duplicated newest bar cannot push a distinct bar out of view
+            long count = Math.min(records, series.getInterval().getCapacity() + 1L);
+            ByteBuffer buffer = ByteBuffer.allocate((int) count * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, buffer, HEADER_SIZE + (records - count) * RECORD_SIZE);
+            buffer.flip();
+
+            long last = Long.MIN_VALUE;
+            while (buffer.remaining() >= RECORD_SIZE) {
+                last = buffer.getLong();
+                series.restore(last, buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                        buffer.getDouble(), buffer.getDouble());
+            }
+            return last;
+        }
+    }
+
+    // Rewrites the file with only its newest capacity records once it holds more than twice that
+    public static boolean compactIfNeeded(Path path, CandleInterval interval) throws IOException {
+        long keep = interval.getCapacity();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            if (records <= 2 * keep) {
+                return false;
+            }
+            buffer = ByteBuffer.allocate(HEADER_SIZE + (int) keep * RECORD_SIZE);
+            buffer.limit(HEADER_SIZE);
+            readFully(channel, buffer, 0);
+            buffer.limit(buffer.capacity());
+            readFully(channel, buffer, HEADER_SIZE + (records - keep) * RECORD_SIZE);
+            buffer.flip();
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, buffer, 0);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,148 @@
+package com.cryptotrader.market;
+
+import java.util.Arrays;
+
+/**
+ * A run of candles in columnar form, oldest first. Serialized as parallel arrays, which keeps
+ * large chart responses compact.
+ */
+public final class Candles {
+
+    private long[] time;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+    private int size;
+
+    public Candles(int capacity) {
+        time = new long[capacity];
+        open = new double[capacity];
+        high = new double[capacity];
+        low = new double[capacity];
+        close = new double[capacity];
+        volume = new double[capacity];
+    }
+
+    public static Candles empty() {
+        return new Candles(0);
+    }
+
+    public void add(long t, double o, double h, double l, double c, double v) {
+        if (size == time.length) {
+            grow();
+        }
+        time[size] = t;
+        open[size] = o;
+        high[size] = h;
+        low[size] = l;
+        close[size] = c;
+        volume[size] = v;
+        size++;
+    }
+
+    /**
+     * Merges candles into bars of {@code intervalMillis} (a multiple of their own interval)
+     * and keeps the most recent {@code limit}.
+     */
+    public Candles resample(long intervalMillis, int limit) {
+        Candles out = new Candles(Math.min(size, limit + 1));
+        for (int i = 0; i < size; i++) {
+            long bucket = time[i] - Math.floorMod(time[i], intervalMillis);
+            int last = out.size - 1;
+            if (last >= 0 && out.time[last] == bucket) {
+                out.high[last] = Math.max(out.high[last], high[i]);
+                out.low[last] = Math.min(out.low[last], low[i]);
+                out.close[last] = close[i];
+                out.volume[last] += volume[i];
+            } else {
+                out.add(bucket, open[i], high[i], low[i], close[i], volume[i]);
+            }
+        }
+        return out.tail(limit);
+    }
+
+    private Candles tail(int limit) {
+        if (size <= limit) {
+            return this;
+        }
+        Candles out = new Candles(limit);
+        int from = size - limit;
+        System.arraycopy(time, from, out.time, 0, limit);
+        System.arraycopy(open, from, out.open, 0, limit);
+        System.arraycopy(high, from, out.high, 0, limit);
+        System.arraycopy(low, from, out.low, 0, limit);
+        System.arraycopy(close, from, out.close, 0, limit);
+        System.arraycopy(volume, from, out.volume, 0, limit);
+        out.size = limit;
+        return out;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, time.length * 2);
+        time = Arrays.copyOf(time, capacity);
+        open = Arrays.copyOf(open, capacity);
+        high = Arrays.copyOf(high, capacity);
+        low = Arrays.copyOf(low, capacity);
+        close = Arrays.copyOf(close, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long lastTime() {
+        return time[size - 1];
+    }
+
+    // Accessors used by the local store; the getters below trim to size for serialization
+    long timeAt(int i) {
+        return time[i];
+    }
+
+    double openAt(int i) {
+        return open[i];
+    }
+
+    double highAt(int i) {
+        return high[i];
+    }
+
+    double lowAt(int i) {
+        return low[i];
+    }
+
+    double closeAt(int i) {
+        return close[i];
+    }
+
+    double volumeAt(int i) {
+        return volume[i];
+    }
+
+    public long[] getTime() {
+        return size == time.length ? time : Arrays.copyOf(time, size);
+    }
+
+    public double[] getOpen() {
+        return size == open.length ? open : Arrays.copyOf(open, size);
+    }
+
+    public double[] getHigh() {
+        return size == high.length ? high : Arrays.copyOf(high, size);
+    }
+
+    public double[] getLow() {
+        return size == low.length ? low : Arrays.copyOf(low, size);
+    }
+
+    public double[] getClose() {
+        return size == close.length ? close : Arrays.copyOf(close, size);
+    }
+
+    public double[] getVolume() {
+        return size == volume.length ? volume : Arrays.copyOf(volume, size);
+    }
+}
@@ -0,0 +1,9 @@
+package com.cryptotrader.portfolio;
+
+/**
+ * How the cost of closed quantity is determined when computing realized PnL.
+ */
+public enum CostMethod {
+    FIFO,     // oldest open lots are closed first
+    AVERAGE   // every unit carries the running average entry price
+}
@@ -0,0 +1,61 @@
+package com.cryptotrader.portfolio;
+
+/**
+ * FIFO queue of open lots (quantity, unit price) in growable ring arrays of primitives. Each
+ * lot is added once and removed once, so closing quantity is O(1) amortized per fill.
+ */
+final class LotQueue {
+
+    private double[] quantity;
+    private double[] price;
+    private int head;
+    private int size;
+
+    LotQueue() {
+        quantity = new double[8];
+        price = new double[8];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(double lotQuantity, double lotPrice) {
+        if (size == quantity.length) {
+            grow();
+        }
+        int tail = (head + size) % quantity.length;
+        quantity[tail] = lotQuantity;
+        price[tail] = lotPrice;
+        size++;
+    }
+
+    double headQuantity() {
+        return quantity[head];
+    }
+
+    double headPrice() {
+        return price[head];
+    }
+
+    // Takes up to the given quantity from the oldest lot, dropping it once used up
+    void reduceHead(double amount, double epsilon) {
+        quantity[head] -= amount;
+        if (quantity[head] <= epsilon) {
+            head = (head + 1) % quantity.length;
+            size--;
+        }
+    }
+
+    private void grow() {
+        double[] newQuantity = new double[quantity.length * 2];
+        double[] newPrice = new double[price.length * 2];
+        for (int i = 0; i < size; i++) {
+            newQuantity[i] = quantity[(head + i) % quantity.length];
+            newPrice[i] = price[(head + i) % price.length];
+        }
+        quantity = newQuantity;
+        price = newPrice;
+        head = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package com.cryptotrader.portfolio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A user's positions, updated incrementally as fills arrive.
+ *
+ * Fills are reported as cumulative totals per order (as trades and journal events carry them),
+ * and the ledger applies only the part it has not seen yet. That makes loading history from
+ * the database and applying live fills safe in either order: an order that was already
+ * partially filled when history was loaded only contributes its remaining quantity later.
+ */
+public final class PnlLedger {
+
+    private final Map<String, Position> positions = new LinkedHashMap<>();
+
+    // Cumulative quantity, cost and fee already applied, for orders that may still fill
+    private final Map<Long, double[]> openOrders = new HashMap<>();
+
+    public synchronized void applyFill(long tradeId, String exchange, String symbol, String side,
+                                       double filledQuantity, double filledCost, double fee, boolean complete) {
+        double[] seen = openOrders.get(tradeId);
+        double quantity = filledQuantity - (seen != null ? seen[0] : 0);
+        double cost = filledCost - (seen != null ? seen[1] : 0);
+        double feeDelta = fee - (seen != null ? seen[2] : 0);
+
+        if (complete) {
+            openOrders.remove(tradeId);
+        } else if (seen == null) {
+            openOrders.put(tradeId, new double[] { filledQuantity, filledCost, fee });
+        } else if (quantity > 0) {
+            seen[0] = filledQuantity;
+            seen[1] = filledCost;
+            seen[2] = fee;
+        }
+
+        if (quantity <= 0) {
+            return;
+        }
+        position(exchange, symbol).apply("BUY".equals(side) ? 1 : -1, quantity, cost / quantity, Math.max(feeDelta, 0));
+    }
+
+    // Orders that closed without a final fill (e.g. cancelled after a partial fill)
+    public synchronized void closeOrder(long tradeId) {
+        openOrders.remove(tradeId);
+    }
+
+    // Positions are read under the ledger lock, so a view never mixes two fills
+    public synchronized <T> List<T> mapPositions(Function<Position, T> mapper) {
+        List<T> result = new ArrayList<>(positions.size());
+        for (Position position : positions.values()) {
+            result.add(mapper.apply(position));
+        }
+        return result;
+    }
+
+    private Position position(String exchange, String symbol) {
+        return positions.computeIfAbsent(exchange + ":" + symbol, key -> new Position(exchange, symbol));
+    }
+}
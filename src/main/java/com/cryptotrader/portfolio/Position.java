@@ -0,0 +1,135 @@
+package com.cryptotrader.portfolio;
+
+/**
+ * One (exchange, symbol) position of a user, tracked under FIFO and average cost at the same
+ * time so either view can be served without replaying fills. Quantities are signed: positive
+ * long, negative short. Prices and PnL are in the symbol's quote currency.
+ */
+public final class Position {
+
+    private static final double EPSILON = 1e-10;
+
+    private final String exchange;
+    private final String symbol;
+
+    // FIFO: open lots all share the sign of the position
+    private final LotQueue lots = new LotQueue();
+    private int lotSide;
+    private double fifoQuantity;
+    private double fifoCost;
+    private double fifoRealized;
+
+    // Average cost
+    private double quantity;
+    private double averagePrice;
+    private double averageRealized;
+
+    private double fees;
+    private long fills;
+
+    Position(String exchange, String symbol) {
+        this.exchange = exchange;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Applies a fill of {@code fillQuantity} (always positive) at {@code price}; side is +1 for
+     * buys and -1 for sells.
+     */
+    void apply(int side, double fillQuantity, double price, double fee) {
+        applyFifo(side, fillQuantity, price);
+        applyAverage(side, fillQuantity, price);
+        fees += fee;
+        fills++;
+    }
+
+    private void applyFifo(int side, double fillQuantity, double price) {
+        double remaining = fillQuantity;
+        while (remaining > EPSILON && !lots.isEmpty() && lotSide == -side) {
+            double take = Math.min(remaining, lots.headQuantity());
+            double lotPrice = lots.headPrice();
+            fifoRealized += take * (price - lotPrice) * lotSide;
+            fifoQuantity -= take;
+            fifoCost -= take * lotPrice;
+            remaining -= take;
+            lots.reduceHead(take, EPSILON);
+        }
+
+        if (lots.isEmpty()) {
+            // Clears rounding residue left by the running sums
+            fifoQuantity = 0;
+            fifoCost = 0;
+        }
+        if (remaining > EPSILON) {
+            lots.add(remaining, price);
+            lotSide = side;
+            fifoQuantity += remaining;
+            fifoCost += remaining * price;
+        }
+    }
+
+    private void applyAverage(int side, double fillQuantity, double price) {
+        double open = Math.abs(quantity);
+        if (open <= EPSILON || Math.signum(quantity) == side) {
+            averagePrice = (open * averagePrice + fillQuantity * price) / (open + fillQuantity);
+            quantity = side * (open + fillQuantity);
+            return;
+        }
+
+        double closed = Math.min(fillQuantity, open);
+        averageRealized += closed * (price - averagePrice) * Math.signum(quantity);
+        double remaining = fillQuantity - closed;
+        if (remaining > EPSILON) {
+            // Flipped through zero: the rest opens a new position at the fill price
+            quantity = side * remaining;
+            averagePrice = price;
+        } else if (open - closed <= EPSILON) {
+            quantity = 0;
+            averagePrice = 0;
+        } else {
+            quantity = Math.signum(quantity) * (open - closed);
+        }
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public double getAverageCost(CostMethod method) {
+        if (method == CostMethod.FIFO) {
+            return fifoQuantity > EPSILON ? fifoCost / fifoQuantity : 0;
+        }
+        return averagePrice;
+    }
+
+    public double getRealized(CostMethod method) {
+        return method == CostMethod.FIFO ? fifoRealized : averageRealized;
+    }
+
+    public double getUnrealized(CostMethod method, double markPrice) {
+        if (method == CostMethod.FIFO) {
+            return lotSide * (markPrice * fifoQuantity - fifoCost);
+        }
+        return quantity * (markPrice - averagePrice);
+    }
+
+    public double getFees() {
+        return fees;
+    }
+
+    public long getFills() {
+        return fills;
+    }
+
+    public boolean isFlat() {
+        return Math.abs(quantity) <= EPSILON;
+    }
+}
@@ -1,8 +1,13 @@
 package com.cryptotrader.repository;
 
+import com.cryptotrader.config.CacheConfig;
+import com.cryptotrader.dto.ApiKeySnapshot;
 import com.cryptotrader.entity.ApiKey;
 import com.cryptotrader.entity.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -22,8 +27,71 @@ public interface ApiKeyRepository extends JpaRepository<ApiKey, Long> {
     
     Optional<ApiKey> findByIdAndUser(Long id, User user);
     
-    @Query("SELECT ak FROM ApiKey ak WHERE ak.user = :user AND ak.exchange = :exchange AND ak.isActive = true")
-    Optional<ApiKey> findActiveApiKeyByUserAndExchange(@Param("user") User user, @Param("exchange") String exchange);
+    // Read on every trading call; the cache holds immutable snapshots of keys that exist
+    @Cacheable(cacheNames = CacheConfig.ACTIVE_API_KEYS, key = "#p0 + ':' + #p1", unless = "#result == null")
+    @Query("SELECT new com.cryptotrader.dto.ApiKeySnapshot(ak.id, ak.exchange, ak.encryptedApiKey, ak.encryptedApiSecret, " +
+           "ak.encryptedPassphrase, ak.accountType, ak.createdAt) " +
+           "FROM ApiKey ak WHERE ak.user.id = :userId AND ak.exchange = :exchange AND ak.isActive = true")
+    Optional<ApiKeySnapshot> findActiveApiKeySnapshot(@Param("userId") Long userId, @Param("exchange") String exchange);
+    
+    // Detached copy of the cached snapshot; called through the repository proxy, so the cache applies
+    default Optional<ApiKey> findActiveApiKeyByUserAndExchange(User user, String exchange) {
+        return findActiveApiKeySnapshot(user.getId(), exchange).map(snapshot -> snapshot.toApiKey(user));
+    }
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, key = "#p0.user.id + ':' + #p0.exchange")
+    <S extends ApiKey> S save(S apiKey);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, key = "#p0.user.id + ':' + #p0.exchange")
+    <S extends ApiKey> S saveAndFlush(S apiKey);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, key = "#p0.user.id + ':' + #p0.exchange")
+    void delete(ApiKey apiKey);
+    
+    // Writes that do not name a single (user, exchange) key clear the whole cache; they are rare
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    <S extends ApiKey> List<S> saveAll(Iterable<S> apiKeys);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    <S extends ApiKey> List<S> saveAllAndFlush(Iterable<S> apiKeys);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteById(Long id);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteAllById(Iterable<? extends Long> ids);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteAll(Iterable<? extends ApiKey> apiKeys);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteAll();
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteAllInBatch(Iterable<ApiKey> apiKeys);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteAllByIdInBatch(Iterable<Long> ids);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.ACTIVE_API_KEYS, allEntries = true)
+    void deleteAllInBatch();
+    
+    // Keys used through detached copies are stamped here; never moves the timestamp backwards
+    @Modifying
+    @Query("UPDATE ApiKey ak SET ak.lastUsed = :usedAt WHERE ak.id = :id AND (ak.lastUsed IS NULL OR ak.lastUsed < :usedAt)")
+    int updateLastUsed(@Param("id") Long id, @Param("usedAt") LocalDateTime usedAt);
     
     @Query("SELECT ak FROM ApiKey ak WHERE ak.isActive = true")
     List<ApiKey> findAllActiveApiKeys();
@@ -0,0 +1,18 @@
+package com.cryptotrader.repository;
+
+import com.cryptotrader.entity.FeeRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface FeeRollupRepository extends JpaRepository<FeeRollup, Long> {
+    
+    @Query("SELECT r FROM FeeRollup r WHERE r.userId = :userId AND r.feeMonth >= :fromMonth " +
+           "ORDER BY r.exchange, r.currency, r.feeMonth")
+    List<FeeRollup> findByUserSince(@Param("userId") Long userId, @Param("fromMonth") LocalDate fromMonth);
+}
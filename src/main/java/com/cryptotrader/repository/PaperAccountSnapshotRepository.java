@@ -0,0 +1,15 @@
+package com.cryptotrader.repository;
+
+import com.cryptotrader.entity.PaperAccountSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PaperAccountSnapshotRepository extends JpaRepository<PaperAccountSnapshot, Long> {
+    
+    Optional<PaperAccountSnapshot> findByApiKeyId(Long apiKeyId);
+    
+    void deleteByApiKeyId(Long apiKeyId);
+}
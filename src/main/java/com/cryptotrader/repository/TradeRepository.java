@@ -1,21 +1,24 @@
 package com.cryptotrader.repository;
 
+import com.cryptotrader.dto.TradeResponse;
 import com.cryptotrader.entity.Trade;
 import com.cryptotrader.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TradeRepository extends JpaRepository<Trade, Long> {
+public interface TradeRepository extends JpaRepository<Trade, Long>, TradeRepositoryCustom {
     
     List<Trade> findByUser(User user);
     
@@ -31,6 +34,13 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
     
     Optional<Trade> findByExchangeOrderIdAndUser(String exchangeOrderId, User user);
     
+    // Order status read as a projection; nothing enters the persistence context
+    @Query("SELECT new com.cryptotrader.dto.TradeResponse(t.id, t.exchange, t.symbol, t.orderType, t.side, t.amount, " +
+           "t.price, t.filledAmount, t.averagePrice, t.totalCost, t.feeAmount, t.feeCurrency, t.status, " +
+           "t.exchangeOrderId, t.errorMessage, t.createdAt, t.updatedAt, t.executedAt, t.cancelledAt, " +
+           "t.triggerPrice, t.trailingOffset, t.triggeredAt) FROM Trade t WHERE t.id = :id AND t.user = :user")
+    Optional<TradeResponse> findResponseByIdAndUser(@Param("id") Long id, @Param("user") User user);
+    
     @Query("SELECT t FROM Trade t WHERE t.user = :user AND t.createdAt BETWEEN :startDate AND :endDate")
     List<Trade> findByUserAndDateRange(@Param("user") User user, 
                                      @Param("startDate") LocalDateTime startDate, 
@@ -66,6 +76,50 @@ public interface TradeRepository extends JpaRepository<Trade, Long> {
     @Query("SELECT DATE(t.createdAt), COUNT(t) FROM Trade t WHERE t.user = :user AND t.createdAt >= :startDate GROUP BY DATE(t.createdAt) ORDER BY DATE(t.createdAt)")
     List<Object[]> getDailyTradeCountByUser(@Param("user") User user, @Param("startDate") LocalDateTime startDate);
     
-    @Query("SELECT SUM(t.feeAmount) FROM Trade t WHERE t.user = :user AND t.status = 'FILLED' AND t.feeCurrency = :currency")
-    BigDecimal getTotalFeesByUserAndCurrency(@Param("user") User user, @Param("currency") String currency);
+    @Query("SELECT t.id, t.exchange, t.symbol, t.orderType, t.side, t.triggerPrice, t.trailingOffset FROM Trade t WHERE t.status = 'TRIGGER_PENDING'")
+    List<Object[]> findArmedTriggers();
+    
+    // Fill totals in execution order, for rebuilding a user's PnL ledger
+    @Query("SELECT t.id, t.exchange, t.symbol, t.side, t.status, t.filledAmount, t.totalCost, t.averagePrice, t.feeAmount, t.feeCurrency " +
+           "FROM Trade t WHERE t.user.id = :userId AND t.filledAmount > 0 ORDER BY COALESCE(t.executedAt, t.updatedAt), t.id")
+    List<Object[]> findFillTotalsByUserId(@Param("userId") Long userId);
+    
+    // Paper orders still resting in the simulator, with the account that placed them
+    @Query("SELECT t.id, t.user.id, ak.id, t.exchange, t.symbol, t.orderType, t.side, t.amount, t.price, " +
+           "t.exchangeOrderId, t.filledAmount, t.totalCost, t.feeAmount FROM Trade t, ApiKey ak " +
+           "WHERE ak.user = t.user AND ak.exchange = t.exchange AND ak.isActive = true AND ak.accountType = 'PAPER' " +
+           "AND t.status IN ('PENDING', 'PARTIALLY_FILLED') AND t.exchangeOrderId LIKE 'PAPER-%'")
+    List<Object[]> findOpenPaperOrders();
+    
+    // Claims a fired trigger for placement; of a racing cancel and the trigger executor only one moves the row.
+    // The claimed row is PENDING without an exchange order id until the placement is recorded.
+    @Modifying
+    @Query("UPDATE Trade t SET t.status = 'PENDING', t.triggeredAt = :now, t.version = t.version + 1 " +
+           "WHERE t.id = :id AND t.status = 'TRIGGER_PENDING' AND t.version = :version")
+    int claimTriggered(@Param("id") Long id, @Param("version") Long version, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Trade t SET t.triggerPrice = :triggerPrice WHERE t.id = :id AND t.status = 'TRIGGER_PENDING'")
+    int updateTriggerPrice(@Param("id") Long id, @Param("triggerPrice") BigDecimal triggerPrice);
+    
+    @Query("SELECT t FROM Trade t WHERE t.user = :user AND t.status IN ('PENDING', 'PARTIALLY_FILLED', 'TRIGGER_PENDING') " +
+           "AND (:exchange IS NULL OR t.exchange = :exchange) AND (:symbol IS NULL OR t.symbol = :symbol)")
+    List<Trade> findCancellableTrades(@Param("user") User user, 
+                                     @Param("exchange") String exchange, 
+                                     @Param("symbol") String symbol);
+    
+    // Locks the rows a bulk cancel may still change and reads their current status from the table
+    @Query(value = "SELECT id, status FROM trades WHERE id IN (:ids) AND status IN ('PENDING', 'PARTIALLY_FILLED', 'TRIGGER_PENDING') FOR UPDATE",
+           nativeQuery = true)
+    List<Object[]> lockCancellableStatuses(@Param("ids") Collection<Long> ids);
+    
+    @Modifying(clearAutomatically = true)
+    // Bumps the version so a concurrent writer holding one of these trades fails instead of reviving it
+    @Query("UPDATE Trade t SET t.status = 'CANCELLED', t.cancelledAt = :now, t.updatedAt = :now, t.version = t.version + 1 " +
+           "WHERE t.id IN :ids AND t.status IN ('PENDING', 'PARTIALLY_FILLED', 'TRIGGER_PENDING')")
+    int markAllAsCancelled(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT t FROM Trade t WHERE t.status IN ('FILLED', 'CANCELLED', 'FAILED') AND t.createdAt < :cutoff " +
+           "ORDER BY t.createdAt, t.id")
+    List<Trade> findArchivableTrades(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 }
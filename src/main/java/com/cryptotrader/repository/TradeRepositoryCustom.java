@@ -0,0 +1,32 @@
+package com.cryptotrader.repository;
+
+import com.cryptotrader.dto.TradeHistoryCursor;
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.dto.TradeResponse;
+import com.cryptotrader.entity.User;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface TradeRepositoryCustom {
+    
+    // Trade attributes selected by streamHistory, in row order
+    List<String> EXPORT_COLUMNS = List.of("id", "exchange", "symbol", "orderType", "side", "amount", "price",
+            "filledAmount", "averagePrice", "totalCost", "feeAmount", "feeCurrency", "status", "exchangeOrderId",
+            "createdAt", "executedAt", "cancelledAt");
+    
+    /**
+     * Keyset page of a user's trades ordered on (createdAt, id), starting strictly after {@code after}.
+     * Only the filters that are set become predicates, so each query shape matches a composite index.
+     * Rows are constructor projections of {@link TradeResponse#COLUMNS}, never managed entities.
+     */
+    List<TradeResponse> findHistoryPage(User user, TradeHistoryFilter filter, TradeHistoryCursor after, 
+                                boolean ascending, int limit);
+    
+    /**
+     * Streams a user's trades oldest first as scalar rows of {@link #EXPORT_COLUMNS}. Rows are not
+     * managed entities, so the persistence context stays empty however many are read. The stream
+     * holds a database cursor and must be consumed and closed inside a transaction.
+     */
+    Stream<Object[]> streamHistory(User user, TradeHistoryFilter filter, int fetchSize);
+}
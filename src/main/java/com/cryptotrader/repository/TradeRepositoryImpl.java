@@ -0,0 +1,104 @@
+package com.cryptotrader.repository;
+
+import com.cryptotrader.dto.TradeHistoryCursor;
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.dto.TradeResponse;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TradeRepositoryImpl implements TradeRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public List<TradeResponse> findHistoryPage(User user, TradeHistoryFilter filter, TradeHistoryCursor after,
+                                               boolean ascending, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TradeResponse> query = cb.createQuery(TradeResponse.class);
+        Root<Trade> trade = query.from(Trade.class);
+        
+        query.select(cb.construct(TradeResponse.class, selections(trade, TradeResponse.COLUMNS)));
+        
+        Path<LocalDateTime> createdAt = trade.get("createdAt");
+        Path<Long> id = trade.get("id");
+        
+        List<Predicate> predicates = filterPredicates(cb, trade, user, filter);
+        
+        // Seek past the last row of the previous page instead of skipping OFFSET rows
+        if (after != null) {
+            predicates.add(ascending
+                    ? cb.or(cb.greaterThan(createdAt, after.getCreatedAt()),
+                            cb.and(cb.equal(createdAt, after.getCreatedAt()), cb.greaterThan(id, after.getId())))
+                    : cb.or(cb.lessThan(createdAt, after.getCreatedAt()),
+                            cb.and(cb.equal(createdAt, after.getCreatedAt()), cb.lessThan(id, after.getId()))));
+        }
+        
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(ascending
+                ? List.of(cb.asc(createdAt), cb.asc(id))
+                : List.of(cb.desc(createdAt), cb.desc(id)));
+        
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public Stream<Object[]> streamHistory(User user, TradeHistoryFilter filter, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Trade> trade = query.from(Trade.class);
+        
+        query.multiselect(selections(trade, EXPORT_COLUMNS));
+        query.where(filterPredicates(cb, trade, user, filter).toArray(new Predicate[0]));
+        query.orderBy(cb.asc(trade.get("createdAt")), cb.asc(trade.get("id")));
+        
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+    
+    private static Selection<?>[] selections(Root<Trade> trade, List<String> attributes) {
+        Selection<?>[] selections = new Selection<?>[attributes.size()];
+        for (int i = 0; i < selections.length; i++) {
+            selections[i] = trade.get(attributes.get(i));
+        }
+        return selections;
+    }
+    
+    // Only the filters that are set become predicates
+    private List<Predicate> filterPredicates(CriteriaBuilder cb, Root<Trade> trade, User user, TradeHistoryFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(trade.get("user"), user));
+        
+        if (filter.getExchange() != null) {
+            predicates.add(cb.equal(trade.get("exchange"), filter.getExchange()));
+        }
+        if (filter.getSymbol() != null) {
+            predicates.add(cb.equal(trade.get("symbol"), filter.getSymbol()));
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(trade.get("status"), filter.getStatus()));
+        }
+        if (filter.getSide() != null) {
+            predicates.add(cb.equal(trade.get("side"), filter.getSide()));
+        }
+        return predicates;
+    }
+}
@@ -0,0 +1,29 @@
+package com.cryptotrader.repository;
+
+import com.cryptotrader.entity.TradeStatsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TradeStatsRollupRepository extends JpaRepository<TradeStatsRollup, Long> {
+    
+    @Query("SELECT COALESCE(SUM(r.totalTrades), 0), COALESCE(SUM(r.filledTrades), 0), COALESCE(SUM(r.failedTrades), 0), " +
+           "COALESCE(SUM(r.cancelledTrades), 0), COALESCE(SUM(r.openTrades), 0), COALESCE(SUM(r.filledVolume), 0) " +
+           "FROM TradeStatsRollup r WHERE r.userId = :userId")
+    List<Object[]> summarizeByUser(@Param("userId") Long userId);
+    
+    @Query("SELECT r.exchange, SUM(r.totalTrades), SUM(r.filledTrades), SUM(r.failedTrades), " +
+           "SUM(r.cancelledTrades), SUM(r.openTrades), SUM(r.filledVolume) " +
+           "FROM TradeStatsRollup r WHERE r.userId = :userId GROUP BY r.exchange")
+    List<Object[]> summarizeByUserAndExchange(@Param("userId") Long userId);
+    
+    @Query("SELECT r.tradeDate, SUM(r.totalTrades), SUM(r.filledTrades), SUM(r.filledVolume) " +
+           "FROM TradeStatsRollup r WHERE r.userId = :userId AND r.tradeDate >= :startDate " +
+           "GROUP BY r.tradeDate ORDER BY r.tradeDate")
+    List<Object[]> summarizeDailyByUser(@Param("userId") Long userId, @Param("startDate") LocalDate startDate);
+}
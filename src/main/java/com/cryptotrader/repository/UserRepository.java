@@ -1,7 +1,12 @@
 package com.cryptotrader.repository;
 
+import com.cryptotrader.config.CacheConfig;
 import com.cryptotrader.entity.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,8 +22,44 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByEmail(String email);
     
+    // Not cached: requests authenticate from token claims, so users are only loaded on login and refresh
     Optional<User> findByUsernameOrEmail(String username, String email);
     
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.SECURITY_VERSIONS, key = "#p0.id", condition = "#p0.id != null")
+    <S extends User> S save(S user);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.SECURITY_VERSIONS, key = "#p0.id", condition = "#p0.id != null")
+    <S extends User> S saveAndFlush(S user);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.SECURITY_VERSIONS, key = "#p0.id", condition = "#p0.id != null")
+    void delete(User user);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.SECURITY_VERSIONS, key = "#p0")
+    void deleteById(Long id);
+    
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.SECURITY_VERSIONS, allEntries = true)
+    <S extends User> List<S> saveAll(Iterable<S> users);
+    
+    // Checked against the version claim of every token
+    @Cacheable(cacheNames = CacheConfig.SECURITY_VERSIONS, key = "#p0", unless = "#result == null")
+    @Query("SELECT u.securityVersion FROM User u WHERE u.id = :id")
+    Integer findSecurityVersionById(@Param("id") Long id);
+    
+    // Same lookup, bypassing a cached value that no longer matches a token
+    @CachePut(cacheNames = CacheConfig.SECURITY_VERSIONS, key = "#p0", unless = "#result == null")
+    @Query("SELECT u.securityVersion FROM User u WHERE u.id = :id")
+    Integer reloadSecurityVersionById(@Param("id") Long id);
+    
+    // Conditional on the hash that was just verified, so a password changed meanwhile is never overwritten
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int upgradePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+    
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
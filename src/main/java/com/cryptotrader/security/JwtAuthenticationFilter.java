@@ -1,10 +1,19 @@
 package com.cryptotrader.security;
 
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.UserRepository;
+import com.cryptotrader.service.TokenRevocationService;
 import com.cryptotrader.service.UserDetailsServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -16,7 +25,19 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Authenticates requests from the bearer token alone. The principal is built from the token's
+ * user id, roles and security version claims; the only per-request check is that the version
+ * still matches the user's, which is served from a short-lived cache. Since versions only grow,
+ * a token behind the cached version is refused without a lookup; the version is reloaded only
+ * for a token ahead of it, i.e. issued after it was cached. Tokens revoked at logout are refused
+ * through {@link TokenRevocationService}, whose common not-revoked answer needs no lookup.
+ */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     @Autowired
@@ -25,22 +46,40 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    @Value("${app.security.jwt.version-cache-ttl-ms:30000}")
+    private long versionCacheTtlMs;
+
+    // Users a fresh read did not find, so their tokens are not reloaded on every request
+    private Cache<Long, Boolean> missingUsers;
+
+    @Override
+    protected void initFilterBean() {
+        missingUsers = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(versionCacheTtlMs))
+                .build();
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+            if (claims != null) {
+                UsernamePasswordAuthenticationToken authentication = authenticate(claims);
+                if (authentication != null) {
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
@@ -49,6 +88,61 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UsernamePasswordAuthenticationToken authenticate(Claims claims) {
+        if (tokenRevocationService.isRevoked(claims.getId())) {
+            logger.debug("Rejected revoked token {}", claims.getId());
+            return null;
+        }
+
+        Object userId = claims.get(JwtUtils.USER_ID_CLAIM);
+        Object version = claims.get(JwtUtils.SECURITY_VERSION_CLAIM);
+
+        if (!(userId instanceof Number) || !(version instanceof Number)) {
+            // Tokens issued before the claims existed still resolve the user by name until they expire
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        }
+
+        long id = ((Number) userId).longValue();
+        int tokenVersion = ((Number) version).intValue();
+        if (!isCurrentVersion(id, tokenVersion)) {
+            logger.debug("Rejected token for user {} with outdated security version {}", id, tokenVersion);
+            return null;
+        }
+
+        User principal = User.fromTokenClaims(id, claims.getSubject(), tokenVersion);
+        return new UsernamePasswordAuthenticationToken(principal, null, authorities(claims));
+    }
+
+    private boolean isCurrentVersion(long userId, int tokenVersion) {
+        if (missingUsers.getIfPresent(userId) != null) {
+            return false;
+        }
+        Integer current = userRepository.findSecurityVersionById(userId);
+        if (current != null && current >= tokenVersion) {
+            // An older token stays outdated for good, so it never costs a reload
+            return current == tokenVersion;
+        }
+        // The cached version may predate a token issued since; the reload also replaces the cached value
+        current = userRepository.reloadSecurityVersionById(userId);
+        if (current == null) {
+            missingUsers.put(userId, Boolean.TRUE);
+            return false;
+        }
+        return current == tokenVersion;
+    }
+
+    private static Collection<GrantedAuthority> authorities(Claims claims) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        Object roles = claims.get(JwtUtils.ROLES_CLAIM);
+        if (roles instanceof Collection) {
+            for (Object role : (Collection<?>) roles) {
+                authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+            }
+        }
+        return authorities;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
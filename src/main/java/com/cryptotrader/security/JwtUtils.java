@@ -1,69 +1,152 @@
 package com.cryptotrader.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.WeakKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import com.cryptotrader.entity.User;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    // Claims that let the filter build the principal without loading the user
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String SECURITY_VERSION_CLAIM = "sv";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
     @Value("${app.security.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.security.jwt.expiration}")
     private int jwtExpirationMs;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Tokens whose signature was checked recently; 0 verifies every request
+    @Value("${app.security.jwt.verified-cache-size:10000}")
+    private long verifiedCacheSize;
+
+    // Upper bound on how long a verified token is trusted without checking it again
+    @Value("${app.security.jwt.verified-cache-ttl-ms:300000}")
+    private long verifiedCacheTtlMs;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Keyed by the token's SHA-256, so entries stay small however large the token is
+    private Cache<ByteBuffer, Claims> verified;
+
+    @PostConstruct
+    public void init() {
+        try {
+            signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        } catch (WeakKeyException e) {
+            throw new IllegalStateException("app.security.jwt.secret must be at least 32 bytes for HS256", e);
+        }
+        // Parsers are immutable and thread-safe, so one instance serves every request
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+
+        if (verifiedCacheSize > 0) {
+            verified = Caffeine.newBuilder()
+                    .maximumSize(verifiedCacheSize)
+                    .expireAfter(new Expiry<ByteBuffer, Claims>() {
+                        @Override
+                        public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+                            return TimeUnit.MILLISECONDS.toNanos(remainingMillis(claims));
+                        }
+
+                        @Override
+                        public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                            return currentDuration;
+                        }
+
+                        @Override
+                        public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+                            return currentDuration;
+                        }
+                    })
+                    .build();
+        }
     }
 
     public String generateJwtToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        List<String> roles = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
+                .claim(ROLES_CLAIM, roles);
+        if (userPrincipal instanceof User) {
+            User user = (User) userPrincipal;
+            builder.claim(USER_ID_CLAIM, user.getId())
+                    .claim(SECURITY_VERSION_CLAIM, user.getSecurityVersion());
+        }
+
+        return builder
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String generateTokenFromUsername(String username) {
         return Jwts.builder()
                 .setSubject(username)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    public long getExpirationMs() {
+        return jwtExpirationMs;
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return verify(token).getSubject();
     }
 
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Verifies the token and returns its claims, or null when it is invalid or expired.
+     * Claims may be shared between requests carrying the same token and must not be modified.
+     */
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
+            return verify(authToken);
         } catch (SecurityException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -76,20 +159,43 @@ public class JwtUtils {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
     }
 
     public Date getExpirationDateFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
+        return verify(token).getExpiration();
     }
 
     public boolean isTokenExpired(String token) {
         Date expiration = getExpirationDateFromJwtToken(token);
         return expiration.before(new Date());
     }
+
+    // Hashing the token is far cheaper than checking its signature and decoding its claims again
+    private Claims verify(String token) {
+        if (verified == null || token == null || token.isEmpty()) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+
+        ByteBuffer digest = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        Claims claims = verified.getIfPresent(digest);
+        if (claims == null) {
+            claims = parser.parseClaimsJws(token).getBody();
+            if (remainingMillis(claims) > 0) {
+                verified.put(digest, claims);
+            }
+        }
+        return claims;
+    }
+
+    // Entries never outlive the token, so an expired token is always verified (and rejected) again
+    private long remainingMillis(Claims claims) {
+        Date expiration = claims.getExpiration();
+        long remaining = expiration != null ? expiration.getTime() - System.currentTimeMillis() : verifiedCacheTtlMs;
+        return Math.max(0, Math.min(remaining, verifiedCacheTtlMs));
+    }
 }
@@ -0,0 +1,12 @@
+package com.cryptotrader.security;
+
+/**
+ * Thrown when a password hash or verification is shed because the hashing pool is saturated.
+ * Callers should answer "try again later" rather than treat it as a failed login.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,70 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.ApiKey;
+import com.cryptotrader.repository.ApiKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records when API keys were last used. Trading calls get detached copies of cached keys, so
+ * usage is collected in memory and stamped onto the rows by a periodic targeted update; a key
+ * is written at most once per flush interval, however many calls it serves.
+ */
+@Service
+public class ApiKeyUsageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyUsageService.class);
+
+    @Autowired
+    private ApiKeyRepository apiKeyRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public void recordUse(ApiKey apiKey) {
+        LocalDateTime now = LocalDateTime.now();
+        apiKey.setLastUsed(now);
+        if (apiKey.getId() != null) {
+            pending.merge(apiKey.getId(), now, (previous, latest) -> latest.isAfter(previous) ? latest : previous);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.api-keys.usage-flush-interval-ms:60000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, LocalDateTime> batch = new HashMap<>();
+        for (Long id : pending.keySet()) {
+            LocalDateTime usedAt = pending.remove(id);
+            if (usedAt != null) {
+                batch.put(id, usedAt);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(apiKeyRepository::updateLastUsed));
+        } catch (Exception e) {
+            logger.warn("Failed to record last use of {} api keys, retrying next flush: {}", batch.size(), e.getMessage());
+            batch.forEach((id, usedAt) -> pending.merge(id, usedAt, (newer, older) -> newer.isAfter(older) ? newer : older));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,146 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.backtest.BacktestEngine;
+import com.cryptotrader.backtest.BacktestResult;
+import com.cryptotrader.backtest.MarketDataFile;
+import com.cryptotrader.backtest.PriceSeries;
+import com.cryptotrader.backtest.SmaCrossoverStrategy;
+import com.cryptotrader.dto.BacktestRequest;
+import com.cryptotrader.exception.ExchangeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@Service
+public class BacktestService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BacktestService.class);
+    
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9/]{1,32}");
+    
+    @Autowired
+    private TradingService tradingService;
+    
+    @Value("${app.backtest.data-dir:data/market}")
+    private String dataDir;
+    
+    @Value("${app.backtest.parallelism:0}")
+    private int parallelism;
+    
+    @Value("${app.backtest.max-runs:10000}")
+    private int maxRuns;
+    
+    // Dedicated pool so sweeps never compete with the common pool used elsewhere
+    private ForkJoinPool sweepPool;
+    
+    @PostConstruct
+    public void init() {
+        sweepPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sweepPool.shutdown();
+    }
+    
+    /**
+     * Runs every (symbol, fast, slow) combination. Symbols load in parallel and, within a symbol,
+     * parameter sets share one series and run as independent fork-join tasks.
+     */
+    public List<BacktestResult> runSweep(BacktestRequest request) throws ExchangeException {
+        String exchange = request.getExchange().toLowerCase();
+        List<int[]> parameterSets = new ArrayList<>();
+        for (int fast : request.getFastWindows()) {
+            for (int slow : request.getSlowWindows()) {
+                if (fast > 0 && slow > fast) {
+                    parameterSets.add(new int[] { fast, slow });
+                }
+            }
+        }
+        
+        if (parameterSets.isEmpty()) {
+            throw new ExchangeException("No valid window combinations (fast must be less than slow)");
+        }
+        if ((long) parameterSets.size() * request.getSymbols().size() > maxRuns) {
+            throw new ExchangeException("Backtest sweep exceeds maximum of " + maxRuns + " runs");
+        }
+        
+        BacktestEngine engine = new BacktestEngine(request.getInitialCapital(), request.getFeeRate(),
+                request.getPositionFraction(), (symbol, side, amount, price) -> tradingService.validateSimulatedOrder(
+                        exchange, symbol, "MARKET", side, BigDecimal.valueOf(amount), BigDecimal.valueOf(price)));
+        
+        long started = System.currentTimeMillis();
+        
+        try {
+            List<BacktestResult> results = sweepPool.submit(() -> request.getSymbols().parallelStream()
+                    .flatMap(symbol -> {
+                        PriceSeries series = loadSeries(exchange, symbol);
+                        return parameterSets.parallelStream()
+                                .map(params -> engine.run(series, new SmaCrossoverStrategy(params[0], params[1])));
+                    })
+                    .sorted(Comparator.comparingDouble(BacktestResult::getReturnPct).reversed())
+                    .collect(Collectors.toList())).get();
+            
+            logger.info("Backtest sweep of {} runs finished in {} ms", results.size(), System.currentTimeMillis() - started);
+            return results;
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExchangeException("Backtest interrupted");
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Backtest sweep failed: {}", cause.getMessage());
+            throw new ExchangeException("Backtest failed: " + cause.getMessage());
+        }
+    }
+    
+    // Both names come from requests, so only known exchanges and plain pairs may form a path
+    public Path resolveDataFile(String exchange, String symbol) {
+        String normalizedExchange = exchange.trim().toLowerCase(Locale.ROOT);
+        if (!ExchangeService.SUPPORTED_EXCHANGES.containsKey(normalizedExchange)) {
+            throw new ExchangeException("Unsupported exchange: " + exchange);
+        }
+        String normalizedSymbol = symbol.trim().toUpperCase(Locale.ROOT);
+        if (!SYMBOL.matcher(normalizedSymbol).matches()) {
+            throw new ExchangeException("Invalid symbol: " + symbol);
+        }
+        
+        Path root = Paths.get(dataDir).toAbsolutePath().normalize();
+        Path path = root.resolve(normalizedExchange).resolve(normalizedSymbol.replace("/", "") + ".bin").normalize();
+        if (!path.startsWith(root)) {
+            throw new ExchangeException("Invalid market data path for " + symbol + " on " + exchange);
+        }
+        return path;
+    }
+    
+    private PriceSeries loadSeries(String exchange, String symbol) {
+        Path path = resolveDataFile(exchange, symbol);
+        if (!Files.exists(path)) {
+            throw new ExchangeException("No market data file for " + symbol + " on " + exchange);
+        }
+        
+        try {
+            return MarketDataFile.load(path, symbol.toUpperCase());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
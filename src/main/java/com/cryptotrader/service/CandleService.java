@@ -0,0 +1,304 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.exception.ExchangeException;
+import com.cryptotrader.market.CandleInterval;
+import com.cryptotrader.market.CandleSeries;
+import com.cryptotrader.market.CandleStoreFile;
+import com.cryptotrader.market.Candles;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.knowm.xchange.dto.marketdata.Trade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * OHLCV candles per (exchange, symbol), built incrementally from trades and price ticks.
+ *
+ * Every maintained interval lives in a {@link CandleSeries} ring, so chart requests are
+ * answered from memory and never reach the exchange. Closed bars are appended to a local
+ * store and reloaded on startup.
+ *
+ * Configured symbols are built from the exchange's public trades, so their volume is market
+ * volume. Other symbols only get prices from our paper fills, with zero volume: simulated
+ * quantities are not market activity.
+ */
+@Service
+public class CandleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CandleService.class);
+
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9]{1,16}/[A-Z0-9]{1,16}");
+
+    @Value("${app.market-data.candles.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.market-data.candles.dir:data/candles}")
+    private String storeDir;
+
+    // Comma separated exchange:SYMBOL pairs polled for public trades, e.g. binance:BTC/USDT
+    @Value("${app.market-data.candles.symbols:}")
+    private String trackedSymbols;
+
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+
+    private final Map<String, SymbolCandles> candles = new ConcurrentHashMap<>();
+    private final List<TrackedSymbol> tracked = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        for (String entry : trackedSymbols.split(",")) {
+            String[] parts = entry.trim().split(":", 2);
+            if (parts.length == 2) {
+                tracked.add(new TrackedSymbol(normalizeExchange(parts[0]), normalizeSymbol(parts[1])));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist(true);
+    }
+
+    public void onTrade(String exchange, String symbol, long timestampMillis, BigDecimal price, BigDecimal quantity) {
+        if (!enabled || price == null) {
+            return;
+        }
+        SymbolCandles symbolCandles = candles.computeIfAbsent(key(exchange, symbol),
+                key -> load(normalizeExchange(exchange), normalizeSymbol(symbol)));
+
+        double p = price.doubleValue();
+        double q = quantity != null ? quantity.doubleValue() : 0;
+        for (CandleSeries series : symbolCandles.series) {
+            series.onTick(timestampMillis, p, q);
+        }
+    }
+
+    // Paper fills never move tracked symbols, whose bars follow exchange trade time
+    public void onPaperFill(String exchange, String symbol, long timestampMillis, BigDecimal price) {
+        String key = key(exchange, symbol);
+        if (tracked.stream().noneMatch(entry -> entry.key.equals(key))) {
+            onTrade(exchange, symbol, timestampMillis, price, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Bars opening in [from, to) at the requested interval, the most recent {@code limit}
+     * when the range holds more. Intervals that are not maintained directly (e.g. 15m, 4h,
+     * 1w) are downsampled from the largest maintained interval that divides them.
+     */
+    public Candles getCandles(String exchange, String symbol, String intervalSpec, Long from, Long to, int limit)
+            throws ExchangeException {
+        long intervalMillis;
+        try {
+            intervalMillis = CandleInterval.parseMillis(intervalSpec);
+        } catch (IllegalArgumentException e) {
+            throw new ExchangeException(e.getMessage());
+        }
+        CandleInterval base = CandleInterval.baseFor(intervalMillis);
+        if (base == null) {
+            throw new ExchangeException("Candle interval must be a whole number of seconds: " + intervalSpec);
+        }
+
+        SymbolCandles symbolCandles = find(exchange, symbol);
+        if (symbolCandles == null) {
+            return Candles.empty();
+        }
+
+        long start = from != null ? from : Long.MIN_VALUE;
+        long end = to != null ? to : Long.MAX_VALUE;
+        CandleSeries series = symbolCandles.series[base.ordinal()];
+        if (base.getMillis() == intervalMillis) {
+            return series.range(start, end, limit);
+        }
+
+        // Enough base bars for limit output bars, plus one partial bar at the start
+        long ratio = intervalMillis / base.getMillis();
+        int baseLimit = (int) Math.min(base.getCapacity(), (limit + 1) * ratio);
+        long alignedStart = start == Long.MIN_VALUE ? start : start - Math.floorMod(start, intervalMillis);
+        return series.range(alignedStart, end, baseLimit).resample(intervalMillis, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${app.market-data.candles.poll-interval-ms:1000}")
+    public void pollTrackedSymbols() {
+        if (!enabled) {
+            return;
+        }
+        for (TrackedSymbol entry : tracked) {
+            try {
+                pollTrades(entry);
+            } catch (Exception e) {
+                logger.warn("Failed to poll trades for {} on {}: {}", entry.symbol, entry.exchange, e.getMessage());
+                pollTicker(entry);
+            }
+        }
+    }
+
+    // Each public trade is applied once, in exchange time order, with its traded quantity
+    private void pollTrades(TrackedSymbol entry) {
+        List<Trade> trades = new ArrayList<>(marketDataCacheService.getRecentTrades(entry.exchange, entry.symbol));
+        trades.removeIf(trade -> trade.getTimestamp() == null || trade.getPrice() == null);
+        trades.sort(Comparator.comparing(Trade::getTimestamp));
+
+        for (Trade trade : trades) {
+            long timestamp = trade.getTimestamp().getTime();
+            String id = trade.getId() != null ? trade.getId() : trade.getPrice() + "@" + trade.getOriginalAmount();
+            if (entry.advance(timestamp, id)) {
+                onTrade(entry.exchange, entry.symbol, timestamp, trade.getPrice(), trade.getOriginalAmount());
+            }
+        }
+    }
+
+    // Keeps the price moving while trades are unavailable; the volume of that gap is lost
+    private void pollTicker(TrackedSymbol entry) {
+        try {
+            Ticker ticker = marketDataCacheService.getTicker(entry.exchange, entry.symbol);
+            long timestamp = ticker.getTimestamp() != null ? ticker.getTimestamp().getTime() : System.currentTimeMillis();
+            onTrade(entry.exchange, entry.symbol, timestamp, ticker.getLast(), BigDecimal.ZERO);
+        } catch (Exception e) {
+            logger.warn("Failed to poll price for {} on {}: {}", entry.symbol, entry.exchange, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.market-data.candles.flush-interval-ms:5000}")
+    public void flush() {
+        persist(false);
+    }
+
+    private void persist(boolean includeOpen) {
+        if (!enabled) {
+            return;
+        }
+        for (SymbolCandles symbolCandles : candles.values()) {
+            for (CandleSeries series : symbolCandles.series) {
+                Candles pending = series.unpersisted(includeOpen);
+                if (pending.size() == 0) {
+                    continue;
+                }
+
+                Path path = CandleStoreFile.path(symbolCandles.dir, series.getInterval());
+                try {
+                    CandleStoreFile.append(path, series.getInterval(), pending);
+                    series.markPersisted(pending.lastTime());
+                    CandleStoreFile.compactIfNeeded(path, series.getInterval());
+                } catch (IOException e) {
+                    logger.error("Failed to persist {} candles to {}: {}", series.getInterval().getLabel(), path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Reads never create state for symbols that have neither live data nor a store
+    private SymbolCandles find(String exchange, String symbol) {
+        String normalizedExchange = normalizeExchange(exchange);
+        String normalizedSymbol = normalizeSymbol(symbol);
+        String key = normalizedExchange + ":" + normalizedSymbol;
+
+        SymbolCandles symbolCandles = candles.get(key);
+        if (symbolCandles == null && enabled && Files.isDirectory(symbolDir(normalizedExchange, normalizedSymbol))) {
+            symbolCandles = candles.computeIfAbsent(key, k -> load(normalizedExchange, normalizedSymbol));
+        }
+        return symbolCandles;
+    }
+
+    private SymbolCandles load(String exchange, String symbol) {
+        SymbolCandles symbolCandles = new SymbolCandles(symbolDir(exchange, symbol));
+        for (CandleSeries series : symbolCandles.series) {
+            try {
+                long last = CandleStoreFile.load(CandleStoreFile.path(symbolCandles.dir, series.getInterval()), series);
+                if (last != Long.MIN_VALUE) {
+                    // The newest stored bar may have been written while still open; write it again once it closes
+                    series.markPersisted(last - 1);
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable candle store for {} on {}: {}", symbol, exchange, e.getMessage());
+            }
+        }
+        return symbolCandles;
+    }
+
+    private Path symbolDir(String exchange, String symbol) {
+        return Paths.get(storeDir, exchange, symbol.replace('/', '-'));
+    }
+
+    private static String key(String exchange, String symbol) {
+        return normalizeExchange(exchange) + ":" + normalizeSymbol(symbol);
+    }
+
+    // Names become store paths, so only known exchanges and plain pairs are accepted
+    private static String normalizeExchange(String exchange) {
+        String normalized = exchange.trim().toLowerCase(Locale.ROOT);
+        if (!ExchangeService.SUPPORTED_EXCHANGES.containsKey(normalized)) {
+            throw new ExchangeException("Unsupported exchange: " + exchange);
+        }
+        return normalized;
+    }
+
+    private static String normalizeSymbol(String symbol) {
+        String normalized = symbol.trim().toUpperCase(Locale.ROOT);
+        if (!SYMBOL.matcher(normalized).matches()) {
+            throw new ExchangeException("Invalid symbol: " + symbol);
+        }
+        return normalized;
+    }
+
+    // Polling cursor: the newest trade time seen and the trade ids already applied at that time
+    private static final class TrackedSymbol {
+        private final String exchange;
+        private final String symbol;
+        private final String key;
+        private long lastTradeMillis = Long.MIN_VALUE;
+        private final Set<String> idsAtLast = new HashSet<>();
+
+        private TrackedSymbol(String exchange, String symbol) {
+            this.exchange = exchange;
+            this.symbol = symbol;
+            this.key = exchange + ":" + symbol;
+        }
+
+        private boolean advance(long timestampMillis, String id) {
+            if (timestampMillis < lastTradeMillis) {
+                return false;
+            }
+            if (timestampMillis > lastTradeMillis) {
+                lastTradeMillis = timestampMillis;
+                idsAtLast.clear();
+            }
+            return idsAtLast.add(id);
+        }
+    }
+
+    private static final class SymbolCandles {
+        private final Path dir;
+        private final CandleSeries[] series;
+
+        private SymbolCandles(Path dir) {
+            this.dir = dir;
+            CandleInterval[] intervals = CandleInterval.values();
+            this.series = new CandleSeries[intervals.length];
+            for (int i = 0; i < intervals.length; i++) {
+                series[i] = new CandleSeries(intervals[i]);
+            }
+        }
+    }
+}
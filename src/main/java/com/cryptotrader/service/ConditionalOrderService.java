@@ -0,0 +1,291 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.ApiKey;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.journal.OrderEventType;
+import com.cryptotrader.repository.ApiKeyRepository;
+import com.cryptotrader.repository.TradeRepository;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server-side trigger engine for STOP_MARKET, STOP_LIMIT, TAKE_PROFIT and TRAILING_STOP orders.
+ * Armed orders live in per-symbol {@link TriggerBook}s; every price tick fires the crossed
+ * triggers and the resulting orders are sent to the exchange off the tick thread.
+ */
+@Service
+public class ConditionalOrderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConditionalOrderService.class);
+
+    public static final Set<String> CONDITIONAL_ORDER_TYPES = Set.of("STOP_MARKET", "STOP_LIMIT", "TAKE_PROFIT", "TRAILING_STOP");
+
+    @Autowired
+    private ExchangeService exchangeService;
+
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private ApiKeyRepository apiKeyRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderJournalService orderJournalService;
+
+    @Value("${app.trading.triggers.executor-threads:4}")
+    private int executorThreads;
+
+    private final Map<String, TriggerBook> books = new ConcurrentHashMap<>();
+
+    private ExecutorService triggerExecutor;
+
+    @PostConstruct
+    public void init() {
+        triggerExecutor = Executors.newFixedThreadPool(executorThreads, runnable -> {
+            Thread thread = new Thread(runnable, "trigger-executor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        triggerExecutor.shutdown();
+    }
+
+    public static boolean isConditionalOrderType(String orderType) {
+        return orderType != null && CONDITIONAL_ORDER_TYPES.contains(orderType.toUpperCase());
+    }
+
+    /**
+     * Whether the order fires when the price rises to its trigger (as opposed to falling to it).
+     */
+    static boolean firesOnRise(String orderType, String side) {
+        boolean buy = "BUY".equalsIgnoreCase(side);
+        return "TAKE_PROFIT".equalsIgnoreCase(orderType) ? !buy : buy;
+    }
+
+    public void register(Trade trade) {
+        Runnable arm = () -> register(trade.getId(), trade.getExchange(), trade.getSymbol(), trade.getOrderType(),
+                trade.getSide(), trade.getTriggerPrice(), trade.getTrailingOffset());
+
+        // Arm only once the trade row is committed so a fast tick cannot fire an unknown order
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    arm.run();
+                }
+            });
+        } else {
+            arm.run();
+        }
+    }
+
+    public boolean unregister(Trade trade) {
+        TriggerBook book = books.get(bookKey(trade.getExchange(), trade.getSymbol()));
+        return book != null && book.remove(trade.getId());
+    }
+
+    public int getArmedTriggerCount() {
+        return books.values().stream().mapToInt(TriggerBook::size).sum();
+    }
+
+    /**
+     * Entry point for price updates, whether from the shared poller below or a streaming feed.
+     */
+    public void onPriceTick(String exchange, String symbol, BigDecimal price) {
+        TriggerBook book = books.get(bookKey(exchange, symbol));
+        if (book == null || price == null) {
+            return;
+        }
+
+        List<Long> fired = book.onPrice(price);
+        for (Long tradeId : fired) {
+            triggerExecutor.execute(() -> executeTriggeredOrder(tradeId, price));
+        }
+    }
+
+    // One public ticker request per armed symbol, instead of every client polling its own
+    @Scheduled(fixedDelayString = "${app.trading.triggers.poll-interval-ms:1000}")
+    public void pollMarketPrices() {
+        for (TriggerBook book : books.values()) {
+            if (book.isEmpty()) {
+                continue;
+            }
+
+            try {
+                Ticker ticker = marketDataCacheService.getTicker(book.getExchange(), book.getSymbol());
+                onPriceTick(book.getExchange(), book.getSymbol(), ticker.getLast());
+            } catch (Exception e) {
+                logger.warn("Failed to poll price for {} on {}: {}", book.getSymbol(), book.getExchange(), e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.trading.triggers.trailing-flush-interval-ms:30000}")
+    public void flushTrailingStops() {
+        for (TriggerBook book : books.values()) {
+            Map<Long, BigDecimal> moved = book.drainRatchetedLevels();
+            if (moved.isEmpty()) {
+                continue;
+            }
+
+            transactionTemplate.executeWithoutResult(status ->
+                    moved.forEach(tradeRepository::updateTriggerPrice));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildFromDatabase() {
+        List<Object[]> armed = tradeRepository.findArmedTriggers();
+
+        for (Object[] row : armed) {
+            register((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (String) row[4], (BigDecimal) row[5], (BigDecimal) row[6]);
+        }
+
+        logger.info("Trigger engine rebuilt with {} armed orders across {} symbols", armed.size(), books.size());
+    }
+
+    private void register(Long tradeId, String exchange, String symbol, String orderType, String side,
+                          BigDecimal triggerPrice, BigDecimal trailingOffset) {
+        TriggerBook book = books.computeIfAbsent(bookKey(exchange, symbol), k -> new TriggerBook(exchange, symbol));
+        BigDecimal offset = "TRAILING_STOP".equalsIgnoreCase(orderType) ? trailingOffset : null;
+        book.add(tradeId, triggerPrice, firesOnRise(orderType, side), offset);
+    }
+
+    private void executeTriggeredOrder(Long tradeId, BigDecimal triggerTick) {
+        try {
+            // Claimed in a short transaction of its own, before anything is sent; the exchange call holds no connection
+            Firing firing = transactionTemplate.execute(status -> {
+                Optional<Trade> tradeOpt = tradeRepository.findById(tradeId);
+                if (!tradeOpt.isPresent() || !tradeOpt.get().isAwaitingTrigger()) {
+                    // Cancelled or already handled while the trigger was in flight
+                    return null;
+                }
+
+                Trade trade = tradeOpt.get();
+                Optional<ApiKey> apiKeyOpt = apiKeyRepository.findActiveApiKeyByUserAndExchange(trade.getUser(), trade.getExchange());
+                if (!apiKeyOpt.isPresent()) {
+                    trade.markAsFailed("No active API key found for exchange: " + trade.getExchange());
+                    tradeRepository.save(trade);
+                    orderJournalService.append(OrderEventType.FAILED, trade);
+                    return null;
+                }
+                if (tradeRepository.claimTriggered(tradeId, trade.getVersion(), LocalDateTime.now()) == 0) {
+                    return null;
+                }
+                orderJournalService.append(OrderEventType.SENT, trade);
+                return new Firing(trade, apiKeyOpt.get());
+            });
+            if (firing == null) {
+                return;
+            }
+
+            Trade trade = firing.trade;
+            ApiKey apiKey = firing.apiKey;
+            String exchangeOrderId = null;
+            String error = null;
+            try {
+                exchangeOrderId = exchangeService.placeOrder(apiKey, trade);
+            } catch (Exception e) {
+                error = e.getMessage();
+                logger.error("Failed to place triggered order {}: {}", tradeId, error);
+            }
+
+            String placedOrderId = exchangeOrderId;
+            String failure = error;
+            boolean recorded;
+            try {
+                recorded = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    Optional<Trade> current = tradeRepository.findById(tradeId);
+                    // Still the claimed row: PENDING with no exchange order recorded yet
+                    if (!current.isPresent() || !current.get().isBeingPlaced()) {
+                        return false;
+                    }
+                    Trade placed = current.get();
+                    if (placedOrderId != null) {
+                        placed.markAsAcknowledged(placedOrderId);
+                        orderJournalService.append(OrderEventType.ACKED, placed);
+                    } else {
+                        placed.markAsFailed(failure);
+                        orderJournalService.append(OrderEventType.FAILED, placed);
+                    }
+                    tradeRepository.save(placed);
+                    return true;
+                }));
+            } catch (ObjectOptimisticLockingFailureException e) {
+                recorded = false;
+            }
+
+            if (!recorded) {
+                // The row changed while the order was in flight; the exchange order must not outlive it
+                cancelOnExchange(apiKey, trade, placedOrderId);
+            } else if (placedOrderId != null) {
+                logger.info("Conditional order {} triggered at {}: {} {} {} on {}", tradeId, triggerTick,
+                           trade.getSide(), trade.getAmount(), trade.getSymbol(), trade.getExchange());
+            }
+        } catch (Exception e) {
+            logger.error("Error executing triggered order {}: {}", tradeId, e.getMessage());
+        }
+    }
+
+    private void cancelOnExchange(ApiKey apiKey, Trade trade, String exchangeOrderId) {
+        if (exchangeOrderId == null) {
+            return;
+        }
+        try {
+            if (!exchangeService.cancelOrder(apiKey, exchangeOrderId, trade.getSymbol())) {
+                logger.error("Triggered order {} could not be recorded locally but {} is still open on {}",
+                            trade.getId(), exchangeOrderId, trade.getExchange());
+            }
+        } catch (Exception e) {
+            logger.error("Triggered order {} could not be recorded locally and cancelling {} on {} failed: {}",
+                        trade.getId(), exchangeOrderId, trade.getExchange(), e.getMessage());
+        }
+    }
+
+    private static String bookKey(String exchange, String symbol) {
+        return exchange.toLowerCase() + ":" + symbol.toUpperCase();
+    }
+
+    private static final class Firing {
+        private final Trade trade;
+        private final ApiKey apiKey;
+
+        private Firing(Trade trade, ApiKey apiKey) {
+            this.trade = trade;
+            this.apiKey = apiKey;
+        }
+    }
+}
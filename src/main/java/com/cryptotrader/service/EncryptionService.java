@@ -5,79 +5,198 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Encrypts stored credentials with AES-256-GCM.
+ *
+ * Ciphertexts are self-describing: {@code v1:<key id>:<base64 of IV || ciphertext || tag>},
+ * with the version and key id also authenticated as associated data, so a value can always be
+ * matched to the key that wrote it. New values use the active key; values under any key of the
+ * ring (the active one plus app.security.encryption.previous-keys) stay readable until
+ * {@link KeyRotationService} has rewritten them. Keys are derived once at startup, and each
+ * thread reuses its own Cipher instances. Values written by the previous AES/ECB scheme (no
+ * prefix) can still be decrypted, but are never produced.
+ */
 @Service
 public class EncryptionService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(EncryptionService.class);
     private static final String ALGORITHM = "AES";
-    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
-    
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+
+    private static final String VERSION = "v1";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final int KEY_BITS = 256;
+    private static final int KDF_ITERATIONS = 310_000;
+
+    // Cipher.getInstance walks the provider list; one instance per thread and mode avoids that per call
+    private static final ThreadLocal<Cipher> GCM_CIPHERS = ThreadLocal.withInitial(() -> newCipher(TRANSFORMATION));
+    private static final ThreadLocal<Cipher> LEGACY_CIPHERS = ThreadLocal.withInitial(() -> newCipher(LEGACY_TRANSFORMATION));
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     @Value("${app.security.encryption.key}")
     private String encryptionKey;
-    
-    private SecretKey getSecretKey() {
-        // Use the first 16 bytes of the configured key for AES-128
-        byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
-        byte[] key = new byte[16];
-        System.arraycopy(keyBytes, 0, key, 0, Math.min(keyBytes.length, 16));
-        return new SecretKeySpec(key, ALGORITHM);
+
+    // Recorded in every ciphertext; change it whenever the key changes
+    @Value("${app.security.encryption.key-id:k1}")
+    private String keyId;
+
+    // Keys that are only decrypted with, as comma separated id:secret pairs, e.g. k1:oldSecret
+    @Value("${app.security.encryption.previous-keys:}")
+    private String previousKeys;
+
+    // Ring key whose secret wrote the unprefixed AES/ECB values; defaults to the active key
+    @Value("${app.security.encryption.legacy-key-id:}")
+    private String legacyKeyId;
+
+    private Map<String, RingKey> ring;
+    private RingKey activeKey;
+    private SecretKey legacyKey;
+
+    @PostConstruct
+    public void init() {
+        Map<String, String> secrets = new LinkedHashMap<>();
+        secrets.put(keyId, encryptionKey);
+        for (String entry : previousKeys.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int colon = entry.indexOf(':');
+            if (colon <= 0 || secrets.putIfAbsent(entry.substring(0, colon).trim(), entry.substring(colon + 1)) != null) {
+                throw new IllegalStateException("app.security.encryption.previous-keys must be distinct id:secret pairs");
+            }
+        }
+
+        Map<String, RingKey> keys = new HashMap<>();
+        secrets.forEach((id, secret) -> {
+            if (!id.matches("[A-Za-z0-9_-]{1,32}")) {
+                throw new IllegalStateException("Encryption key ids must be 1-32 letters, digits, '-' or '_': " + id);
+            }
+            keys.put(id, new RingKey(id, deriveKey(secret, id)));
+        });
+        ring = Collections.unmodifiableMap(keys);
+        activeKey = ring.get(keyId);
+
+        String legacyId = legacyKeyId.isEmpty() ? keyId : legacyKeyId;
+        if (!secrets.containsKey(legacyId)) {
+            throw new IllegalStateException("app.security.encryption.legacy-key-id is not in the key ring: " + legacyId);
+        }
+        legacyKey = legacyKey(secrets.get(legacyId));
+        logger.info("Encryption key ring loaded: active {}, {} keys", keyId, ring.size());
     }
-    
+
     public String encrypt(String plainText) {
         try {
             if (plainText == null || plainText.isEmpty()) {
                 return plainText;
             }
-            
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, getSecretKey());
-            
-            byte[] encryptedBytes = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(encryptedBytes);
-            
+
+            byte[] iv = new byte[IV_BYTES];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = GCM_CIPHERS.get();
+            cipher.init(Cipher.ENCRYPT_MODE, activeKey.secretKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(activeKey.associatedData);
+
+            byte[] plainBytes = plainText.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer out = ByteBuffer.allocate(IV_BYTES + cipher.getOutputSize(plainBytes.length));
+            out.put(iv);
+            cipher.doFinal(ByteBuffer.wrap(plainBytes), out);
+            return activeKey.prefix + Base64.getEncoder().encodeToString(out.array());
+
         } catch (Exception e) {
             logger.error("Error encrypting data", e);
             throw new RuntimeException("Encryption failed", e);
         }
     }
-    
+
     public String decrypt(String encryptedText) {
         try {
             if (encryptedText == null || encryptedText.isEmpty()) {
                 return encryptedText;
             }
-            
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, getSecretKey());
-            
-            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+            if (!encryptedText.startsWith(VERSION + ":")) {
+                return decryptLegacy(encryptedText);
+            }
+            RingKey key = encryptedText.startsWith(activeKey.prefix) ? activeKey : ring.get(keyIdOf(encryptedText));
+            if (key == null) {
+                throw new IllegalArgumentException("Encrypted with unknown key: " + keyIdOf(encryptedText));
+            }
+
+            byte[] payload = Base64.getDecoder().decode(encryptedText.substring(key.prefix.length()));
+            Cipher cipher = GCM_CIPHERS.get();
+            cipher.init(Cipher.DECRYPT_MODE, key.secretKey, new GCMParameterSpec(TAG_BITS, payload, 0, IV_BYTES));
+            cipher.updateAAD(key.associatedData);
+
+            byte[] decryptedBytes = cipher.doFinal(payload, IV_BYTES, payload.length - IV_BYTES);
             return new String(decryptedBytes, StandardCharsets.UTF_8);
-            
+
         } catch (Exception e) {
             logger.error("Error decrypting data", e);
             throw new RuntimeException("Decryption failed", e);
         }
     }
-    
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    // Every value written under the active key starts with this
+    public String getActivePrefix() {
+        return activeKey.prefix;
+    }
+
+    public boolean needsReencryption(String encryptedText) {
+        return encryptedText != null && !encryptedText.isEmpty() && !encryptedText.startsWith(activeKey.prefix);
+    }
+
+    /**
+     * The same plaintext under the active key; values already under it are returned as is.
+     */
+    public String reencrypt(String encryptedText) {
+        return needsReencryption(encryptedText) ? encrypt(decrypt(encryptedText)) : encryptedText;
+    }
+
+    /**
+     * Key id recorded in a ciphertext, or null for values written by the legacy scheme.
+     */
+    public static String keyIdOf(String encryptedText) {
+        if (encryptedText == null || !encryptedText.startsWith(VERSION + ":")) {
+            return null;
+        }
+        int end = encryptedText.indexOf(':', VERSION.length() + 1);
+        return end > 0 ? encryptedText.substring(VERSION.length() + 1, end) : null;
+    }
+
     public static String generateSecureKey() {
         try {
             KeyGenerator keyGenerator = KeyGenerator.getInstance(ALGORITHM);
-            keyGenerator.init(128, new SecureRandom());
+            keyGenerator.init(KEY_BITS, new SecureRandom());
             SecretKey secretKey = keyGenerator.generateKey();
             return Base64.getEncoder().encodeToString(secretKey.getEncoded());
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate secure key", e);
         }
     }
-    
+
     public boolean isValidEncryptedData(String encryptedText) {
         try {
             decrypt(encryptedText);
@@ -86,4 +205,52 @@ public class EncryptionService {
             return false;
         }
     }
+
+    private String decryptLegacy(String encryptedText) throws GeneralSecurityException {
+        Cipher cipher = LEGACY_CIPHERS.get();
+        cipher.init(Cipher.DECRYPT_MODE, legacyKey);
+        byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedText));
+        return new String(decryptedBytes, StandardCharsets.UTF_8);
+    }
+
+    // Deliberately slow PBKDF2, paid once per key at startup, since the secret may be a passphrase
+    static SecretKey deriveKey(String secret, String keyId) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(),
+                    ("cryptotrader-encryption:" + keyId).getBytes(StandardCharsets.UTF_8), KDF_ITERATIONS, KEY_BITS);
+            byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            spec.clearPassword();
+            return new SecretKeySpec(key, ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to derive encryption key", e);
+        }
+    }
+
+    // The previous scheme used the first 16 bytes of the configured key for AES-128
+    static SecretKey legacyKey(String secret) {
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[16];
+        System.arraycopy(keyBytes, 0, key, 0, Math.min(keyBytes.length, 16));
+        return new SecretKeySpec(key, ALGORITHM);
+    }
+
+    private static final class RingKey {
+        private final SecretKey secretKey;
+        private final String prefix;
+        private final byte[] associatedData;
+
+        private RingKey(String id, SecretKey secretKey) {
+            this.secretKey = secretKey;
+            this.prefix = VERSION + ":" + id + ":";
+            this.associatedData = prefix.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher not available: " + transformation, e);
+        }
+    }
 }
@@ -19,10 +19,12 @@ import org.knowm.xchange.dto.trade.LimitOrder;
 import org.knowm.xchange.dto.trade.MarketOrder;
 import org.knowm.xchange.dto.trade.OpenOrders;
 import org.knowm.xchange.dto.trade.UserTrades;
+import org.knowm.xchange.exceptions.NotYetImplementedForExchangeException;
 import org.knowm.xchange.kraken.KrakenExchange;
 import org.knowm.xchange.service.account.AccountService;
 import org.knowm.xchange.service.marketdata.MarketDataService;
 import org.knowm.xchange.service.trade.TradeService;
+import org.knowm.xchange.service.trade.params.CancelAllOrders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,12 +44,21 @@ public class ExchangeService {
     @Autowired
     private EncryptionService encryptionService;
     
+    @Autowired
+    private PaperTradingService paperTradingService;
+    
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+    
+    @Autowired
+    private ApiKeyUsageService apiKeyUsageService;
+    
     @Value("${app.exchanges.sandbox-mode:true}")
     private boolean sandboxMode;
     
     private final Map<String, Exchange> exchangeCache = new ConcurrentHashMap<>();
     
-    private static final Map<String, Class<? extends Exchange>> SUPPORTED_EXCHANGES = Map.of(
+    static final Map<String, Class<? extends Exchange>> SUPPORTED_EXCHANGES = Map.of(
         "binance", BinanceExchange.class,
         "coinbase", CoinbaseProExchange.class,
         "kraken", KrakenExchange.class
@@ -106,7 +117,7 @@ public class ExchangeService {
         }
     }
     
-    private void configureSandboxMode(ExchangeSpecification spec, String exchangeName) {
+    static void configureSandboxMode(ExchangeSpecification spec, String exchangeName) {
         switch (exchangeName.toLowerCase()) {
             case "binance":
                 spec.setExchangeSpecificParametersItem("Use_Sandbox", true);
@@ -129,6 +140,10 @@ public class ExchangeService {
     }
     
     public Map<String, BigDecimal> getAccountBalance(ApiKey apiKey) throws ExchangeException {
+        if (apiKey.isPaper()) {
+            return paperTradingService.getBalances(apiKey);
+        }
+        
         try {
             Exchange exchange = getExchange(apiKey);
             AccountService accountService = exchange.getAccountService();
@@ -141,8 +156,8 @@ public class ExchangeService {
                 }
             }
             
-            // Update last used timestamp
-            apiKey.updateLastUsed();
+            // Written behind; apiKey is a detached copy
+            apiKeyUsageService.recordUse(apiKey);
             
             return balances;
             
@@ -153,6 +168,10 @@ public class ExchangeService {
     }
     
     public Ticker getTicker(ApiKey apiKey, String symbol) throws ExchangeException {
+        if (apiKey.isPaper()) {
+            return marketDataCacheService.getTicker(apiKey.getExchange(), symbol);
+        }
+        
         try {
             Exchange exchange = getExchange(apiKey);
             MarketDataService marketDataService = exchange.getMarketDataService();
@@ -167,6 +186,11 @@ public class ExchangeService {
     }
     
     public String placeOrder(ApiKey apiKey, Trade trade) throws ExchangeException {
+        // Paper orders are filled in-process and never reach the exchange
+        if (apiKey.isPaper()) {
+            return paperTradingService.placeOrder(apiKey, trade, parseCurrencyPair(trade.getSymbol()));
+        }
+        
         try {
             Exchange exchange = getExchange(apiKey);
             TradeService tradeService = exchange.getTradeService();
@@ -175,19 +199,20 @@ public class ExchangeService {
             Order.OrderType orderType = "BUY".equals(trade.getSide()) ? Order.OrderType.BID : Order.OrderType.ASK;
             
             String orderId;
+            String executionOrderType = trade.getExecutionOrderType();
             
-            if ("MARKET".equals(trade.getOrderType())) {
+            if ("MARKET".equals(executionOrderType)) {
                 MarketOrder marketOrder = new MarketOrder(orderType, trade.getAmount(), currencyPair);
                 orderId = tradeService.placeMarketOrder(marketOrder);
-            } else if ("LIMIT".equals(trade.getOrderType())) {
+            } else if ("LIMIT".equals(executionOrderType)) {
                 LimitOrder limitOrder = new LimitOrder(orderType, trade.getAmount(), currencyPair, null, null, trade.getPrice());
                 orderId = tradeService.placeLimitOrder(limitOrder);
             } else {
                 throw new ExchangeException("Unsupported order type: " + trade.getOrderType());
             }
             
-            // Update last used timestamp
-            apiKey.updateLastUsed();
+            // Written behind; apiKey is a detached copy
+            apiKeyUsageService.recordUse(apiKey);
             
             return orderId;
             
@@ -198,6 +223,10 @@ public class ExchangeService {
     }
     
     public boolean cancelOrder(ApiKey apiKey, String orderId, String symbol) throws ExchangeException {
+        if (apiKey.isPaper()) {
+            return paperTradingService.cancelOrder(apiKey, orderId);
+        }
+        
         try {
             Exchange exchange = getExchange(apiKey);
             TradeService tradeService = exchange.getTradeService();
@@ -211,6 +240,34 @@ public class ExchangeService {
         }
     }
     
+    /**
+     * Cancels every open order on the account with a single native request.
+     * Returns null when the exchange has no native cancel-all, so callers can fall back to per-order cancels.
+     */
+    public Collection<String> cancelAllOrders(ApiKey apiKey) throws ExchangeException {
+        if (apiKey.isPaper()) {
+            return paperTradingService.cancelAllOrders(apiKey);
+        }
+        
+        try {
+            Exchange exchange = getExchange(apiKey);
+            TradeService tradeService = exchange.getTradeService();
+            
+            Collection<String> cancelled = tradeService.cancelAllOrders(new CancelAllOrders() {});
+            
+            // Written behind; apiKey is a detached copy
+            apiKeyUsageService.recordUse(apiKey);
+            
+            return cancelled;
+            
+        } catch (NotYetImplementedForExchangeException | UnsupportedOperationException e) {
+            return null;
+        } catch (Exception e) {
+            logger.error("Failed to cancel all orders on {}: {}", apiKey.getExchange(), e.getMessage());
+            throw new ExchangeException("Failed to cancel all orders: " + e.getMessage());
+        }
+    }
+    
     public OpenOrders getOpenOrders(ApiKey apiKey) throws ExchangeException {
         try {
             Exchange exchange = getExchange(apiKey);
@@ -224,6 +281,19 @@ public class ExchangeService {
         }
     }
     
+    // Ids of every order open on the account, whichever client placed it
+    public Set<String> getOpenOrderIds(ApiKey apiKey) throws ExchangeException {
+        if (apiKey.isPaper()) {
+            return paperTradingService.getOpenOrderIds(apiKey);
+        }
+        
+        Set<String> ids = new HashSet<>();
+        for (LimitOrder order : getOpenOrders(apiKey).getOpenOrders()) {
+            ids.add(order.getId());
+        }
+        return ids;
+    }
+    
     public UserTrades getTradeHistory(ApiKey apiKey, int limit) throws ExchangeException {
         try {
             Exchange exchange = getExchange(apiKey);
@@ -260,7 +330,7 @@ public class ExchangeService {
         }
     }
     
-    private CurrencyPair parseCurrencyPair(String symbol) {
+    static CurrencyPair parseCurrencyPair(String symbol) {
         // Handle different symbol formats (e.g., "BTCUSDT", "BTC/USDT", "BTC-USDT")
         String normalizedSymbol = symbol.replace("/", "").replace("-", "").toUpperCase();
         
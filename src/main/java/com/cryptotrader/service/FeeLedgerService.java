@@ -0,0 +1,221 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.FeeRollup;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.FeeRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fee ledger: running fee totals per (user, exchange, fee currency, month), split by maker and
+ * taker. Each fill adds its delta with one upsert where the fill is applied, so fee analytics
+ * read a few rollup rows instead of scanning trades.
+ */
+@Service
+public class FeeLedgerService {
+
+    private static final String COLUMNS = "user_id, exchange, currency, fee_month, maker_fills, taker_fills, " +
+            "maker_fees, taker_fees, maker_volume, taker_volume, updated_at";
+
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO fee_rollups (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, exchange, currency, fee_month) DO UPDATE SET " +
+            "maker_fills = fee_rollups.maker_fills + EXCLUDED.maker_fills, " +
+            "taker_fills = fee_rollups.taker_fills + EXCLUDED.taker_fills, " +
+            "maker_fees = fee_rollups.maker_fees + EXCLUDED.maker_fees, " +
+            "taker_fees = fee_rollups.taker_fees + EXCLUDED.taker_fees, " +
+            "maker_volume = fee_rollups.maker_volume + EXCLUDED.maker_volume, " +
+            "taker_volume = fee_rollups.taker_volume + EXCLUDED.taker_volume, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // Standard SQL MERGE for H2 and other non-PostgreSQL databases
+    private static final String MERGE_UPSERT =
+            "MERGE INTO fee_rollups r USING (SELECT CAST(? AS BIGINT) AS user_id, CAST(? AS VARCHAR(255)) AS exchange, " +
+            "CAST(? AS VARCHAR(255)) AS currency, CAST(? AS DATE) AS fee_month, CAST(? AS BIGINT) AS maker_fills, " +
+            "CAST(? AS BIGINT) AS taker_fills, CAST(? AS DECIMAL(28, 8)) AS maker_fees, CAST(? AS DECIMAL(28, 8)) AS taker_fees, " +
+            "CAST(? AS DECIMAL(28, 8)) AS maker_volume, CAST(? AS DECIMAL(28, 8)) AS taker_volume, " +
+            "CAST(? AS TIMESTAMP) AS updated_at) d " +
+            "ON r.user_id = d.user_id AND r.exchange = d.exchange AND r.currency = d.currency AND r.fee_month = d.fee_month " +
+            "WHEN MATCHED THEN UPDATE SET maker_fills = r.maker_fills + d.maker_fills, taker_fills = r.taker_fills + d.taker_fills, " +
+            "maker_fees = r.maker_fees + d.maker_fees, taker_fees = r.taker_fees + d.taker_fees, " +
+            "maker_volume = r.maker_volume + d.maker_volume, taker_volume = r.taker_volume + d.taker_volume, " +
+            "updated_at = d.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (d.user_id, d.exchange, d.currency, d.fee_month, " +
+            "d.maker_fills, d.taker_fills, d.maker_fees, d.taker_fees, d.maker_volume, d.taker_volume, d.updated_at)";
+
+    private static final int RATE_SCALE = 8;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FeeRollupRepository feeRollupRepository;
+
+    private String upsertSql;
+
+    @PostConstruct
+    public void init() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        upsertSql = "PostgreSQL".equalsIgnoreCase(product) ? POSTGRES_UPSERT : MERGE_UPSERT;
+    }
+
+    /**
+     * Records one fill. Called by the paper engine as it applies the fill, not from the trade row
+     * update, which the write-behind buffer may merge or retry; each fill is written exactly once.
+     */
+    public void recordFill(Long userId, String exchange, String symbol, boolean maker, BigDecimal quantity,
+                           BigDecimal cost, BigDecimal fee, String feeCurrency) {
+        if (fee == null || feeCurrency == null) {
+            return;
+        }
+
+        FeeDelta delta = new FeeDelta(userId, exchange.toLowerCase(), feeCurrency.toUpperCase(),
+                LocalDate.now().withDayOfMonth(1));
+        delta.add(maker, fee, volumeIn(feeCurrency, symbol, quantity, cost));
+        write(delta);
+    }
+
+    /**
+     * Fee totals and effective rates per exchange and fee currency, plus the monthly rows they
+     * were summed from, covering the current month and the {@code months - 1} before it.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getFeeAnalytics(User user, int months) {
+        LocalDate fromMonth = LocalDate.now().withDayOfMonth(1).minusMonths(months - 1L);
+
+        Map<String, FeeDelta> totals = new LinkedHashMap<>();
+        List<Map<String, Object>> monthly = new ArrayList<>();
+        for (FeeRollup row : feeRollupRepository.findByUserSince(user.getId(), fromMonth)) {
+            FeeDelta delta = new FeeDelta(row.getUserId(), row.getExchange(), row.getCurrency(), row.getFeeMonth());
+            delta.makerFills = row.getMakerFills();
+            delta.takerFills = row.getTakerFills();
+            delta.makerFees = row.getMakerFees();
+            delta.takerFees = row.getTakerFees();
+            delta.makerVolume = row.getMakerVolume();
+            delta.takerVolume = row.getTakerVolume();
+
+            Map<String, Object> month = toAnalytics(delta);
+            month.put("month", row.getFeeMonth().toString().substring(0, 7));
+            monthly.add(month);
+
+            FeeDelta total = new FeeDelta(row.getUserId(), row.getExchange(), row.getCurrency(), fromMonth);
+            totals.merge(row.getExchange() + "|" + row.getCurrency(), total.merge(delta), FeeDelta::merge);
+        }
+
+        List<Map<String, Object>> summary = new ArrayList<>();
+        for (FeeDelta total : totals.values()) {
+            summary.add(toAnalytics(total));
+        }
+
+        Map<String, Object> analytics = new HashMap<>();
+        analytics.put("fromMonth", fromMonth.toString().substring(0, 7));
+        analytics.put("totals", summary);
+        analytics.put("monthly", monthly);
+        return analytics;
+    }
+
+    private static Map<String, Object> toAnalytics(FeeDelta delta) {
+        BigDecimal fees = delta.makerFees.add(delta.takerFees);
+        BigDecimal volume = delta.makerVolume.add(delta.takerVolume);
+
+        Map<String, Object> analytics = new LinkedHashMap<>();
+        analytics.put("exchange", delta.exchange);
+        analytics.put("currency", delta.currency);
+        analytics.put("totalFees", fees);
+        analytics.put("makerFees", delta.makerFees);
+        analytics.put("takerFees", delta.takerFees);
+        analytics.put("makerFills", delta.makerFills);
+        analytics.put("takerFills", delta.takerFills);
+        analytics.put("volume", volume);
+        analytics.put("effectiveFeeRate", rate(fees, volume));
+        analytics.put("makerFeeRate", rate(delta.makerFees, delta.makerVolume));
+        analytics.put("takerFeeRate", rate(delta.takerFees, delta.takerVolume));
+        analytics.put("makerVolumeShare", rate(delta.makerVolume, volume));
+        return analytics;
+    }
+
+    // Null when there is no volume to relate the amount to
+    private static BigDecimal rate(BigDecimal amount, BigDecimal volume) {
+        return volume.signum() > 0 ? amount.divide(volume, RATE_SCALE, RoundingMode.HALF_UP) : null;
+    }
+
+    // Volume in the fee currency: cost for quote-currency fees, quantity for base-currency fees
+    private static BigDecimal volumeIn(String feeCurrency, String symbol, BigDecimal quantity, BigDecimal cost) {
+        int slash = symbol.indexOf('/');
+        if (slash < 0) {
+            return BigDecimal.ZERO;
+        }
+        if (feeCurrency.equalsIgnoreCase(symbol.substring(slash + 1))) {
+            return cost != null ? cost : BigDecimal.ZERO;
+        }
+        if (feeCurrency.equalsIgnoreCase(symbol.substring(0, slash))) {
+            return quantity != null ? quantity : BigDecimal.ZERO;
+        }
+        // Charged in a third currency (e.g. an exchange token); no rate can be derived
+        return BigDecimal.ZERO;
+    }
+
+    private void write(FeeDelta delta) {
+        jdbcTemplate.update(upsertSql, delta.userId, delta.exchange, delta.currency, java.sql.Date.valueOf(delta.month),
+                delta.makerFills, delta.takerFills, delta.makerFees, delta.takerFees,
+                delta.makerVolume, delta.takerVolume, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private static final class FeeDelta {
+        private final Long userId;
+        private final String exchange;
+        private final String currency;
+        private final LocalDate month;
+        private long makerFills;
+        private long takerFills;
+        private BigDecimal makerFees = BigDecimal.ZERO;
+        private BigDecimal takerFees = BigDecimal.ZERO;
+        private BigDecimal makerVolume = BigDecimal.ZERO;
+        private BigDecimal takerVolume = BigDecimal.ZERO;
+
+        private FeeDelta(Long userId, String exchange, String currency, LocalDate month) {
+            this.userId = userId;
+            this.exchange = exchange;
+            this.currency = currency;
+            this.month = month;
+        }
+
+        private void add(boolean maker, BigDecimal fee, BigDecimal volume) {
+            if (maker) {
+                makerFills++;
+                makerFees = makerFees.add(fee);
+                makerVolume = makerVolume.add(volume);
+            } else {
+                takerFills++;
+                takerFees = takerFees.add(fee);
+                takerVolume = takerVolume.add(volume);
+            }
+        }
+
+        private FeeDelta merge(FeeDelta other) {
+            makerFills += other.makerFills;
+            takerFills += other.takerFills;
+            makerFees = makerFees.add(other.makerFees);
+            takerFees = takerFees.add(other.takerFees);
+            makerVolume = makerVolume.add(other.makerVolume);
+            takerVolume = takerVolume.add(other.takerVolume);
+            return this;
+        }
+    }
+}
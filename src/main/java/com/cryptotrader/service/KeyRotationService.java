@@ -0,0 +1,345 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.config.CacheConfig;
+import com.cryptotrader.entity.KeyRotationCheckpoint;
+import com.cryptotrader.repository.KeyRotationCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves stored API credentials onto the active encryption key.
+ *
+ * After a key change (new app.security.encryption.key and key-id, with the old key kept in
+ * previous-keys) the job walks api_keys in id order, one page at a time, re-encrypts the rows
+ * still under another key on a small worker pool and writes them back in chunks. Each chunk
+ * is its own short transaction that locks only its rows, re-checks that they were not changed
+ * meanwhile, and advances the checkpoint, so the job runs online and resumes where it stopped.
+ * Once it completes, the old key can be removed from the ring.
+ *
+ * Only one instance rotates at a time: a run first takes a lease on the checkpoint row, renews
+ * it with every chunk and stops as soon as a renewal finds it taken over.
+ */
+@Service
+public class KeyRotationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyRotationService.class);
+
+    private static final String PAGE_SQL = "SELECT id, encrypted_api_key, encrypted_api_secret, encrypted_passphrase " +
+            "FROM api_keys WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_SQL = "UPDATE api_keys SET encrypted_api_key = ?, encrypted_api_secret = ?, " +
+            "encrypted_passphrase = ? WHERE id = ?";
+
+    private static final String ACQUIRE_LEASE_SQL = "UPDATE key_rotation_checkpoints SET lease_owner = ?, lease_until = ? " +
+            "WHERE target_key_id = ? AND (lease_owner IS NULL OR lease_owner = ? OR lease_until < ?)";
+
+    private static final String RENEW_LEASE_SQL = "UPDATE key_rotation_checkpoints SET lease_until = ? " +
+            "WHERE target_key_id = ? AND lease_owner = ?";
+
+    private static final String RELEASE_LEASE_SQL = "UPDATE key_rotation_checkpoints SET lease_owner = NULL, lease_until = NULL " +
+            "WHERE target_key_id = ? AND lease_owner = ?";
+
+    @Value("${app.security.encryption.rotation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.security.encryption.rotation.page-size:500}")
+    private int pageSize;
+
+    @Value("${app.security.encryption.rotation.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.security.encryption.rotation.threads:2}")
+    private int threads;
+
+    // Pause between chunks, leaving the database to regular traffic
+    @Value("${app.security.encryption.rotation.pause-ms:20}")
+    private long pauseMs;
+
+    // How long a run that stops renewing (e.g. its instance died) keeps other instances out
+    @Value("${app.security.encryption.rotation.lease-ms:300000}")
+    private long leaseMs;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Autowired
+    private KeyRotationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private ExecutorService coordinator;
+    private ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final String leaseOwner = UUID.randomUUID().toString();
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void init() {
+        // Own threads, so a long rotation never holds up the shared scheduler
+        coordinator = Executors.newSingleThreadExecutor(runnable -> newThread(runnable, "key-rotation"));
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(threads, 1),
+                runnable -> newThread(runnable, "key-rotation-worker-" + count.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        start();
+    }
+
+    // Sweeps again later for rows written under an old key meanwhile, e.g. by instances not yet restarted
+    @Scheduled(initialDelayString = "${app.security.encryption.rotation.interval-ms:3600000}",
+               fixedDelayString = "${app.security.encryption.rotation.interval-ms:3600000}")
+    public void sweep() {
+        start();
+    }
+
+    /**
+     * Starts a rotation run in the background unless one is already running.
+     */
+    public boolean start() {
+        if (!enabled || stopping || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        coordinator.execute(() -> {
+            try {
+                rotate();
+            } catch (Exception e) {
+                logger.error("Key rotation to {} stopped: {}", encryptionService.getKeyId(), e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void rotate() throws InterruptedException {
+        String target = encryptionService.getKeyId();
+        if (!acquireLease(target)) {
+            logger.debug("Key rotation to {} is running on another instance", target);
+            return;
+        }
+        try {
+            rotate(target);
+        } finally {
+            jdbcTemplate.update(RELEASE_LEASE_SQL, target, leaseOwner);
+        }
+    }
+
+    private void rotate(String target) throws InterruptedException {
+        // Read under the lease, so it includes the progress of whichever instance ran before
+        KeyRotationCheckpoint checkpoint = checkpointRepository.findById(target)
+                .orElseThrow(() -> new IllegalStateException("Missing checkpoint for " + target));
+        if (checkpoint.isCompleted()) {
+            checkpoint.restart();
+        }
+        long rotatedBefore = checkpoint.getRowsRotated();
+        long started = System.currentTimeMillis();
+
+        long lastId = checkpoint.getLastId();
+        while (!stopping) {
+            // Outside any transaction, so the read goes to the primary and holds no locks
+            List<Row> page = jdbcTemplate.query(PAGE_SQL, (rs, rowNum) -> new Row(rs.getLong(1), rs.getString(2),
+                    rs.getString(3), rs.getString(4)), lastId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            long pageEnd = page.get(page.size() - 1).id;
+
+            List<Row> stale = new ArrayList<>();
+            for (Row row : page) {
+                if (encryptionService.needsReencryption(row.apiKey) || encryptionService.needsReencryption(row.apiSecret)
+                        || encryptionService.needsReencryption(row.passphrase)) {
+                    stale.add(row);
+                }
+            }
+
+            // Batches are encrypted in parallel but committed in id order, so the checkpoint never skips a row
+            List<CompletableFuture<List<Row>>> batches = new ArrayList<>();
+            for (int from = 0; from < stale.size(); from += batchSize) {
+                List<Row> batch = stale.subList(from, Math.min(from + batchSize, stale.size()));
+                batches.add(CompletableFuture.supplyAsync(() -> reencrypt(batch), workers));
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                List<Row> batch = stale.subList(i * batchSize, Math.min((i + 1) * batchSize, stale.size()));
+                List<Row> reencrypted = batches.get(i).join();
+                long batchEnd = i == batches.size() - 1 ? pageEnd : batch.get(batch.size() - 1).id;
+                commit(checkpoint, batch, reencrypted, batchEnd);
+                Thread.sleep(pauseMs);
+            }
+            if (batches.isEmpty()) {
+                commit(checkpoint, Collections.emptyList(), Collections.emptyList(), pageEnd);
+            }
+            lastId = pageEnd;
+        }
+
+        if (!stopping) {
+            checkpoint.complete();
+            transactionTemplate.executeWithoutResult(status -> {
+                renewLease(target);
+                checkpointRepository.save(checkpoint);
+            });
+        }
+
+        // Cached entities still hold the previous ciphertexts
+        Cache activeApiKeys = cacheManager.getCache(CacheConfig.ACTIVE_API_KEYS);
+        if (activeApiKeys != null) {
+            activeApiKeys.clear();
+        }
+
+        long rotated = checkpoint.getRowsRotated() - rotatedBefore;
+        if (rotated > 0 || checkpoint.getRowsFailed() > 0) {
+            logger.info("Key rotation to {} {}: {} rows re-encrypted in {} ms, {} failed this sweep", target,
+                    stopping ? "paused" : "complete", rotated, System.currentTimeMillis() - started, checkpoint.getRowsFailed());
+        }
+    }
+
+    // Returns the rows that could be re-encrypted, with their new values; the rest are logged and skipped
+    private List<Row> reencrypt(List<Row> batch) {
+        List<Row> out = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            try {
+                out.add(new Row(row.id, encryptionService.reencrypt(row.apiKey), encryptionService.reencrypt(row.apiSecret),
+                        encryptionService.reencrypt(row.passphrase)));
+            } catch (RuntimeException e) {
+                logger.warn("Cannot re-encrypt api key {}: {}", row.id, e.getMessage());
+            }
+        }
+        return out;
+    }
+
+    // Creates the checkpoint row on first use, then takes the lease if it is free, expired or already ours
+    private boolean acquireLease(String target) {
+        if (!checkpointRepository.existsById(target)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> checkpointRepository.saveAndFlush(new KeyRotationCheckpoint(target)));
+            } catch (DataIntegrityViolationException e) {
+                // Created by another instance meanwhile
+            }
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(ACQUIRE_LEASE_SQL, leaseOwner, leaseUntil(), target, leaseOwner, now) > 0;
+    }
+
+    // Runs in the chunk's transaction: a run that lost its lease rolls the chunk back and stops
+    private void renewLease(String target) {
+        if (jdbcTemplate.update(RENEW_LEASE_SQL, leaseUntil(), target, leaseOwner) == 0) {
+            throw new IllegalStateException("Lease on key rotation to " + target + " was taken over");
+        }
+    }
+
+    private Timestamp leaseUntil() {
+        return Timestamp.valueOf(LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+    }
+
+    private void commit(KeyRotationCheckpoint checkpoint, List<Row> original, List<Row> reencrypted, long throughId) {
+        long[] counts = transactionTemplate.execute(status -> {
+            renewLease(checkpoint.getTargetKeyId());
+            Map<Long, Row> before = new HashMap<>();
+            for (Row row : original) {
+                before.put(row.id, row);
+            }
+
+            // Locks just these rows; one changed or deleted since the page was read is left for the next sweep
+            List<Object[]> updates = new ArrayList<>();
+            if (!reencrypted.isEmpty()) {
+                String ids = String.join(",", Collections.nCopies(reencrypted.size(), "?"));
+                Map<Long, Row> current = new HashMap<>();
+                jdbcTemplate.query("SELECT id, encrypted_api_key, encrypted_api_secret, encrypted_passphrase FROM api_keys " +
+                                "WHERE id IN (" + ids + ") FOR UPDATE",
+                        rs -> {
+                            current.put(rs.getLong(1), new Row(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                        },
+                        reencrypted.stream().map(row -> row.id).toArray());
+                for (Row row : reencrypted) {
+                    Row read = before.get(row.id);
+                    if (read != null && read.sameValues(current.get(row.id))) {
+                        updates.add(new Object[] { row.apiKey, row.apiSecret, row.passphrase, row.id });
+                    }
+                }
+                if (!updates.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                }
+            }
+
+            long failed = original.size() - reencrypted.size();
+            checkpoint.advance(throughId, updates.size(), failed);
+            checkpointRepository.save(checkpoint);
+            return new long[] { updates.size(), failed };
+        });
+        logger.debug("Key rotation through api key {}: {} re-encrypted, {} failed", throughId, counts[0], counts[1]);
+    }
+
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    }
+
+    private static final class Row {
+        private final long id;
+        private final String apiKey;
+        private final String apiSecret;
+        private final String passphrase;
+
+        private Row(long id, String apiKey, String apiSecret, String passphrase) {
+            this.id = id;
+            this.apiKey = apiKey;
+            this.apiSecret = apiSecret;
+            this.passphrase = passphrase;
+        }
+
+        private boolean sameValues(Row other) {
+            return other != null && Objects.equals(apiKey, other.apiKey) && Objects.equals(apiSecret, other.apiSecret)
+                    && Objects.equals(passphrase, other.passphrase);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.config.CacheConfig;
+import com.cryptotrader.entity.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Failed login counters and lockouts, kept in memory and written behind.
+ *
+ * Attempts only touch a striped in-memory table, so a brute-force burst costs a lock on one
+ * stripe per attempt rather than a database write. Lockouts are enforced from this table
+ * before the password is even checked. Changed counters are written in one JDBC batch
+ * periodically, or early once enough have piled up; a new lockout is written at once since it
+ * also revokes the user's tokens.
+ *
+ * Failures are written as increments and lockouts only ever extend locked_until, so instances
+ * flushing for the same user add up instead of overwriting each other; only a successful login
+ * writes absolute values. Each attempt merges the user's freshly loaded row into the local
+ * entry, so failures and lockouts flushed by another instance count here too.
+ */
+@Service
+public class LoginAttemptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginAttemptService.class);
+
+    private static final String INCREMENT_SQL = "UPDATE users SET " +
+            "failed_login_attempts = COALESCE(failed_login_attempts, 0) + ?, locked_until = GREATEST(locked_until, ?), " +
+            "security_version = security_version + ?, updated_at = ? WHERE id = ?";
+
+    // After a successful login, which clears whatever other instances had counted
+    private static final String RESET_SQL = "UPDATE users SET failed_login_attempts = ?, locked_until = ?, " +
+            "security_version = security_version + ?, updated_at = ? WHERE id = ?";
+
+    @Value("${app.security.login-attempts.max-failures:5}")
+    private int maxFailures;
+
+    @Value("${app.security.login-attempts.lock-minutes:15}")
+    private long lockMinutes;
+
+    @Value("${app.security.login-attempts.stripes:64}")
+    private int stripeCount;
+
+    // Changed users that trigger a flush before the next scheduled one
+    @Value("${app.security.login-attempts.flush-threshold:1000}")
+    private int flushThreshold;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Stripe[] stripes;
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        // A power of two, so the stripe is picked with a mask
+        int size = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-attempt-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    // A lockout written by another instance is on the loaded row even while this instance has an entry
+    public boolean isLocked(User user) {
+        if (!user.isAccountNonLocked()) {
+            return true;
+        }
+        Stripe stripe = stripeFor(user.getId());
+        synchronized (stripe) {
+            Attempts attempts = stripe.entries.get(user.getId());
+            return attempts != null && attempts.lockedUntil > System.currentTimeMillis();
+        }
+    }
+
+    public void recordFailure(User user) {
+        boolean locked = false;
+        Stripe stripe = stripeFor(user.getId());
+        synchronized (stripe) {
+            Attempts attempts = stripe.entries.computeIfAbsent(user.getId(), id -> new Attempts(user));
+            attempts.merge(user);
+            attempts.failures++;
+            attempts.pendingFailures++;
+            if (attempts.failures >= maxFailures && attempts.lockedUntil <= System.currentTimeMillis()) {
+                attempts.lockedUntil = System.currentTimeMillis() + lockMinutes * 60_000;
+                attempts.newLocks++;
+                locked = true;
+            }
+            markDirty(attempts);
+        }
+        if (locked) {
+            logger.warn("Locked user {} for {} minutes after {} failed logins", user.getId(), lockMinutes, maxFailures);
+            requestFlush();
+        } else if (dirtyCount.get() >= flushThreshold) {
+            requestFlush();
+        }
+    }
+
+    // Writes only when there is something to reset, so a normal login costs no write at all
+    public void recordSuccess(User user) {
+        Stripe stripe = stripeFor(user.getId());
+        synchronized (stripe) {
+            Attempts attempts = stripe.entries.get(user.getId());
+            if (attempts == null) {
+                Integer stored = user.getFailedLoginAttempts();
+                if ((stored == null || stored == 0) && user.getLockedUntil() == null) {
+                    return;
+                }
+                attempts = new Attempts(user);
+                stripe.entries.put(user.getId(), attempts);
+            } else {
+                attempts.merge(user);
+            }
+            if (attempts.failures == 0 && attempts.lockedUntil == 0 && !attempts.dirty) {
+                return;
+            }
+            attempts.failures = 0;
+            attempts.pendingFailures = 0;
+            attempts.lockedUntil = 0;
+            attempts.reset = true;
+            markDirty(attempts);
+        }
+        if (dirtyCount.get() >= flushThreshold) {
+            requestFlush();
+        }
+    }
+
+    public int getPendingCount() {
+        return dirtyCount.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-attempts.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        flushRequested.set(false);
+        List<Object[]> increments = new ArrayList<>();
+        List<Object[]> resets = new ArrayList<>();
+        List<Attempts> flushed = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Attempts attempts : stripe.entries.values()) {
+                    if (!attempts.dirty) {
+                        continue;
+                    }
+                    Timestamp lockedUntil = attempts.lockedUntil > 0 ? new Timestamp(attempts.lockedUntil) : null;
+                    int bump = attempts.newLocks > 0 ? 1 : 0;
+                    if (attempts.reset) {
+                        resets.add(new Object[] { attempts.pendingFailures, lockedUntil, bump, now, attempts.userId });
+                    } else {
+                        increments.add(new Object[] { attempts.pendingFailures, lockedUntil, bump, now, attempts.userId });
+                    }
+                    attempts.flushedFailures = attempts.pendingFailures;
+                    attempts.flushedReset = attempts.reset;
+                    attempts.flushedLocks = attempts.newLocks;
+                    attempts.pendingFailures = 0;
+                    attempts.reset = false;
+                    attempts.newLocks = 0;
+                    attempts.dirty = false;
+                    dirtyCount.decrementAndGet();
+                    flushed.add(attempts);
+                }
+            }
+        }
+        if (flushed.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!resets.isEmpty()) {
+                    jdbcTemplate.batchUpdate(RESET_SQL, resets);
+                }
+                if (!increments.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INCREMENT_SQL, increments);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Failed to write {} login attempt counters, retrying next flush: {}", flushed.size(), e.getMessage());
+            for (Attempts attempts : flushed) {
+                Stripe stripe = stripeFor(attempts.userId);
+                synchronized (stripe) {
+                    // A success since the snapshot supersedes what the failed write carried
+                    if (!attempts.reset) {
+                        attempts.pendingFailures += attempts.flushedFailures;
+                        attempts.reset = attempts.flushedReset;
+                    }
+                    attempts.newLocks += attempts.flushedLocks;
+                    markDirty(attempts);
+                }
+            }
+            return;
+        }
+
+        // A lockout bumped the security version, which token checks cache
+        Cache versions = cacheManager.getCache(CacheConfig.SECURITY_VERSIONS);
+        for (Attempts attempts : flushed) {
+            if (attempts.flushedLocks > 0) {
+                versions.evict(attempts.userId);
+            }
+        }
+
+        // Entries are written; the next attempt rebuilds them from the merged row
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Attempts> it = stripe.entries.values().iterator();
+                while (it.hasNext()) {
+                    if (!it.next().dirty) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        logger.debug("Wrote {} login attempt counters", flushed.size());
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true) && !flushExecutor.isShutdown()) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    private void markDirty(Attempts attempts) {
+        if (!attempts.dirty) {
+            attempts.dirty = true;
+            dirtyCount.incrementAndGet();
+        }
+    }
+
+    private Stripe stripeFor(Long userId) {
+        return stripes[Long.hashCode(userId * 0x9e3779b97f4a7c15L) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        private final Map<Long, Attempts> entries = new HashMap<>();
+    }
+
+    // Guarded by its stripe's monitor
+    private static final class Attempts {
+        private final Long userId;
+        private int failures; // merged count the lockout is decided on
+        private long lockedUntil; // epoch millis, 0 when not locked
+        private int pendingFailures; // failures not yet added to the row
+        private boolean reset; // a successful login not yet written
+        private int newLocks; // lockouts not yet written; writing one revokes the user's tokens
+        private int flushedFailures;
+        private boolean flushedReset;
+        private int flushedLocks;
+        private boolean dirty;
+
+        private Attempts(User user) {
+            this.userId = user.getId();
+            merge(user);
+        }
+
+        // The row holds every flushed failure, ours and other instances'; ours not yet flushed come on top
+        private void merge(User user) {
+            if (reset) {
+                return;
+            }
+            int stored = user.getFailedLoginAttempts() != null ? user.getFailedLoginAttempts() : 0;
+            failures = Math.max(failures, stored + pendingFailures);
+            if (user.getLockedUntil() != null) {
+                lockedUntil = Math.max(lockedUntil, user.getLockedUntil().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.exception.ExchangeException;
+import org.knowm.xchange.Exchange;
+import org.knowm.xchange.ExchangeFactory;
+import org.knowm.xchange.ExchangeSpecification;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.knowm.xchange.dto.marketdata.Trade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared public market data. Tickers and order books are fetched through unauthenticated
+ * exchange instances and cached per (exchange, symbol), so upstream load grows with the
+ * number of symbols in use rather than the number of users.
+ */
+@Service
+public class MarketDataCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataCacheService.class);
+
+    @Value("${app.exchanges.sandbox-mode:true}")
+    private boolean sandboxMode;
+
+    @Value("${app.market-data.ticker-ttl-ms:1000}")
+    private long tickerTtlMs;
+
+    @Value("${app.market-data.order-book-ttl-ms:1000}")
+    private long orderBookTtlMs;
+
+    private final Map<String, Exchange> publicExchangeCache = new ConcurrentHashMap<>();
+    private final Map<String, Cached<Ticker>> tickerCache = new ConcurrentHashMap<>();
+    private final Map<String, Cached<OrderBook>> orderBookCache = new ConcurrentHashMap<>();
+
+    public Ticker getTicker(String exchangeName, String symbol) throws ExchangeException {
+        try {
+            // compute() lets concurrent callers share a single upstream request per key
+            return tickerCache.compute(cacheKey(exchangeName, symbol), (key, cached) -> {
+                if (cached != null && cached.isFresh(tickerTtlMs)) {
+                    return cached;
+                }
+                return new Cached<>(fetchTicker(exchangeName, symbol));
+            }).value;
+
+        } catch (Exception e) {
+            logger.error("Failed to get public ticker for {} on {}: {}", symbol, exchangeName, e.getMessage());
+            throw new ExchangeException("Failed to get ticker: " + e.getMessage());
+        }
+    }
+
+    public OrderBook getOrderBook(String exchangeName, String symbol) throws ExchangeException {
+        try {
+            return orderBookCache.compute(cacheKey(exchangeName, symbol), (key, cached) -> {
+                if (cached != null && cached.isFresh(orderBookTtlMs)) {
+                    return cached;
+                }
+                return new Cached<>(fetchOrderBook(exchangeName, symbol));
+            }).value;
+
+        } catch (Exception e) {
+            logger.error("Failed to get order book for {} on {}: {}", symbol, exchangeName, e.getMessage());
+            throw new ExchangeException("Failed to get order book: " + e.getMessage());
+        }
+    }
+
+    // Recent public trades, uncached: each caller keeps its own cursor over them
+    public List<Trade> getRecentTrades(String exchangeName, String symbol) throws ExchangeException {
+        try {
+            return getPublicExchange(exchangeName).getMarketDataService()
+                    .getTrades(ExchangeService.parseCurrencyPair(symbol)).getTrades();
+        } catch (Exception e) {
+            logger.error("Failed to get public trades for {} on {}: {}", symbol, exchangeName, e.getMessage());
+            throw new ExchangeException("Failed to get trades: " + e.getMessage());
+        }
+    }
+
+    private Ticker fetchTicker(String exchangeName, String symbol) {
+        try {
+            return getPublicExchange(exchangeName).getMarketDataService()
+                    .getTicker(ExchangeService.parseCurrencyPair(symbol));
+        } catch (Exception e) {
+            throw new ExchangeException(e.getMessage(), e);
+        }
+    }
+
+    private OrderBook fetchOrderBook(String exchangeName, String symbol) {
+        try {
+            return getPublicExchange(exchangeName).getMarketDataService()
+                    .getOrderBook(ExchangeService.parseCurrencyPair(symbol));
+        } catch (Exception e) {
+            throw new ExchangeException(e.getMessage(), e);
+        }
+    }
+
+    private Exchange getPublicExchange(String exchangeName) {
+        return publicExchangeCache.computeIfAbsent(exchangeName.toLowerCase(), this::createPublicExchange);
+    }
+
+    private Exchange createPublicExchange(String exchangeName) {
+        Class<? extends Exchange> exchangeClass = ExchangeService.SUPPORTED_EXCHANGES.get(exchangeName);
+        if (exchangeClass == null) {
+            throw new ExchangeException("Unsupported exchange: " + exchangeName);
+        }
+
+        ExchangeSpecification spec = new ExchangeSpecification(exchangeClass);
+        if (sandboxMode) {
+            ExchangeService.configureSandboxMode(spec, exchangeName);
+        }
+
+        return ExchangeFactory.INSTANCE.createExchange(spec);
+    }
+
+    private static String cacheKey(String exchangeName, String symbol) {
+        return exchangeName.toLowerCase() + ":" + symbol.toUpperCase();
+    }
+
+    private static final class Cached<T> {
+        private final T value;
+        private final long fetchedAt;
+
+        private Cached(T value) {
+            this.value = value;
+            this.fetchedAt = System.currentTimeMillis();
+        }
+
+        private boolean isFresh(long ttlMs) {
+            return System.currentTimeMillis() - fetchedAt < ttlMs;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.journal.OrderEvent;
+import com.cryptotrader.journal.OrderEventType;
+import com.cryptotrader.journal.OrderJournalFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Append-only audit journal of order lifecycle events in memory-mapped segment files
+ * (see {@link OrderJournalFile}).
+ *
+ * Any thread may call {@link #append}; events go onto a lock-free queue and a single writer
+ * thread assigns sequence numbers and copies them into the mapped segment, so callers never
+ * block on I/O or on each other. The writer forces the segment to disk at most every
+ * force-interval-ms, which bounds how much of the journal a machine crash can lose.
+ */
+@Service
+public class OrderJournalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderJournalService.class);
+
+    @Value("${app.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.journal.dir:data/journal}")
+    private String journalDir;
+
+    @Value("${app.journal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${app.journal.force-interval-ms:10}")
+    private long forceIntervalMs;
+
+    @Autowired
+    private OrderStateStore orderStateStore;
+
+    private final ConcurrentLinkedQueue<OrderEvent> queue = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer payload = ByteBuffer.allocate(OrderJournalFile.MAX_PAYLOAD_SIZE);
+
+    private Path dir;
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence = 1;
+    private long lastForcedAt;
+    private boolean dirty;
+
+    private volatile long lastSequence;
+    private volatile boolean running;
+    private Thread writer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        dir = Paths.get(journalDir);
+        Files.createDirectories(dir);
+        recover();
+
+        running = true;
+        writer = new Thread(this::runWriter, "order-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        logger.info("Order journal open at {}, next sequence {}", dir.toAbsolutePath(), nextSequence);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    public void append(OrderEventType type, Trade trade) {
+        append(OrderEvent.of(type, trade));
+    }
+
+    /**
+     * Inside a transaction the event is held until commit and dropped on rollback, so the
+     * journal and the state built from it only ever record changes that were committed.
+     */
+    public void append(OrderEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingEvents().add(event);
+            return;
+        }
+        enqueue(event);
+    }
+
+    // Sequence of the last event written to the mapped segment
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Replays journaled events from {@code fromSequence}, e.g. to feed a downstream consumer
+     * that tracks its own position. Events still queued for the writer are not included.
+     */
+    public long replay(long fromSequence, Consumer<OrderEvent> consumer) throws IOException {
+        return OrderJournalFile.replay(Paths.get(journalDir), fromSequence, consumer);
+    }
+
+    private void enqueue(OrderEvent event) {
+        queue.offer(event);
+        LockSupport.unpark(writer);
+    }
+
+    // Events of the current transaction, in append order
+    private List<OrderEvent> pendingEvents() {
+        @SuppressWarnings("unchecked")
+        List<OrderEvent> pending = (List<OrderEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        List<OrderEvent> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                created.forEach(OrderJournalService.this::enqueue);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(OrderJournalService.this);
+            }
+        });
+        return created;
+    }
+
+    private void runWriter() {
+        while (running || !queue.isEmpty()) {
+            OrderEvent event;
+            while ((event = queue.poll()) != null) {
+                try {
+                    write(event);
+                    orderStateStore.apply(lastSequence, event);
+                } catch (Exception e) {
+                    logger.error("Failed to journal {} event for trade {}: {}", event.getType(), event.getTradeId(), e.getMessage());
+                }
+            }
+
+            if (dirty && System.currentTimeMillis() - lastForcedAt >= forceIntervalMs) {
+                force();
+            }
+
+            if (queue.isEmpty() && running) {
+                // Woken by the next append; the timeout only serves the pending force
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(dirty ? forceIntervalMs : 1000));
+            }
+        }
+        force();
+    }
+
+    private void write(OrderEvent event) throws IOException {
+        OrderJournalFile.encode(payload, nextSequence, event);
+        int length = payload.remaining();
+        int checksum = OrderJournalFile.checksum(payload);
+
+        if (position + OrderJournalFile.RECORD_HEADER_SIZE + length > segment.limit()) {
+            force();
+            openSegment(nextSequence);
+        }
+
+        segment.putInt(position + 4, checksum);
+        segment.position(position + OrderJournalFile.RECORD_HEADER_SIZE);
+        segment.put(payload);
+        // Written last: a non-zero length is what makes the record visible to readers
+        segment.putInt(position, length);
+
+        position += OrderJournalFile.RECORD_HEADER_SIZE + length;
+        lastSequence = nextSequence++;
+        dirty = true;
+    }
+
+    private void force() {
+        if (segment != null && dirty) {
+            segment.force();
+            dirty = false;
+        }
+        lastForcedAt = System.currentTimeMillis();
+    }
+
+    // Reopens the newest segment at the end of its last intact record
+    private void recover() throws IOException {
+        List<Path> segments = OrderJournalFile.segments(dir);
+        if (segments.isEmpty()) {
+            openSegment(1);
+            return;
+        }
+
+        Path path = segments.get(segments.size() - 1);
+        segment = map(path);
+        long firstSequence = OrderJournalFile.readHeader(segment, path);
+
+        long[] last = { firstSequence - 1 };
+        position = OrderJournalFile.scan(segment, event -> last[0] = event.getSequence());
+        nextSequence = last[0] + 1;
+        lastSequence = last[0];
+
+        if (position + OrderJournalFile.RECORD_HEADER_SIZE <= segment.limit() && segment.getInt(position) != 0) {
+            // A record torn by a crash; clear it so it cannot be mistaken for data later
+            logger.warn("Discarding torn order journal record at {} in {}", position, path);
+            for (int i = position; i < segment.limit() && i < position + OrderJournalFile.RECORD_HEADER_SIZE + OrderJournalFile.MAX_PAYLOAD_SIZE; i++) {
+                segment.put(i, (byte) 0);
+            }
+            segment.force();
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = OrderJournalFile.segmentPath(dir, firstSequence);
+        segment = map(path);
+        OrderJournalFile.writeHeader(segment, firstSequence);
+        segment.force();
+        position = OrderJournalFile.HEADER_SIZE;
+        logger.info("Started order journal segment {}", path.getFileName());
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        long size = (long) segmentSizeMb * 1024 * 1024;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Preallocated, so appends never extend the file; the mapping stays valid after close
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        }
+    }
+}
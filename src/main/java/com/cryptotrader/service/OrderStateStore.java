@@ -0,0 +1,342 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.OrderStatus;
+import com.cryptotrader.journal.OrderEvent;
+import com.cryptotrader.journal.OrderJournalFile;
+import com.cryptotrader.journal.OrderState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory state of open orders, built from the order journal.
+ *
+ * Orders are sharded by user id and each shard is owned by one thread that applies its events
+ * in journal order, so users never contend with each other and reads are lock-free. Events
+ * that break the {@link OrderStatus} transition rules are rejected and counted. Orders leave
+ * memory once they reach a terminal state.
+ *
+ * Periodic snapshots record every open order as of a journal sequence; startup loads the
+ * latest snapshot and replays only the journal after it.
+ */
+@Service
+public class OrderStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStateStore.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4f534e50; // "OSNP"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    @Value("${app.journal.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.journal.dir:data/journal}")
+    private String journalDir;
+
+    @Value("${app.orders.state.shards:0}")
+    private int shardCount;
+
+    @Value("${app.orders.state.snapshots-kept:2}")
+    private int snapshotsKept;
+
+    // Opt-in: deletes journal segments that no kept snapshot needs for recovery, and with them the audit trail
+    @Value("${app.orders.state.trim-journal:false}")
+    private boolean trimJournal;
+
+    private final AtomicLong rejectedTransitions = new AtomicLong();
+
+    // Held by the journal writer while dispatching and by the snapshot job while capturing
+    private final Object dispatchLock = new Object();
+    private long lastDispatched;
+    private long lastSnapshotSequence;
+
+    private Shard[] shards;
+    private Path snapshotDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+        }
+        if (!enabled) {
+            return;
+        }
+
+        snapshotDir = Paths.get(journalDir, "snapshots");
+        Files.createDirectories(snapshotDir);
+
+        // Runs before the journal writer starts, so shard maps can be filled from this thread
+        long snapshotSequence = loadSnapshot();
+        long[] last = { snapshotSequence };
+        long replayed = OrderJournalFile.replay(Paths.get(journalDir), snapshotSequence + 1, event -> {
+            if (event.getUserId() != null) {
+                shardFor(event.getUserId()).apply(event.getSequence(), event);
+            }
+            last[0] = event.getSequence();
+        });
+        lastDispatched = last[0];
+        lastSnapshotSequence = snapshotSequence;
+
+        logger.info("Order state recovered: {} open orders from snapshot at {} plus {} journal events",
+                getOpenOrderCount(), snapshotSequence, replayed);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (enabled) {
+            snapshot();
+        }
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Called by the journal writer once an event has a sequence number. Hands the event to
+     * the shard of its user without waiting for it to be applied.
+     */
+    public void apply(long sequence, OrderEvent event) {
+        if (event.getUserId() == null) {
+            logger.debug("Ignoring {} event without a user for trade {}", event.getType(), event.getTradeId());
+            return;
+        }
+        Shard shard = shardFor(event.getUserId());
+        synchronized (dispatchLock) {
+            lastDispatched = sequence;
+            shard.executor.execute(() -> shard.apply(sequence, event));
+        }
+    }
+
+    // False when the journal is disabled, in which case the store never holds any order
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<OrderState> getOpenOrder(Long userId, Long tradeId) {
+        OrderState state = shardFor(userId).orders.get(tradeId);
+        return state != null && state.getUserId() == userId ? Optional.of(state) : Optional.empty();
+    }
+
+    public List<OrderState> getOpenOrders(Long userId) {
+        return shardFor(userId).orders.values().stream()
+                .filter(state -> state.getUserId() == userId)
+                .collect(Collectors.toList());
+    }
+
+    public int getOpenOrderCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.orders.size();
+        }
+        return count;
+    }
+
+    public long getRejectedTransitions() {
+        return rejectedTransitions.get();
+    }
+
+    /**
+     * Writes all open orders as of the last dispatched sequence. Each shard copies its map on
+     * its own thread; since the copy tasks are queued behind every event dispatched before
+     * the capture, together they form a consistent cut of the journal.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.state.snapshot-interval-ms:60000}",
+            initialDelayString = "${app.orders.state.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+
+        long sequence;
+        List<Future<List<OrderState>>> copies = new ArrayList<>(shards.length);
+        synchronized (dispatchLock) {
+            sequence = lastDispatched;
+            if (sequence == lastSnapshotSequence) {
+                return;
+            }
+            for (Shard shard : shards) {
+                copies.add(shard.executor.submit(() -> new ArrayList<>(shard.orders.values())));
+            }
+        }
+
+        try {
+            List<OrderState> states = new ArrayList<>();
+            for (Future<List<OrderState>> copy : copies) {
+                states.addAll(copy.get());
+            }
+            writeSnapshot(sequence, states);
+            lastSnapshotSequence = sequence;
+            pruneSnapshots();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException e) {
+            logger.error("Failed to snapshot order state at sequence {}: {}", sequence, e.getMessage());
+        }
+    }
+
+    private Shard shardFor(Long userId) {
+        return shards[(int) Math.floorMod(userId, (long) shards.length)];
+    }
+
+    private void writeSnapshot(long sequence, List<OrderState> states) throws IOException {
+        Path target = snapshotDir.resolve(String.format("%020d%s", sequence, SNAPSHOT_EXTENSION));
+        Path temp = snapshotDir.resolve(target.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(sequence);
+            out.writeInt(states.size());
+            for (OrderState state : states) {
+                out.writeLong(state.getTradeId());
+                out.writeLong(state.getUserId());
+                out.writeUTF(state.getStatus().name());
+                writeDecimal(out, state.getFilledAmount());
+                writeDecimal(out, state.getAveragePrice());
+                out.writeUTF(state.getExchangeOrderId() != null ? state.getExchangeOrderId() : "");
+                out.writeLong(state.getLastSequence());
+                out.writeLong(state.getUpdatedAtMicros());
+            }
+        }
+        // Readers only ever see complete snapshots
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Wrote order state snapshot {} with {} open orders", target.getFileName(), states.size());
+    }
+
+    // Loads the newest readable snapshot and returns its sequence, or 0 when there is none
+    private long loadSnapshot() throws IOException {
+        List<Path> snapshots = snapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                    throw new IOException("Not an order state snapshot");
+                }
+                long sequence = in.readLong();
+                int count = in.readInt();
+                List<OrderState> states = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    long tradeId = in.readLong();
+                    long userId = in.readLong();
+                    OrderStatus status = OrderStatus.valueOf(in.readUTF());
+                    BigDecimal filledAmount = readDecimal(in);
+                    BigDecimal averagePrice = readDecimal(in);
+                    String exchangeOrderId = in.readUTF();
+                    states.add(new OrderState(tradeId, userId, status, filledAmount, averagePrice,
+                            exchangeOrderId.isEmpty() ? null : exchangeOrderId, in.readLong(), in.readLong()));
+                }
+                for (OrderState state : states) {
+                    shardFor(state.getUserId()).orders.put(state.getTradeId(), state);
+                }
+                return sequence;
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Skipping unreadable order state snapshot {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    private void pruneSnapshots() throws IOException {
+        List<Path> snapshots = snapshots();
+        int pruned = Math.max(snapshots.size() - Math.max(snapshotsKept, 1), 0);
+        for (int i = 0; i < pruned; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+
+        // Recovery may fall back to the oldest kept snapshot, and replays the journal from just after it
+        if (trimJournal && pruned < snapshots.size()) {
+            String name = snapshots.get(pruned).getFileName().toString();
+            long oldestKept = Long.parseLong(name.substring(0, name.length() - SNAPSHOT_EXTENSION.length()));
+            int trimmed = OrderJournalFile.trimBefore(Paths.get(journalDir), oldestKept + 1);
+            if (trimmed > 0) {
+                logger.info("Trimmed {} order journal segments before sequence {}", trimmed, oldestKept + 1);
+            }
+        }
+    }
+
+    // Oldest first; names are zero-padded sequences so they sort numerically
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(snapshotDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeUTF(value != null ? value.toPlainString() : "");
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        String value = in.readUTF();
+        return value.isEmpty() ? null : new BigDecimal(value);
+    }
+
+    private final class Shard {
+
+        // Written only by this shard's thread
+        private final Map<Long, OrderState> orders = new ConcurrentHashMap<>();
+        private final ExecutorService executor;
+
+        private Shard(int index) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-state-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void apply(long sequence, OrderEvent event) {
+            OrderState current = orders.get(event.getTradeId());
+            if (current != null && sequence <= current.getLastSequence()) {
+                return;
+            }
+
+            try {
+                OrderState next = current == null ? OrderState.start(sequence, event) : current.apply(sequence, event);
+                if (next.getStatus().isTerminal()) {
+                    orders.remove(event.getTradeId());
+                } else {
+                    orders.put(event.getTradeId(), next);
+                }
+            } catch (IllegalStateException e) {
+                rejectedTransitions.incrementAndGet();
+                logger.warn("Rejected {} event {}: {}", event.getType(), sequence, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.ApiKey;
+import com.cryptotrader.entity.PaperAccountSnapshot;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.exception.ExchangeException;
+import com.cryptotrader.journal.OrderEvent;
+import com.cryptotrader.repository.PaperAccountSnapshotRepository;
+import com.cryptotrader.repository.TradeRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.knowm.xchange.currency.CurrencyPair;
+import org.knowm.xchange.dto.marketdata.OrderBook;
+import org.knowm.xchange.dto.trade.LimitOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Paper trading: orders for PAPER accounts never leave the process. Fills are simulated by
+ * walking the shared cached order book after a configurable latency, fees are charged in the
+ * quote currency, and balances live in an in-memory ledger that is snapshotted periodically.
+ */
+@Service
+public class PaperTradingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaperTradingService.class);
+
+    private static final int SCALE = 8;
+
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+
+    @Autowired
+    private TradeWriteBehindBuffer tradeWriteBehindBuffer;
+
+    @Autowired
+    private OrderJournalService orderJournalService;
+
+    @Autowired
+    private CandleService candleService;
+
+    @Autowired
+    private PnlService pnlService;
+
+    @Autowired
+    private FeeLedgerService feeLedgerService;
+
+    @Autowired
+    private PaperAccountSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.paper-trading.latency-ms:150}")
+    private long latencyMs;
+
+    @Value("${app.paper-trading.taker-fee-rate:0.001}")
+    private BigDecimal takerFeeRate;
+
+    @Value("${app.paper-trading.maker-fee-rate:0.0008}")
+    private BigDecimal makerFeeRate;
+
+    @Value("${app.paper-trading.initial-balances:USDT=10000,USD=10000,EUR=10000}")
+    private String defaultInitialBalances;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Long, PaperAccount> accounts = new ConcurrentHashMap<>();
+    private final Map<String, PaperOrder> openOrders = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService fillScheduler;
+
+    @PostConstruct
+    public void init() {
+        fillScheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "paper-fill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fillScheduler.shutdown();
+        snapshotAccounts();
+    }
+
+    /**
+     * Re-registers the paper orders that were still open when the process stopped, so they
+     * keep matching. Resting limit orders resume as makers; market orders get their taker fill.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOpenOrders() {
+        List<Object[]> open = tradeRepository.findOpenPaperOrders();
+        for (Object[] row : open) {
+            String orderType = (String) row[5];
+            BigDecimal limitPrice = "LIMIT".equals(Trade.executionOrderType(orderType)) ? (BigDecimal) row[8] : null;
+            String symbol = (String) row[4];
+
+            PaperOrder order = new PaperOrder((String) row[9], (Long) row[0], (Long) row[1], (Long) row[2], (String) row[3],
+                    symbol, ExchangeService.parseCurrencyPair(symbol), "BUY".equals(row[6]), (BigDecimal) row[7], limitPrice);
+            order.filledAmount = row[10] != null ? (BigDecimal) row[10] : BigDecimal.ZERO;
+            order.totalCost = row[11] != null ? (BigDecimal) row[11] : BigDecimal.ZERO;
+            order.totalFee = row[12] != null ? (BigDecimal) row[12] : BigDecimal.ZERO;
+            openOrders.put(order.orderId, order);
+
+            if (limitPrice != null) {
+                order.attempted = true;
+            } else {
+                fillScheduler.schedule(() -> attemptFill(order, true), latencyMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (!open.isEmpty()) {
+            logger.info("Restored {} open paper orders", open.size());
+        }
+    }
+
+    public void openAccount(ApiKey apiKey, Map<String, BigDecimal> initialBalances) {
+        Map<String, BigDecimal> balances = initialBalances != null && !initialBalances.isEmpty()
+                ? initialBalances
+                : parseBalances(defaultInitialBalances);
+
+        PaperAccount account = new PaperAccount(apiKey.getId());
+        balances.forEach((currency, amount) -> account.balances.put(currency.toUpperCase(), amount));
+        accounts.put(apiKey.getId(), account);
+
+        saveSnapshot(account);
+    }
+
+    public void closeAccount(ApiKey apiKey) {
+        accounts.remove(apiKey.getId());
+        openOrders.values().removeIf(order -> order.apiKeyId == apiKey.getId());
+        transactionTemplate.executeWithoutResult(status -> snapshotRepository.deleteByApiKeyId(apiKey.getId()));
+    }
+
+    public Map<String, BigDecimal> getBalances(ApiKey apiKey) {
+        PaperAccount account = getAccount(apiKey.getId());
+        synchronized (account) {
+            Map<String, BigDecimal> balances = new HashMap<>();
+            account.balances.forEach((currency, amount) -> {
+                if (amount.compareTo(BigDecimal.ZERO) > 0) {
+                    balances.put(currency, amount);
+                }
+            });
+            return balances;
+        }
+    }
+
+    public String placeOrder(ApiKey apiKey, Trade trade, CurrencyPair currencyPair) throws ExchangeException {
+        PaperAccount account = getAccount(apiKey.getId());
+        boolean buy = "BUY".equals(trade.getSide());
+        BigDecimal limitPrice = "LIMIT".equals(trade.getExecutionOrderType()) ? trade.getPrice() : null;
+
+        // Reject up front what the ledger obviously cannot cover; the fill re-checks exact cost
+        synchronized (account) {
+            if (buy) {
+                BigDecimal referencePrice = limitPrice != null ? limitPrice : bestPrice(trade.getExchange(), trade.getSymbol(), true);
+                BigDecimal required = trade.getAmount().multiply(referencePrice);
+                if (account.balance(currencyPair.getCounter().getCurrencyCode()).compareTo(required) < 0) {
+                    throw new ExchangeException("Insufficient paper balance: " + currencyPair.getCounter().getCurrencyCode());
+                }
+            } else if (account.balance(currencyPair.getBase().getCurrencyCode()).compareTo(trade.getAmount()) < 0) {
+                throw new ExchangeException("Insufficient paper balance: " + currencyPair.getBase().getCurrencyCode());
+            }
+        }
+
+        PaperOrder order = new PaperOrder("PAPER-" + UUID.randomUUID(), trade.getId(), trade.getUser().getId(), apiKey.getId(),
+                trade.getExchange(), trade.getSymbol(), currencyPair, buy, trade.getAmount(), limitPrice);
+        openOrders.put(order.orderId, order);
+
+        // The trade row only becomes visible to the fill once the placing transaction commits
+        Runnable scheduleFill = () -> fillScheduler.schedule(() -> attemptFill(order, true), latencyMs, TimeUnit.MILLISECONDS);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleFill.run();
+                }
+            });
+        } else {
+            scheduleFill.run();
+        }
+
+        return order.orderId;
+    }
+
+    public boolean cancelOrder(ApiKey apiKey, String orderId) {
+        PaperOrder order = openOrders.get(orderId);
+        if (order == null || order.apiKeyId != apiKey.getId()) {
+            return false;
+        }
+
+        synchronized (order) {
+            if (openOrders.remove(orderId) == null) {
+                return false;
+            }
+        }
+        pnlService.onOrderClosed(order.userId, order.tradeId);
+        return true;
+    }
+
+    public Set<String> getOpenOrderIds(ApiKey apiKey) {
+        Set<String> ids = new HashSet<>();
+        for (PaperOrder order : openOrders.values()) {
+            if (order.apiKeyId == apiKey.getId()) {
+                ids.add(order.orderId);
+            }
+        }
+        return ids;
+    }
+
+    public Collection<String> cancelAllOrders(ApiKey apiKey) {
+        List<String> cancelled = new ArrayList<>();
+        for (PaperOrder order : openOrders.values()) {
+            if (order.apiKeyId == apiKey.getId() && cancelOrder(apiKey, order.orderId)) {
+                cancelled.add(order.orderId);
+            }
+        }
+        return cancelled;
+    }
+
+    // Resting limit orders are re-matched against the cached books, one fetch per symbol
+    @Scheduled(fixedDelayString = "${app.paper-trading.match-interval-ms:1000}")
+    public void matchRestingOrders() {
+        for (PaperOrder order : openOrders.values()) {
+            if (order.attempted) {
+                attemptFill(order, false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.paper-trading.snapshot-interval-ms:30000}")
+    public void snapshotAccounts() {
+        for (PaperAccount account : accounts.values()) {
+            if (account.dirty) {
+                saveSnapshot(account);
+            }
+        }
+    }
+
+    private void attemptFill(PaperOrder order, boolean taker) {
+        try {
+            synchronized (order) {
+                if (!openOrders.containsKey(order.orderId)) {
+                    return;
+                }
+                order.attempted = true;
+
+                OrderBook book = marketDataCacheService.getOrderBook(order.exchange, order.symbol);
+                BigDecimal[] fill = simulateFill(book, order);
+                BigDecimal quantity = fill[0];
+                BigDecimal cost = fill[1];
+                if (quantity.signum() == 0) {
+                    return;
+                }
+
+                BigDecimal fee = cost.multiply(taker ? takerFeeRate : makerFeeRate).setScale(SCALE, RoundingMode.HALF_UP);
+                PaperAccount account = getAccount(order.apiKeyId);
+
+                if (!applyToLedger(account, order, quantity, cost, fee)) {
+                    openOrders.remove(order.orderId);
+                    orderJournalService.append(OrderEvent.failed(order.tradeId, order.userId, "Insufficient paper balance"));
+                    pnlService.onOrderClosed(order.userId, order.tradeId);
+                    updateTrade(order, trade -> trade.markAsFailed("Insufficient paper balance"));
+                    return;
+                }
+
+                order.filledAmount = order.filledAmount.add(quantity);
+                order.totalCost = order.totalCost.add(cost);
+                order.totalFee = order.totalFee.add(fee);
+
+                boolean complete = order.filledAmount.compareTo(order.amount) >= 0;
+                if (complete) {
+                    openOrders.remove(order.orderId);
+                }
+
+                BigDecimal averagePrice = order.totalCost.divide(order.filledAmount, SCALE, RoundingMode.HALF_UP);
+                String feeCurrency = order.currencyPair.getCounter().getCurrencyCode();
+                // Journaled at fill time; the row itself catches up on the next write-behind flush
+                orderJournalService.append(OrderEvent.fill(order.tradeId, order.userId, complete, order.filledAmount, averagePrice,
+                        order.totalCost, order.totalFee, feeCurrency));
+                // Before the row update, so a PnL ledger built from the table cannot count the fill twice
+                pnlService.onFill(order.userId, order.tradeId, order.exchange, order.symbol, order.buy ? "BUY" : "SELL",
+                        order.filledAmount, order.totalCost, order.totalFee, feeCurrency, complete);
+                // Recorded here, where the fill is applied, so a buffered row update that is later merged
+                // or retried can neither lose nor repeat it
+                feeLedgerService.recordFill(order.userId, order.exchange, order.symbol, !taker, quantity, cost, fee, feeCurrency);
+                // Cumulative totals, so the update is idempotent and also lands on a row cancelled meanwhile
+                BigDecimal filledAmount = order.filledAmount;
+                BigDecimal totalCost = order.totalCost;
+                BigDecimal totalFee = order.totalFee;
+                updateTrade(order, trade -> {
+                    trade.applyFill(filledAmount, averagePrice, totalCost, complete);
+                    trade.setFee(totalFee, feeCurrency);
+                });
+
+                candleService.onPaperFill(order.exchange, order.symbol, System.currentTimeMillis(),
+                        cost.divide(quantity, SCALE, RoundingMode.HALF_UP));
+            }
+        } catch (Exception e) {
+            logger.warn("Paper fill attempt failed for order {}: {}", order.orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * Walks the opposite side of the book up to the limit price.
+     * Market orders that exhaust the cached depth fill the remainder at the last level seen.
+     */
+    private BigDecimal[] simulateFill(OrderBook book, PaperOrder order) {
+        List<LimitOrder> levels = order.buy ? book.getAsks() : book.getBids();
+        BigDecimal remaining = order.amount.subtract(order.filledAmount);
+        BigDecimal cost = BigDecimal.ZERO;
+        BigDecimal lastPrice = null;
+
+        for (LimitOrder level : levels) {
+            BigDecimal price = level.getLimitPrice();
+            if (order.limitPrice != null && (order.buy ? price.compareTo(order.limitPrice) > 0 : price.compareTo(order.limitPrice) < 0)) {
+                break;
+            }
+
+            BigDecimal quantity = remaining.min(level.getOriginalAmount());
+            cost = cost.add(quantity.multiply(price));
+            remaining = remaining.subtract(quantity);
+            lastPrice = price;
+
+            if (remaining.signum() == 0) {
+                break;
+            }
+        }
+
+        if (order.limitPrice == null && remaining.signum() > 0 && lastPrice != null) {
+            cost = cost.add(remaining.multiply(lastPrice));
+            remaining = BigDecimal.ZERO;
+        }
+
+        BigDecimal filled = order.amount.subtract(order.filledAmount).subtract(remaining);
+        return new BigDecimal[] { filled, cost.setScale(SCALE, RoundingMode.HALF_UP) };
+    }
+
+    private boolean applyToLedger(PaperAccount account, PaperOrder order, BigDecimal quantity, BigDecimal cost, BigDecimal fee) {
+        String base = order.currencyPair.getBase().getCurrencyCode();
+        String counter = order.currencyPair.getCounter().getCurrencyCode();
+
+        synchronized (account) {
+            if (order.buy) {
+                BigDecimal debit = cost.add(fee);
+                if (account.balance(counter).compareTo(debit) < 0) {
+                    return false;
+                }
+                account.credit(counter, debit.negate());
+                account.credit(base, quantity);
+            } else {
+                if (account.balance(base).compareTo(quantity) < 0) {
+                    return false;
+                }
+                account.credit(base, quantity.negate());
+                account.credit(counter, cost.subtract(fee));
+            }
+            account.dirty = true;
+            return true;
+        }
+    }
+
+    private void updateTrade(PaperOrder order, Consumer<Trade> update) {
+        // Fills arrive in bursts, so they go through the write-behind buffer rather than a transaction each
+        tradeWriteBehindBuffer.enqueue(order.tradeId, update);
+    }
+
+    private BigDecimal bestPrice(String exchange, String symbol, boolean buy) {
+        OrderBook book = marketDataCacheService.getOrderBook(exchange, symbol);
+        List<LimitOrder> levels = buy ? book.getAsks() : book.getBids();
+        if (levels.isEmpty()) {
+            throw new ExchangeException("No liquidity in cached order book for " + symbol);
+        }
+        return levels.get(0).getLimitPrice();
+    }
+
+    private PaperAccount getAccount(Long apiKeyId) {
+        return accounts.computeIfAbsent(apiKeyId, this::loadAccount);
+    }
+
+    private PaperAccount loadAccount(Long apiKeyId) {
+        PaperAccount account = new PaperAccount(apiKeyId);
+        Optional<PaperAccountSnapshot> snapshot = snapshotRepository.findByApiKeyId(apiKeyId);
+
+        try {
+            Map<String, BigDecimal> balances = snapshot.isPresent()
+                    ? objectMapper.readValue(snapshot.get().getBalances(), new TypeReference<Map<String, BigDecimal>>() {})
+                    : parseBalances(defaultInitialBalances);
+            account.balances.putAll(balances);
+        } catch (Exception e) {
+            throw new ExchangeException("Failed to load paper account: " + e.getMessage());
+        }
+
+        return account;
+    }
+
+    private void saveSnapshot(PaperAccount account) {
+        try {
+            String balances;
+            synchronized (account) {
+                balances = objectMapper.writeValueAsString(account.balances);
+                account.dirty = false;
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                PaperAccountSnapshot snapshot = snapshotRepository.findByApiKeyId(account.apiKeyId)
+                        .orElseGet(() -> new PaperAccountSnapshot(account.apiKeyId, balances));
+                snapshot.setBalances(balances);
+                snapshotRepository.save(snapshot);
+            });
+        } catch (Exception e) {
+            account.dirty = true;
+            logger.error("Failed to snapshot paper account {}: {}", account.apiKeyId, e.getMessage());
+        }
+    }
+
+    private static Map<String, BigDecimal> parseBalances(String spec) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length == 2) {
+                balances.put(parts[0].trim().toUpperCase(), new BigDecimal(parts[1].trim()));
+            }
+        }
+        return balances;
+    }
+
+    private static final class PaperAccount {
+        private final long apiKeyId;
+        private final Map<String, BigDecimal> balances = new HashMap<>();
+        private volatile boolean dirty;
+
+        private PaperAccount(long apiKeyId) {
+            this.apiKeyId = apiKeyId;
+        }
+
+        private BigDecimal balance(String currency) {
+            return balances.getOrDefault(currency, BigDecimal.ZERO);
+        }
+
+        private void credit(String currency, BigDecimal amount) {
+            balances.merge(currency, amount, BigDecimal::add);
+        }
+    }
+
+    private static final class PaperOrder {
+        private final String orderId;
+        private final Long tradeId;
+        private final Long userId;
+        private final long apiKeyId;
+        private final String exchange;
+        private final String symbol;
+        private final CurrencyPair currencyPair;
+        private final boolean buy;
+        private final BigDecimal amount;
+        private final BigDecimal limitPrice;
+        private BigDecimal filledAmount = BigDecimal.ZERO;
+        private BigDecimal totalCost = BigDecimal.ZERO;
+        private BigDecimal totalFee = BigDecimal.ZERO;
+        private volatile boolean attempted;
+
+        private PaperOrder(String orderId, Long tradeId, Long userId, long apiKeyId, String exchange, String symbol,
+                           CurrencyPair currencyPair, boolean buy, BigDecimal amount, BigDecimal limitPrice) {
+            this.orderId = orderId;
+            this.tradeId = tradeId;
+            this.userId = userId;
+            this.apiKeyId = apiKeyId;
+            this.exchange = exchange;
+            this.symbol = symbol;
+            this.currencyPair = currencyPair;
+            this.buy = buy;
+            this.amount = amount;
+            this.limitPrice = limitPrice;
+        }
+    }
+}
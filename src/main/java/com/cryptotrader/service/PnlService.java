@@ -0,0 +1,177 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.dto.PositionPnl;
+import com.cryptotrader.entity.OrderStatus;
+import com.cryptotrader.portfolio.CostMethod;
+import com.cryptotrader.portfolio.PnlLedger;
+import com.cryptotrader.portfolio.Position;
+import com.cryptotrader.repository.TradeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.knowm.xchange.dto.marketdata.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Live realized and unrealized PnL per user and position.
+ *
+ * Each user's {@link PnlLedger} is built once from their fill history (archived and hot) and
+ * then kept current by applying fills as they happen, so a request only walks the user's
+ * positions. Open positions are marked with the shared ticker cache. Ledgers of inactive
+ * users are evicted and rebuilt on next use.
+ */
+@Service
+public class PnlService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PnlService.class);
+
+    private static final int SCALE = 8;
+
+    @Value("${app.portfolio.pnl.max-ledgers:10000}")
+    private long maxLedgers;
+
+    @Value("${app.portfolio.pnl.idle-ttl-minutes:60}")
+    private long idleTtlMinutes;
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Autowired
+    private MarketDataCacheService marketDataCacheService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Cache<Long, PnlLedger> ledgers;
+
+    @PostConstruct
+    public void init() {
+        ledgers = Caffeine.newBuilder()
+                .maximumSize(maxLedgers)
+                .expireAfterAccess(Duration.ofMinutes(idleTtlMinutes))
+                .build();
+    }
+
+    /**
+     * Records a fill from cumulative order totals. Must be called before the fill is written
+     * to the trade row, so a ledger loaded concurrently never counts it twice.
+     */
+    public void onFill(Long userId, long tradeId, String exchange, String symbol, String side,
+                       BigDecimal filledAmount, BigDecimal totalCost, BigDecimal fee, String feeCurrency,
+                       boolean complete) {
+        ledgers.get(userId, this::load).applyFill(tradeId, exchange, symbol, side, filledAmount.doubleValue(),
+                totalCost.doubleValue(), quoteFee(symbol, fee, feeCurrency), complete);
+    }
+
+    public void onOrderClosed(Long userId, long tradeId) {
+        PnlLedger ledger = ledgers.getIfPresent(userId);
+        if (ledger != null) {
+            ledger.closeOrder(tradeId);
+        }
+    }
+
+    public List<PositionPnl> getPositions(Long userId, CostMethod method) {
+        PnlLedger ledger = ledgers.get(userId, this::load);
+
+        // Prices are looked up before taking the ledger lock, so a slow fetch never stalls fills
+        Set<String> open = new HashSet<>(ledger.mapPositions(position ->
+                position.isFlat() ? null : position.getExchange() + ":" + position.getSymbol()));
+        open.remove(null);
+        Map<String, BigDecimal> markPrices = new HashMap<>();
+        for (String key : open) {
+            String[] parts = key.split(":", 2);
+            try {
+                Ticker ticker = marketDataCacheService.getTicker(parts[0], parts[1]);
+                if (ticker.getLast() != null) {
+                    markPrices.put(key, ticker.getLast());
+                }
+            } catch (Exception e) {
+                logger.warn("No mark price for {} on {}: {}", parts[1], parts[0], e.getMessage());
+            }
+        }
+
+        return ledger.mapPositions(position -> {
+            BigDecimal markPrice = markPrices.get(position.getExchange() + ":" + position.getSymbol());
+            BigDecimal unrealized = position.isFlat() ? BigDecimal.ZERO.setScale(SCALE)
+                    : markPrice != null ? decimal(position.getUnrealized(method, markPrice.doubleValue())) : null;
+            return new PositionPnl(position.getExchange(), position.getSymbol(), quoteCurrency(position.getSymbol()),
+                    decimal(position.getQuantity()), decimal(position.getAverageCost(method)), markPrice,
+                    decimal(position.getRealized(method)), unrealized, decimal(position.getFees()), position.getFills());
+        });
+    }
+
+    // Rebuilds from history on the primary, so fills already applied live are not missing yet
+    private PnlLedger load(Long userId) {
+        long started = System.currentTimeMillis();
+        PnlLedger ledger = new PnlLedger();
+        Set<Long> archivedIds = new HashSet<>();
+
+        tradeArchiveService.forEachArchivedTrade(userId, trade -> {
+            if (trade.getFilledAmount() != null && trade.getFilledAmount().signum() > 0 && archivedIds.add(trade.getId())) {
+                ledger.applyFill(trade.getId(), trade.getExchange(), trade.getSymbol(), trade.getSide(),
+                        trade.getFilledAmount().doubleValue(), filledCost(trade.getTotalCost(), trade.getFilledAmount(), trade.getAveragePrice()),
+                        quoteFee(trade.getSymbol(), trade.getFeeAmount(), trade.getFeeCurrency()), true);
+            }
+        });
+
+        List<Object[]> rows = transactionTemplate.execute(status -> tradeRepository.findFillTotalsByUserId(userId));
+        for (Object[] row : rows) {
+            Long tradeId = (Long) row[0];
+            if (archivedIds.contains(tradeId)) {
+                // Briefly present in both tiers while archiving
+                continue;
+            }
+            String symbol = (String) row[2];
+            BigDecimal filledAmount = (BigDecimal) row[5];
+            boolean complete = OrderStatus.valueOf((String) row[4]).isTerminal();
+            ledger.applyFill(tradeId, (String) row[1], symbol, (String) row[3], filledAmount.doubleValue(),
+                    filledCost((BigDecimal) row[6], filledAmount, (BigDecimal) row[7]),
+                    quoteFee(symbol, (BigDecimal) row[8], (String) row[9]), complete);
+        }
+
+        logger.debug("Built PnL ledger for user {} from {} trades in {} ms", userId,
+                archivedIds.size() + rows.size(), System.currentTimeMillis() - started);
+        return ledger;
+    }
+
+    private static double filledCost(BigDecimal totalCost, BigDecimal filledAmount, BigDecimal averagePrice) {
+        if (totalCost != null && totalCost.signum() > 0) {
+            return totalCost.doubleValue();
+        }
+        return averagePrice != null ? filledAmount.multiply(averagePrice).doubleValue() : 0;
+    }
+
+    // Only fees charged in the quote currency reduce PnL; others are in an asset we do not price
+    private static double quoteFee(String symbol, BigDecimal fee, String feeCurrency) {
+        if (fee == null || feeCurrency == null || !feeCurrency.equalsIgnoreCase(quoteCurrency(symbol))) {
+            return 0;
+        }
+        return fee.doubleValue();
+    }
+
+    private static String quoteCurrency(String symbol) {
+        int slash = symbol.indexOf('/');
+        return slash >= 0 ? symbol.substring(slash + 1) : null;
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+}
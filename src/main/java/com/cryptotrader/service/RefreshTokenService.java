@@ -0,0 +1,143 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.RefreshToken;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.RefreshTokenRepository;
+import com.cryptotrader.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Rotating refresh tokens. Each token can be exchanged once, for a new access token and its
+ * successor; presenting a token that was already exchanged means it leaked, so every token
+ * of that login (its family) is revoked. Tokens are also refused once the user's security
+ * version has moved on (password change, lock, deactivation).
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    @Value("${app.security.jwt.refresh-expiration-ms:1209600000}")
+    private long refreshExpirationMs;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * Starts a new family for a fresh login and returns its first token.
+     */
+    @Transactional
+    public String issue(User user) {
+        return create(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for its successor. Returns the user and the new token, or
+     * empty when the token is unknown, expired, already used or no longer valid for the user.
+     */
+    @Transactional
+    public Optional<Rotation> rotate(String token) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(token));
+        if (!found.isPresent()) {
+            return Optional.empty();
+        }
+
+        RefreshToken current = found.get();
+        if (current.getRevokedAt() != null || current.isExpired()) {
+            return Optional.empty();
+        }
+        if (refreshTokenRepository.markUsed(current.getId(), LocalDateTime.now()) == 0) {
+            logger.warn("Refresh token reused for user {}; revoking its family", current.getUserId());
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), LocalDateTime.now());
+            return Optional.empty();
+        }
+
+        Optional<User> user = userRepository.findById(current.getUserId());
+        if (!user.isPresent() || !user.get().isEnabled() || !user.get().isAccountNonLocked()
+                || user.get().getSecurityVersion() != current.getSecurityVersion()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), LocalDateTime.now());
+            return Optional.empty();
+        }
+
+        return Optional.of(new Rotation(user.get(), create(user.get(), current.getFamilyId())));
+    }
+
+    // Logout ends the whole login, not just the token presented
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.findByTokenHash(hash(token))
+                .ifPresent(current -> refreshTokenRepository.revokeFamily(current.getFamilyId(), LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-interval-ms:600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private String create(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(new RefreshToken(user.getId(), hash(token), familyId, user.getSecurityVersion(),
+                LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMs))));
+        return token;
+    }
+
+    // Tokens carry 256 random bits, so an unsalted digest is enough to make the stored value useless
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static final class Rotation {
+        private final User user;
+        private final String refreshToken;
+
+        private Rotation(User user, String refreshToken) {
+            this.user = user;
+            this.refreshToken = refreshToken;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+}
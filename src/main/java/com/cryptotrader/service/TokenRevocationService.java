@@ -0,0 +1,146 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.RevokedToken;
+import com.cryptotrader.repository.RevokedTokenRepository;
+import com.cryptotrader.security.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Denylist of access tokens (by jti) revoked before they expire.
+ *
+ * Every request consults a Bloom filter first, so the usual not-revoked answer costs a few
+ * bit probes and no map or database lookup; only a filter hit checks the exact set. Entries
+ * are stored so other instances (polling) and restarts pick them up, and are dropped once the
+ * token they name has expired, at which point the filter is rebuilt without them.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Value("${app.security.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${app.security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Revocations committed by other instances are picked up within one poll
+    @Value("${app.security.revocation.sync-interval-ms:5000}")
+    private long syncIntervalMs;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // jti -> expiry of the revoked token, epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+
+    private LocalDateTime lastSync;
+
+    @PostConstruct
+    public void init() {
+        lastSync = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(lastSync)) {
+            revoked.put(token.getJti(), toMillis(token.getExpiresAt()));
+        }
+        rebuildFilter();
+        logger.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(jti);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    /**
+     * Rejects the token from now until it would have expired anyway.
+     */
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        add(jti, expiresAt.getTime());
+        try {
+            revokedTokenRepository.save(new RevokedToken(jti, LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault())));
+        } catch (DataIntegrityViolationException e) {
+            // Already revoked, e.g. a repeated logout
+            logger.debug("Token {} was already revoked", jti);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.sync-interval-ms:5000}")
+    public void syncFromStore() {
+        // Overlaps the previous poll, as a revocation may commit after rows inserted later
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = lastSync.minus(Duration.ofMillis(Math.max(syncIntervalMs, 1000) * 2));
+        List<RevokedToken> recent = transactionTemplate.execute(status ->
+                revokedTokenRepository.findActiveRevokedSince(since, now));
+        for (RevokedToken token : recent) {
+            if (!revoked.containsKey(token.getJti())) {
+                add(token.getJti(), toMillis(token.getExpiresAt()));
+            }
+        }
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        rebuildFilter();
+
+        Integer deleted = transactionTemplate.execute(status ->
+                revokedTokenRepository.deleteExpiredBefore(LocalDateTime.now()));
+        if (before != revoked.size() || (deleted != null && deleted > 0)) {
+            logger.debug("Aged out {} revoked tokens from memory and {} from the store", before - revoked.size(), deleted);
+        }
+    }
+
+    // Adds and rebuilds are serialized so an entry added mid-rebuild is never lost from the filter
+    private synchronized void add(String jti, long expiresAt) {
+        revoked.put(jti, expiresAt);
+        filter.add(jti);
+        if (revoked.size() > filterCapacity) {
+            rebuildFilter();
+        }
+    }
+
+    private synchronized void rebuildFilter() {
+        // Sized with headroom so the false positive rate holds until the next purge
+        filterCapacity = Math.max(expectedEntries, revoked.size() * 2);
+        BloomFilter rebuilt = BloomFilter.create(filterCapacity, falsePositiveRate);
+        for (String jti : revoked.keySet()) {
+            rebuilt.add(jti);
+        }
+        filter = rebuilt;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
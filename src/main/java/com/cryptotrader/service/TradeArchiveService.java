@@ -0,0 +1,488 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.archive.ArchiveSegment;
+import com.cryptotrader.archive.TradeArchiveFile;
+import com.cryptotrader.dto.TradeHistoryCursor;
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.dto.TradeResponse;
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.TradeRepository;
+import com.cryptotrader.repository.TradeRepositoryCustom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier for the trades table. Terminal trades older than the retention window are moved
+ * into monthly compressed columnar files (see {@link TradeArchiveFile}), keeping the hot table
+ * bounded. History and export merge archived rows back in, skipping files by their min/max index.
+ */
+@Service
+public class TradeArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeArchiveService.class);
+
+    private static final Comparator<Trade> HISTORY_ORDER = Comparator
+            .comparing(Trade::getCreatedAt)
+            .thenComparing(Trade::getId);
+
+    private static final Comparator<TradeResponse> RESPONSE_ORDER = Comparator
+            .comparing(TradeResponse::getCreatedAt)
+            .thenComparing(TradeResponse::getId);
+
+    private static final int CREATED_AT_COLUMN = TradeRepositoryCustom.EXPORT_COLUMNS.indexOf("createdAt");
+    private static final int ID_COLUMN = TradeRepositoryCustom.EXPORT_COLUMNS.indexOf("id");
+
+    private static final Map<String, Function<Trade, Object>> EXPORT_GETTERS = Map.ofEntries(
+            Map.entry("id", Trade::getId),
+            Map.entry("exchange", Trade::getExchange),
+            Map.entry("symbol", Trade::getSymbol),
+            Map.entry("orderType", Trade::getOrderType),
+            Map.entry("side", Trade::getSide),
+            Map.entry("amount", Trade::getAmount),
+            Map.entry("price", Trade::getPrice),
+            Map.entry("filledAmount", Trade::getFilledAmount),
+            Map.entry("averagePrice", Trade::getAveragePrice),
+            Map.entry("totalCost", Trade::getTotalCost),
+            Map.entry("feeAmount", Trade::getFeeAmount),
+            Map.entry("feeCurrency", Trade::getFeeCurrency),
+            Map.entry("status", Trade::getStatus),
+            Map.entry("exchangeOrderId", Trade::getExchangeOrderId),
+            Map.entry("createdAt", Trade::getCreatedAt),
+            Map.entry("executedAt", Trade::getExecutedAt),
+            Map.entry("cancelledAt", Trade::getCancelledAt));
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.archive.dir:data/archive/trades}")
+    private String archiveDir;
+
+    @Value("${app.archive.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${app.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.archive.cache-segments:4}")
+    private int cacheSegments;
+
+    // Months never overlap in created_at, so walking this map in order walks history in order
+    private final ConcurrentSkipListMap<YearMonth, List<ArchiveSegment>> segments = new ConcurrentSkipListMap<>();
+
+    private Map<Path, List<Trade>> decodedSegments;
+
+    @PostConstruct
+    public void init() throws IOException {
+        decodedSegments = Collections.synchronizedMap(new LinkedHashMap<Path, List<Trade>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, List<Trade>> eldest) {
+                return size() > cacheSegments;
+            }
+        });
+
+        Path root = Paths.get(archiveDir).toAbsolutePath();
+        if (enabled) {
+            // Archived rows exist nowhere else once deleted, so the directory must sit on durable storage
+            Files.createDirectories(root);
+            if (!Files.isWritable(root)) {
+                throw new IllegalStateException("Trade archive directory is not writable: " + root);
+            }
+            if (!Paths.get(archiveDir).isAbsolute()) {
+                logger.warn("Trade archive directory {} is relative to the working directory; set app.archive.dir " +
+                        "to a path on persistent storage", root);
+            }
+        }
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(TradeArchiveFile.EXTENSION)).collect(Collectors.toList())) {
+                addSegment(TradeArchiveFile.readSegment(file));
+            }
+        }
+
+        logger.info("Loaded trade archive index: {} files across {} months", 
+                   segments.values().stream().mapToInt(List::size).sum(), segments.size());
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 2 * * *}")
+    public void archiveColdTrades() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long started = System.currentTimeMillis();
+        long total = 0;
+        int archived;
+
+        do {
+            archived = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            total += archived;
+        } while (archived >= batchSize);
+
+        if (total > 0) {
+            logger.info("Archived {} trades older than {} in {} ms", total, cutoff, System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * Merges archived rows into a keyset page read from the hot table. {@code hot} holds up to
+     * {@code limit} rows in page order; the result does too.
+     */
+    public List<TradeResponse> unionHistoryPage(List<TradeResponse> hot, User user, TradeHistoryFilter filter,
+                                                TradeHistoryCursor after, boolean ascending, int limit) {
+        if (segments.isEmpty()) {
+            return hot;
+        }
+
+        Comparator<TradeResponse> order = ascending ? RESPONSE_ORDER : RESPONSE_ORDER.reversed();
+
+        // A full hot page bounds how far into the archive a row could still make the page
+        LocalDateTime boundary = hot.size() >= limit ? hot.get(hot.size() - 1).getCreatedAt() : null;
+        LocalDateTime cursor = after != null ? after.getCreatedAt() : null;
+        // The created_at window a row must fall in, checked against each file's min/max before it is opened
+        LocalDateTime from = ascending ? cursor : boundary;
+        LocalDateTime to = ascending ? boundary : cursor;
+        NavigableMap<YearMonth, List<ArchiveSegment>> months = ascending ? segments : segments.descendingMap();
+        YearMonth cursorMonth = cursor != null ? YearMonth.from(cursor) : null;
+        YearMonth boundaryMonth = boundary != null ? YearMonth.from(boundary) : null;
+
+        // Rows can briefly exist in both tiers if archiving crashed before its delete committed
+        Set<Long> seenIds = new HashSet<>();
+        hot.forEach(trade -> seenIds.add(trade.getId()));
+
+        List<TradeResponse> archived = new ArrayList<>();
+        for (Map.Entry<YearMonth, List<ArchiveSegment>> entry : months.entrySet()) {
+            YearMonth month = entry.getKey();
+            if (cursorMonth != null && (ascending ? month.isBefore(cursorMonth) : month.isAfter(cursorMonth))) {
+                continue;
+            }
+            if (archived.size() >= limit
+                    || (boundaryMonth != null && (ascending ? month.isAfter(boundaryMonth) : month.isBefore(boundaryMonth)))) {
+                break;
+            }
+
+            List<TradeResponse> monthRows = new ArrayList<>();
+            for (ArchiveSegment segment : entry.getValue()) {
+                if (!segment.overlaps(from, to)) {
+                    continue;
+                }
+                for (Trade trade : userRows(segment, user.getId())) {
+                    if (filter.matches(trade) && isAfterCursor(trade, after, ascending) && seenIds.add(trade.getId())) {
+                        monthRows.add(TradeResponse.of(trade));
+                    }
+                }
+            }
+            monthRows.sort(order);
+            archived.addAll(monthRows);
+        }
+
+        if (archived.isEmpty()) {
+            return hot;
+        }
+
+        List<TradeResponse> merged = new ArrayList<>(hot.size() + archived.size());
+        merged.addAll(hot);
+        merged.addAll(archived);
+        merged.sort(order);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Merges archived rows into the hot export stream, both oldest first. Archived months are
+     * decoded one at a time, so memory stays bounded by the largest monthly file.
+     */
+    public Iterator<Object[]> unionHistory(Iterator<Object[]> hot, User user, TradeHistoryFilter filter) {
+        if (segments.isEmpty()) {
+            return hot;
+        }
+
+        Iterator<Object[]> archived = new ArchivedRowIterator(new ArrayList<>(segments.values()), user.getId(), filter);
+        return new MergingIterator(hot, archived);
+    }
+
+    /**
+     * Visits every archived trade, e.g. for rebuilding aggregates that also cover the cold tier.
+     */
+    public void forEachArchivedTrade(Consumer<Trade> visitor) {
+        for (List<ArchiveSegment> monthSegments : segments.values()) {
+            for (ArchiveSegment segment : monthSegments) {
+                try {
+                    // Bypasses the cache so a full scan does not evict the segments history reads use
+                    TradeArchiveFile.readTrades(segment.getPath()).forEach(visitor);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits one user's archived trades, oldest month first.
+     */
+    public void forEachArchivedTrade(Long userId, Consumer<Trade> visitor) {
+        for (List<ArchiveSegment> monthSegments : segments.values()) {
+            List<Trade> monthRows = new ArrayList<>();
+            for (ArchiveSegment segment : monthSegments) {
+                monthRows.addAll(userRows(segment, userId));
+            }
+            monthRows.sort(HISTORY_ORDER);
+            monthRows.forEach(visitor);
+        }
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Trade> trades = tradeRepository.findArchivableTrades(cutoff, PageRequest.of(0, batchSize));
+        if (trades.isEmpty()) {
+            return 0;
+        }
+
+        Map<YearMonth, List<Trade>> byMonth = new TreeMap<>();
+        for (Trade trade : trades) {
+            byMonth.computeIfAbsent(YearMonth.from(trade.getCreatedAt()), k -> new ArrayList<>()).add(trade);
+        }
+
+        List<ArchiveSegment> written = new ArrayList<>();
+        registerCompletion(written);
+
+        for (Map.Entry<YearMonth, List<Trade>> entry : byMonth.entrySet()) {
+            List<Trade> monthTrades = entry.getValue();
+            long minId = monthTrades.stream().mapToLong(Trade::getId).min().getAsLong();
+            long maxId = monthTrades.stream().mapToLong(Trade::getId).max().getAsLong();
+            Path path = Paths.get(archiveDir, entry.getKey().toString(), "part-" + minId + "-" + maxId + TradeArchiveFile.EXTENSION);
+
+            try {
+                written.add(TradeArchiveFile.write(path, entry.getKey(), monthTrades));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write trade archive " + path, e);
+            }
+        }
+
+        // Files and their directory entries are synced before the rows go (a failed sync rolls the batch
+        // back); a crash in between only leaves duplicates, which readers skip
+        tradeRepository.deleteAllByIdInBatch(trades.stream().map(Trade::getId).collect(Collectors.toList()));
+        return trades.size();
+    }
+
+    private void registerCompletion(List<ArchiveSegment> written) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    written.forEach(TradeArchiveService.this::addSegment);
+                    return;
+                }
+
+                // The rows are still hot, so the files would only ever hold duplicates
+                for (ArchiveSegment segment : written) {
+                    try {
+                        Files.deleteIfExists(segment.getPath());
+                    } catch (IOException e) {
+                        logger.warn("Failed to remove archive file {} after rollback: {}", segment.getPath(), e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private void addSegment(ArchiveSegment segment) {
+        segments.compute(segment.getMonth(), (month, existing) -> {
+            List<ArchiveSegment> updated = existing != null ? existing : new CopyOnWriteArrayList<>();
+            updated.removeIf(other -> other.getPath().equals(segment.getPath()));
+            updated.add(segment);
+            return updated;
+        });
+        decodedSegments.remove(segment.getPath());
+    }
+
+    // A user's rows in one file, already in ascending history order
+    private List<Trade> userRows(ArchiveSegment segment, long userId) {
+        if (!segment.mayContainUser(userId)) {
+            return List.of();
+        }
+
+        List<Trade> rows = decodedSegments.get(segment.getPath());
+        if (rows == null) {
+            try {
+                rows = TradeArchiveFile.readTrades(segment.getPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            decodedSegments.put(segment.getPath(), rows);
+        }
+
+        int from = firstRowOf(rows, userId);
+        int to = from;
+        while (to < rows.size() && rows.get(to).getUser().getId() == userId) {
+            to++;
+        }
+        return rows.subList(from, to);
+    }
+
+    private static int firstRowOf(List<Trade> rows, long userId) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rows.get(mid).getUser().getId() < userId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isAfterCursor(Trade trade, TradeHistoryCursor after, boolean ascending) {
+        if (after == null) {
+            return true;
+        }
+        int comparison = trade.getCreatedAt().compareTo(after.getCreatedAt());
+        if (comparison == 0) {
+            comparison = trade.getId().compareTo(after.getId());
+        }
+        return ascending ? comparison > 0 : comparison < 0;
+    }
+
+    private static Object[] toExportRow(Trade trade) {
+        List<String> columns = TradeRepositoryCustom.EXPORT_COLUMNS;
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = EXPORT_GETTERS.get(columns.get(i)).apply(trade);
+        }
+        return row;
+    }
+
+    private static int compareRows(Object[] left, Object[] right) {
+        int comparison = ((LocalDateTime) left[CREATED_AT_COLUMN]).compareTo((LocalDateTime) right[CREATED_AT_COLUMN]);
+        return comparison != 0 ? comparison : ((Long) left[ID_COLUMN]).compareTo((Long) right[ID_COLUMN]);
+    }
+
+    // Walks archived months oldest first, decoding one month at a time
+    private final class ArchivedRowIterator implements Iterator<Object[]> {
+        private final Iterator<List<ArchiveSegment>> months;
+        private final long userId;
+        private final TradeHistoryFilter filter;
+        private Iterator<Trade> current = Collections.emptyIterator();
+
+        private ArchivedRowIterator(List<List<ArchiveSegment>> months, long userId, TradeHistoryFilter filter) {
+            this.months = months.iterator();
+            this.userId = userId;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && months.hasNext()) {
+                List<Trade> monthRows = new ArrayList<>();
+                for (ArchiveSegment segment : months.next()) {
+                    for (Trade trade : userRows(segment, userId)) {
+                        if (filter.matches(trade)) {
+                            monthRows.add(trade);
+                        }
+                    }
+                }
+                monthRows.sort(HISTORY_ORDER);
+                current = monthRows.iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return toExportRow(current.next());
+        }
+    }
+
+    // Two-way merge on (createdAt, id); a row present in both tiers is emitted once
+    private static final class MergingIterator implements Iterator<Object[]> {
+        private final Iterator<Object[]> left;
+        private final Iterator<Object[]> right;
+        private Object[] nextLeft;
+        private Object[] nextRight;
+
+        private MergingIterator(Iterator<Object[]> left, Iterator<Object[]> right) {
+            this.left = left;
+            this.right = right;
+            this.nextLeft = left.hasNext() ? left.next() : null;
+            this.nextRight = right.hasNext() ? right.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeft != null || nextRight != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            int comparison = nextLeft == null ? 1 : nextRight == null ? -1 : compareRows(nextLeft, nextRight);
+            Object[] row;
+            if (comparison <= 0) {
+                row = nextLeft;
+                nextLeft = left.hasNext() ? left.next() : null;
+                if (comparison == 0) {
+                    nextRight = right.hasNext() ? right.next() : null;
+                }
+            } else {
+                row = nextRight;
+                nextRight = right.hasNext() ? right.next() : null;
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.TradeRepository;
+import com.cryptotrader.repository.TradeRepositoryCustom;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Writes a user's full trade history as CSV or NDJSON straight to an output stream.
+ * Rows come from a database cursor and are written one at a time, so memory use does
+ * not depend on how many trades are exported.
+ */
+@Service
+public class TradeExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeExportService.class);
+
+    public static final Set<String> SUPPORTED_FORMATS = Set.of("csv", "ndjson");
+
+    private static final List<String> COLUMNS = TradeRepositoryCustom.EXPORT_COLUMNS;
+
+    private final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @Value("${app.trading.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${app.trading.export.flush-every-rows:1000}")
+    private int flushEveryRows;
+
+    public static boolean isSupportedFormat(String format) {
+        return format != null && SUPPORTED_FORMATS.contains(format.toLowerCase());
+    }
+
+    /**
+     * Streams the export and returns the number of rows written. The caller owns {@code out}.
+     */
+    @Transactional(readOnly = true)
+    public long export(User user, TradeHistoryFilter filter, String format, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        long rows;
+
+        try (Stream<Object[]> stream = tradeRepository.streamHistory(user, filter, fetchSize)) {
+            Iterator<Object[]> history = tradeArchiveService.unionHistory(stream.iterator(), user, filter);
+            rows = "ndjson".equalsIgnoreCase(format)
+                    ? writeNdjson(history, out)
+                    : writeCsv(history, out);
+        }
+
+        logger.info("Exported {} trades as {} for user {} in {} ms", rows, format, user.getUsername(),
+                   System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    private long writeCsv(Iterator<Object[]> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+
+        long count = 0;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(writer, row[i]);
+            }
+            writer.write('\n');
+
+            if (++count % flushEveryRows == 0) {
+                // Pushes a chunk to the client so long exports show progress and never buffer whole
+                writer.flush();
+            }
+        }
+
+        writer.flush();
+        return count;
+    }
+
+    private long writeNdjson(Iterator<Object[]> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        long count = 0;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            generator.writeStartObject();
+            for (int i = 0; i < row.length; i++) {
+                writeJsonField(generator, COLUMNS.get(i), row[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+
+            if (++count % flushEveryRows == 0) {
+                generator.flush();
+            }
+        }
+
+        generator.flush();
+        return count;
+    }
+
+    private static void writeCsvValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+
+    private static void writeJsonField(JsonGenerator generator, String name, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else if (value instanceof BigDecimal) {
+            generator.writeFieldName(name);
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof Long) {
+            generator.writeNumberField(name, (Long) value);
+        } else {
+            // Strings and ISO-8601 timestamps
+            generator.writeStringField(name, value.toString());
+        }
+    }
+}
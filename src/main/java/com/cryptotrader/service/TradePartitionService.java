@@ -0,0 +1,55 @@
+package com.cryptotrader.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Keeps monthly trades partitions created ahead of time on PostgreSQL, where the migrations
+ * range-partition the table by created_at. Other databases keep a single trades table.
+ */
+@Service
+public class TradePartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradePartitionService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.persistence.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    private boolean partitioned;
+
+    @PostConstruct
+    public void init() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        partitioned = "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.persistence.partitions.cron:0 15 0 * * *}")
+    public void ensurePartitions() {
+        if (!partitioned) {
+            return;
+        }
+
+        try {
+            // Function installed by V2__partition_trades_and_add_indexes.sql; existing partitions are skipped
+            jdbcTemplate.queryForObject("SELECT ensure_trades_partitions(?)", Object.class, monthsAhead);
+            logger.debug("Trades partitions ensured {} months ahead", monthsAhead);
+        } catch (Exception e) {
+            logger.error("Failed to create upcoming trades partitions: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.Trade;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+import java.util.Objects;
+
+/**
+ * Feeds every Trade insert and status transition into the stats rollup. The callbacks run
+ * during flush, so the rollup upsert shares the transaction (and fate) of the trade write.
+ */
+public class TradeStatsListener {
+
+    // Resolved lazily: the listener is created while the EntityManagerFactory is still being built
+    @Autowired
+    private ObjectProvider<TradeStatsService> tradeStatsService;
+
+    @PostPersist
+    public void afterInsert(Trade trade) {
+        tradeStatsService.getObject().recordTransition(trade, null, null);
+        trade.syncPersistedState();
+    }
+
+    @PostUpdate
+    public void afterUpdate(Trade trade) {
+        boolean statusChanged = !Objects.equals(trade.getPersistedStatus(), trade.getStatus());
+        boolean filledCostChanged = trade.isFilled() && !Objects.equals(trade.getPersistedTotalCost(), trade.getTotalCost());
+
+        if (statusChanged || filledCostChanged) {
+            tradeStatsService.getObject().recordTransition(trade, trade.getPersistedStatus(), trade.getPersistedTotalCost());
+        }
+        trade.syncPersistedState();
+    }
+}
@@ -0,0 +1,389 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.entity.User;
+import com.cryptotrader.repository.TradeStatsRollupRepository;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per (user, exchange, day) trade statistics. Rows are adjusted by deltas on every trade
+ * status transition, so the stats endpoints aggregate a handful of rollup rows instead of
+ * loading the user's whole trade history.
+ */
+@Service
+public class TradeStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeStatsService.class);
+
+    private static final String COLUMNS = "user_id, exchange, trade_date, total_trades, filled_trades, failed_trades, " +
+            "cancelled_trades, open_trades, filled_volume, buy_volume, sell_volume, updated_at";
+
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO trade_stats_rollups (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, exchange, trade_date) DO UPDATE SET " +
+            "total_trades = trade_stats_rollups.total_trades + EXCLUDED.total_trades, " +
+            "filled_trades = trade_stats_rollups.filled_trades + EXCLUDED.filled_trades, " +
+            "failed_trades = trade_stats_rollups.failed_trades + EXCLUDED.failed_trades, " +
+            "cancelled_trades = trade_stats_rollups.cancelled_trades + EXCLUDED.cancelled_trades, " +
+            "open_trades = trade_stats_rollups.open_trades + EXCLUDED.open_trades, " +
+            "filled_volume = trade_stats_rollups.filled_volume + EXCLUDED.filled_volume, " +
+            "buy_volume = trade_stats_rollups.buy_volume + EXCLUDED.buy_volume, " +
+            "sell_volume = trade_stats_rollups.sell_volume + EXCLUDED.sell_volume, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // Standard SQL MERGE for H2 and other non-PostgreSQL databases
+    private static final String MERGE_UPSERT =
+            "MERGE INTO trade_stats_rollups r USING (SELECT CAST(? AS BIGINT) AS user_id, CAST(? AS VARCHAR(255)) AS exchange, " +
+            "CAST(? AS DATE) AS trade_date, CAST(? AS BIGINT) AS total_trades, CAST(? AS BIGINT) AS filled_trades, " +
+            "CAST(? AS BIGINT) AS failed_trades, CAST(? AS BIGINT) AS cancelled_trades, CAST(? AS BIGINT) AS open_trades, " +
+            "CAST(? AS DECIMAL(28, 8)) AS filled_volume, CAST(? AS DECIMAL(28, 8)) AS buy_volume, " +
+            "CAST(? AS DECIMAL(28, 8)) AS sell_volume, CAST(? AS TIMESTAMP) AS updated_at) d " +
+            "ON r.user_id = d.user_id AND r.exchange = d.exchange AND r.trade_date = d.trade_date " +
+            "WHEN MATCHED THEN UPDATE SET total_trades = r.total_trades + d.total_trades, " +
+            "filled_trades = r.filled_trades + d.filled_trades, failed_trades = r.failed_trades + d.failed_trades, " +
+            "cancelled_trades = r.cancelled_trades + d.cancelled_trades, open_trades = r.open_trades + d.open_trades, " +
+            "filled_volume = r.filled_volume + d.filled_volume, buy_volume = r.buy_volume + d.buy_volume, " +
+            "sell_volume = r.sell_volume + d.sell_volume, updated_at = d.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (" + COLUMNS + ") VALUES (d.user_id, d.exchange, d.trade_date, d.total_trades, " +
+            "d.filled_trades, d.failed_trades, d.cancelled_trades, d.open_trades, d.filled_volume, d.buy_volume, " +
+            "d.sell_volume, d.updated_at)";
+
+    private static final String REBUILD =
+            "INSERT INTO trade_stats_rollups (" + COLUMNS + ") " +
+            "SELECT user_id, exchange, CAST(created_at AS DATE), COUNT(*), " +
+            "SUM(CASE WHEN status = 'FILLED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN status = 'FAILED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN status = 'CANCELLED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN status IN ('TRIGGER_PENDING', 'PENDING', 'PARTIALLY_FILLED') THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(CASE WHEN status = 'FILLED' THEN total_cost END), 0), " +
+            "COALESCE(SUM(CASE WHEN status = 'FILLED' AND side = 'BUY' THEN total_cost END), 0), " +
+            "COALESCE(SUM(CASE WHEN status = 'FILLED' AND side = 'SELL' THEN total_cost END), 0), " +
+            "CURRENT_TIMESTAMP " +
+            "FROM trades GROUP BY user_id, exchange, CAST(created_at AS DATE)";
+
+    private static final int TOTAL = 0;
+    private static final int FILLED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+    private static final int OPEN = 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TradeStatsRollupRepository tradeStatsRollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Transaction-scoped advisory lock: shared by delta writers, exclusive for a rebuild
+    private static final long ROLLUP_LOCK_KEY = 0x7472616465737473L; // "tradests"
+
+    private String upsertSql;
+    private boolean postgres;
+
+    @PostConstruct
+    public void init() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        postgres = "PostgreSQL".equalsIgnoreCase(product);
+        upsertSql = postgres ? POSTGRES_UPSERT : MERGE_UPSERT;
+    }
+
+    /**
+     * Applies one trade transition to its rollup row. A null previous status means the trade
+     * was just created. Inside a transaction the delta is buffered and written at commit.
+     */
+    public void recordTransition(Trade trade, String previousStatus, BigDecimal previousTotalCost) {
+        long[] counts = new long[5];
+        if (previousStatus == null) {
+            counts[TOTAL] = 1;
+        } else {
+            adjust(counts, previousStatus, -1);
+        }
+        adjust(counts, trade.getStatus(), 1);
+
+        BigDecimal volume = BigDecimal.ZERO;
+        if (trade.isFilled() && trade.getTotalCost() != null) {
+            volume = volume.add(trade.getTotalCost());
+        }
+        if ("FILLED".equals(previousStatus) && previousTotalCost != null) {
+            volume = volume.subtract(previousTotalCost);
+        }
+
+        record(trade, counts, volume);
+    }
+
+    /**
+     * Rollup counterpart of a bulk JPQL status update, which bypasses entity callbacks.
+     * {@code previousStatuses} holds the status each updated row had in the table, read under
+     * lock in the same transaction; trades missing from it were not updated.
+     */
+    public void recordBulkTransition(Collection<Trade> trades, Map<Long, String> previousStatuses, String newStatus) {
+        for (Trade trade : trades) {
+            String previousStatus = previousStatuses.get(trade.getId());
+            if (previousStatus == null) {
+                continue;
+            }
+            long[] counts = new long[5];
+            adjust(counts, previousStatus, -1);
+            adjust(counts, newStatus, 1);
+            record(trade, counts, BigDecimal.ZERO);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getSummary(User user) {
+        Object[] row = tradeStatsRollupRepository.summarizeByUser(user.getId()).get(0);
+        return toStats(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), ((Number) row[2]).longValue(),
+                ((Number) row[3]).longValue(), ((Number) row[4]).longValue(), (BigDecimal) row[5]);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Object>> getSummaryByExchange(User user) {
+        Map<String, Map<String, Object>> byExchange = new HashMap<>();
+        for (Object[] row : tradeStatsRollupRepository.summarizeByUserAndExchange(user.getId())) {
+            byExchange.put((String) row[0], toStats(((Number) row[1]).longValue(), ((Number) row[2]).longValue(),
+                    ((Number) row[3]).longValue(), ((Number) row[4]).longValue(), ((Number) row[5]).longValue(), (BigDecimal) row[6]));
+        }
+        return byExchange;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getDailySummary(User user, int days) {
+        LocalDate startDate = LocalDate.now().minusDays(days - 1L);
+        List<Map<String, Object>> daily = new ArrayList<>();
+
+        for (Object[] row : tradeStatsRollupRepository.summarizeDailyByUser(user.getId(), startDate)) {
+            Map<String, Object> day = new HashMap<>();
+            day.put("date", row[0]);
+            day.put("totalTrades", ((Number) row[1]).longValue());
+            day.put("successfulTrades", ((Number) row[2]).longValue());
+            day.put("totalVolume", row[3] != null ? row[3] : BigDecimal.ZERO);
+            daily.add(day);
+        }
+        return daily;
+    }
+
+    /**
+     * Regenerates every rollup row from the raw trades: one set-based statement over the hot
+     * table, then a pass over the archive tier folded in as deltas.
+     * Disabled on a schedule unless app.stats.rebuild-cron is set.
+     *
+     * On PostgreSQL the rebuild holds the rollup lock exclusively. Transactions that already
+     * wrote deltas have committed by the time it reads the trades, and later ones wait and add
+     * their deltas on top, so no transition is lost or counted twice. H2 runs a single node in
+     * development and is not locked.
+     */
+    @Scheduled(cron = "${app.stats.rebuild-cron:-}")
+    @Transactional
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        if (postgres) {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + ROLLUP_LOCK_KEY + ")");
+        }
+        jdbcTemplate.update("DELETE FROM trade_stats_rollups");
+        int rows = jdbcTemplate.update(REBUILD);
+
+        Map<String, RollupDelta> archived = new TreeMap<>();
+        tradeArchiveService.forEachArchivedTrade(trade -> {
+            long[] counts = new long[5];
+            counts[TOTAL] = 1;
+            adjust(counts, trade.getStatus(), 1);
+            BigDecimal volume = trade.isFilled() && trade.getTotalCost() != null ? trade.getTotalCost() : BigDecimal.ZERO;
+
+            RollupDelta delta = new RollupDelta(trade.getUser().getId(), trade.getExchange(), trade.getCreatedAt().toLocalDate());
+            delta.add(counts, volume, trade.getSide());
+            archived.merge(delta.key(), delta, RollupDelta::merge);
+        });
+        write(archived.values());
+
+        logger.info("Rebuilt trade stats rollup: {} hot rows, {} archive rows in {} ms", rows, archived.size(),
+                   System.currentTimeMillis() - started);
+    }
+
+    // Backfills the rollup for databases that already held trades before it existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        Boolean needsRebuild = jdbcTemplate.queryForObject(
+                "SELECT CASE WHEN EXISTS (SELECT 1 FROM trades) AND NOT EXISTS (SELECT 1 FROM trade_stats_rollups) " +
+                "THEN TRUE ELSE FALSE END", Boolean.class);
+        if (Boolean.TRUE.equals(needsRebuild)) {
+            transactionTemplate.executeWithoutResult(status -> rebuild());
+        }
+    }
+
+    private void record(Trade trade, long[] counts, BigDecimal volume) {
+        RollupDelta delta = new RollupDelta(trade.getUser().getId(), trade.getExchange(), trade.getCreatedAt().toLocalDate());
+        delta.add(counts, volume, trade.getSide());
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            write(List.of(delta));
+            return;
+        }
+
+        pendingDeltas().merge(delta.key(), delta, RollupDelta::merge);
+    }
+
+    /**
+     * Deltas buffered for the current session. They are written by one JDBC batch from Hibernate's
+     * before-completion hook, which runs after the commit-time flush, so transitions flushed at
+     * commit are still included and a transaction touching many trades costs one upsert per row key.
+     */
+    private Map<String, RollupDelta> pendingDeltas() {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+
+        @SuppressWarnings("unchecked")
+        Map<String, RollupDelta> pending = (Map<String, RollupDelta>) TransactionSynchronizationManager.getResource(session);
+        if (pending != null) {
+            return pending;
+        }
+
+        // Sorted so concurrent transactions lock rollup rows in the same order
+        Map<String, RollupDelta> created = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(session, created);
+
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) completing -> {
+            TransactionSynchronizationManager.unbindResourceIfPossible(session);
+            write(created.values());
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Rollbacks never reach the before-completion hook
+                TransactionSynchronizationManager.unbindResourceIfPossible(session);
+            }
+        });
+        return created;
+    }
+
+    private void write(Collection<RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        if (postgres) {
+            // Held until commit, so a rebuild never runs between this write and the trade change it reflects
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock_shared(" + ROLLUP_LOCK_KEY + ")");
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        for (RollupDelta delta : deltas) {
+            batch.add(new Object[] { delta.userId, delta.exchange, java.sql.Date.valueOf(delta.day),
+                    delta.counts[TOTAL], delta.counts[FILLED], delta.counts[FAILED], delta.counts[CANCELLED], delta.counts[OPEN],
+                    delta.buyVolume.add(delta.sellVolume), delta.buyVolume, delta.sellVolume, now });
+        }
+        jdbcTemplate.batchUpdate(upsertSql, batch);
+    }
+
+    private static void adjust(long[] counts, String status, int delta) {
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case "FILLED":
+                counts[FILLED] += delta;
+                break;
+            case "FAILED":
+                counts[FAILED] += delta;
+                break;
+            case "CANCELLED":
+                counts[CANCELLED] += delta;
+                break;
+            case "TRIGGER_PENDING":
+            case "PENDING":
+            case "PARTIALLY_FILLED":
+                counts[OPEN] += delta;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Map<String, Object> toStats(long totalTrades, long successfulTrades, long failedTrades,
+                                               long cancelledTrades, long pendingTrades, BigDecimal totalVolume) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalTrades", totalTrades);
+        stats.put("successfulTrades", successfulTrades);
+        stats.put("failedTrades", failedTrades);
+        stats.put("cancelledTrades", cancelledTrades);
+        stats.put("pendingTrades", pendingTrades);
+        stats.put("totalVolume", totalVolume != null ? totalVolume : BigDecimal.ZERO);
+        stats.put("successRate", totalTrades > 0 ? (double) successfulTrades / totalTrades * 100 : 0.0);
+        return stats;
+    }
+
+    private static final class RollupDelta {
+        private final Long userId;
+        private final String exchange;
+        private final LocalDate day;
+        private final long[] counts = new long[5];
+        private BigDecimal buyVolume = BigDecimal.ZERO;
+        private BigDecimal sellVolume = BigDecimal.ZERO;
+
+        private RollupDelta(Long userId, String exchange, LocalDate day) {
+            this.userId = userId;
+            this.exchange = exchange;
+            this.day = day;
+        }
+
+        private String key() {
+            return userId + "|" + exchange + "|" + day;
+        }
+
+        private void add(long[] countDeltas, BigDecimal volume, String side) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += countDeltas[i];
+            }
+            if ("BUY".equals(side)) {
+                buyVolume = buyVolume.add(volume);
+            } else if ("SELL".equals(side)) {
+                sellVolume = sellVolume.add(volume);
+            }
+        }
+
+        private RollupDelta merge(RollupDelta other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            buyVolume = buyVolume.add(other.buyVolume);
+            sellVolume = sellVolume.add(other.sellVolume);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.cryptotrader.service;
+
+import com.cryptotrader.entity.Trade;
+import com.cryptotrader.repository.TradeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind buffer for high-frequency trade status updates such as successive partial fills.
+ * Updates to the same trade are coalesced in memory and flushed periodically in one transaction,
+ * where they load with a single IN query and are written as one JDBC batch. A batch that fails is
+ * retried trade by trade, so a single bad row is isolated and eventually dropped instead of
+ * blocking every later flush.
+ */
+@Service
+public class TradeWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeWriteBehindBuffer.class);
+
+    @Autowired
+    private TradeRepository tradeRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Failed flushes after which a trade's updates are dropped, counted only while other trades still write
+    @Value("${app.persistence.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Consumer<Trade>> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> failedFlushes = new ConcurrentHashMap<>();
+    private Counter droppedUpdates;
+
+    @PostConstruct
+    public void init() {
+        droppedUpdates = Counter.builder("trades.write-behind.dropped")
+                .description("Trades whose buffered updates were dropped after repeatedly failing to flush")
+                .register(meterRegistry);
+    }
+
+    public void enqueue(Long tradeId, Consumer<Trade> update) {
+        // Later updates are chained after earlier ones so every change is applied in order
+        pending.merge(tradeId, update, Consumer::andThen);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.persistence.write-behind.flush-interval-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Consumer<Trade>> drained = new ConcurrentHashMap<>();
+        for (Long tradeId : new ArrayList<>(pending.keySet())) {
+            Consumer<Trade> update = pending.remove(tradeId);
+            if (update != null) {
+                drained.put(tradeId, update);
+            }
+        }
+
+        try {
+            write(drained);
+            failedFlushes.keySet().removeAll(drained.keySet());
+            return;
+        } catch (Exception e) {
+            logger.warn("Failed to flush {} buffered trade updates, retrying trade by trade: {}", drained.size(), e.getMessage());
+        }
+
+        // One bad row must not hold back the rest of the batch
+        Map<Long, Exception> failed = new HashMap<>();
+        drained.forEach((tradeId, update) -> {
+            try {
+                write(Map.of(tradeId, update));
+                failedFlushes.remove(tradeId);
+            } catch (Exception e) {
+                failed.put(tradeId, e);
+            }
+        });
+
+        // When every trade fails the database itself is likely unavailable, so no trade is charged an attempt
+        boolean isolated = failed.size() < drained.size();
+        int[] requeued = { 0 };
+        failed.forEach((tradeId, error) -> {
+            int attempts = isolated ? failedFlushes.merge(tradeId, 1, Integer::sum) : failedFlushes.getOrDefault(tradeId, 0);
+            if (attempts >= maxAttempts) {
+                failedFlushes.remove(tradeId);
+                droppedUpdates.increment();
+                logger.error("Dropping buffered updates for trade {} after {} failed flushes: {}", tradeId, attempts, error.getMessage());
+            } else {
+                // Requeued updates go ahead of anything enqueued since the drain
+                pending.merge(tradeId, drained.get(tradeId), (newer, older) -> older.andThen(newer));
+                requeued[0]++;
+            }
+        });
+        if (requeued[0] > 0) {
+            logger.error("Requeued buffered updates for {} of {} trades", requeued[0], drained.size());
+        }
+    }
+
+    private void write(Map<Long, Consumer<Trade>> updates) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Trade> trades = tradeRepository.findAllById(updates.keySet());
+            for (Trade trade : trades) {
+                // Also applied to rows cancelled or failed directly in the meantime: fills merge their
+                // totals into the closed row, while status changes there are rejected below
+                try {
+                    updates.get(trade.getId()).accept(trade);
+                } catch (IllegalStateException e) {
+                    // An illegal transition would fail every retry, so only this trade's updates are dropped
+                    logger.warn("Dropping buffered updates for trade {}: {}", trade.getId(), e.getMessage());
+                }
+            }
+            tradeRepository.saveAll(trades);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -1,9 +1,16 @@
 package com.cryptotrader.service;
 
+import com.cryptotrader.dto.TradeHistoryCursor;
+import com.cryptotrader.dto.TradeHistoryFilter;
+import com.cryptotrader.dto.TradeHistoryPage;
+import com.cryptotrader.dto.TradeResponse;
 import com.cryptotrader.entity.ApiKey;
+import com.cryptotrader.entity.OrderStatus;
 import com.cryptotrader.entity.Trade;
 import com.cryptotrader.entity.User;
 import com.cryptotrader.exception.ExchangeException;
+import com.cryptotrader.journal.OrderEventType;
+import com.cryptotrader.journal.OrderState;
 import com.cryptotrader.repository.ApiKeyRepository;
 import com.cryptotrader.repository.TradeRepository;
 import org.knowm.xchange.dto.marketdata.Ticker;
@@ -12,12 +19,27 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Transactional
@@ -37,14 +59,59 @@ public class TradingService {
     @Autowired
     private RateLimitingService rateLimitingService;
     
+    @Autowired
+    private ConditionalOrderService conditionalOrderService;
+    
+    @Autowired
+    private TradeStatsService tradeStatsService;
+    
+    @Autowired
+    private TradeArchiveService tradeArchiveService;
+    
+    @Autowired
+    private OrderJournalService orderJournalService;
+    
+    @Autowired
+    private OrderStateStore orderStateStore;
+    
     @Value("${app.trading.limits.max-order-size:1000.00}")
     private BigDecimal maxOrderSize;
     
     @Value("${app.trading.limits.daily-volume:10000.00}")
     private BigDecimal dailyVolumeLimit;
     
+    @Value("${app.trading.cancel.executor-threads:8}")
+    private int cancelExecutorThreads;
+    
+    @Value("${app.trading.cancel.timeout-ms:10000}")
+    private long cancelTimeoutMs;
+    
+    // Dedicated high-priority pool so bulk cancels never queue behind other outbound work
+    private ExecutorService cancelExecutor;
+    
+    @PostConstruct
+    public void init() {
+        cancelExecutor = Executors.newFixedThreadPool(cancelExecutorThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cancel-executor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        cancelExecutor.shutdown();
+    }
+    
     public Trade createOrder(User user, String exchange, String symbol, String orderType, 
                            String side, BigDecimal amount, BigDecimal price) throws ExchangeException {
+        return createOrder(user, exchange, symbol, orderType, side, amount, price, null, null);
+    }
+    
+    public Trade createOrder(User user, String exchange, String symbol, String orderType, 
+                           String side, BigDecimal amount, BigDecimal price,
+                           BigDecimal stopPrice, BigDecimal trailingOffset) throws ExchangeException {
         
         // Rate limiting check
         if (!rateLimitingService.tryConsumeTradingRequest(user.getId().toString())) {
@@ -52,7 +119,7 @@ public class TradingService {
         }
         
         // Validate order parameters
-        validateOrderParameters(user, exchange, symbol, orderType, side, amount, price);
+        validateOrderParameters(user, exchange, symbol, orderType, side, amount, price, stopPrice, trailingOffset);
         
         // Get API key for the exchange
         Optional<ApiKey> apiKeyOpt = apiKeyRepository.findActiveApiKeyByUserAndExchange(user, exchange.toLowerCase());
@@ -64,15 +131,31 @@ public class TradingService {
         
         // Create trade record
         Trade trade = new Trade(user, exchange, symbol, orderType, side, amount, price);
+        
+        // Conditional orders rest in the trigger engine until their price is crossed
+        if (ConditionalOrderService.isConditionalOrderType(orderType)) {
+            trade.armTrigger(stopPrice, trailingOffset);
+            trade = tradeRepository.save(trade);
+            orderJournalService.append(OrderEventType.ACCEPTED, trade);
+            
+            conditionalOrderService.register(trade);
+            
+            logger.info("Conditional order armed: {} {} {} {} at {} on {}", 
+                       side, amount, symbol, orderType, stopPrice, exchange);
+            return trade;
+        }
+        
         trade = tradeRepository.save(trade);
+        orderJournalService.append(OrderEventType.ACCEPTED, trade);
         
         try {
             // Place order on exchange
+            orderJournalService.append(OrderEventType.SENT, trade);
             String exchangeOrderId = exchangeService.placeOrder(apiKey, trade);
             
             // Update trade with exchange order ID
-            trade.setExchangeOrderId(exchangeOrderId);
-            trade.setStatus("PENDING");
+            trade.markAsAcknowledged(exchangeOrderId);
+            orderJournalService.append(OrderEventType.ACKED, trade);
             
             logger.info("Order placed successfully: {} {} {} {} on {}", 
                        side, amount, symbol, orderType, exchange);
@@ -83,6 +166,7 @@ public class TradingService {
             // Mark trade as failed
             trade.markAsFailed(e.getMessage());
             tradeRepository.save(trade);
+            orderJournalService.append(OrderEventType.FAILED, trade);
             
             logger.error("Failed to place order: {}", e.getMessage());
             throw new ExchangeException("Failed to place order: " + e.getMessage());
@@ -97,10 +181,29 @@ public class TradingService {
         
         Trade trade = tradeOpt.get();
         
-        if (!trade.isPending()) {
+        // Conditional orders that have not fired yet never reached the exchange
+        if (trade.isAwaitingTrigger()) {
+            if (!conditionalOrderService.unregister(trade)) {
+                throw new ExchangeException("Order has already been triggered and is being placed");
+            }
+            trade.markAsCancelled();
+            tradeRepository.save(trade);
+            orderJournalService.append(OrderEventType.CANCELLED, trade);
+            
+            logger.info("Conditional order cancelled before trigger: {}", trade.getId());
+            return true;
+        }
+        
+        // A resting order that has partly filled is still open for its remainder
+        if (!trade.isPending() && !trade.isPartiallyFilled()) {
             throw new ExchangeException("Cannot cancel order with status: " + trade.getStatus());
         }
         
+        // Claimed by the trigger executor, which records or cancels the exchange order itself
+        if (trade.isBeingPlaced()) {
+            throw new ExchangeException("Order has already been triggered and is being placed");
+        }
+        
         // Get API key for the exchange
         Optional<ApiKey> apiKeyOpt = apiKeyRepository.findActiveApiKeyByUserAndExchange(user, trade.getExchange());
         if (!apiKeyOpt.isPresent()) {
@@ -115,6 +218,7 @@ public class TradingService {
             if (cancelled) {
                 trade.markAsCancelled();
                 tradeRepository.save(trade);
+                orderJournalService.append(OrderEventType.CANCELLED, trade);
                 
                 logger.info("Order cancelled successfully: {}", trade.getExchangeOrderId());
                 return true;
@@ -129,6 +233,137 @@ public class TradingService {
         }
     }
     
+    public Map<String, Object> cancelAllOrders(User user, String exchange, String symbol) throws ExchangeException {
+        String exchangeFilter = exchange != null && !exchange.trim().isEmpty() ? exchange.toLowerCase() : null;
+        String symbolFilter = symbol != null && !symbol.trim().isEmpty() ? symbol.toUpperCase() : null;
+        
+        // One query for every cancellable order in scope
+        List<Trade> trades = tradeRepository.findCancellableTrades(user, exchangeFilter, symbolFilter);
+        
+        Set<Long> cancelledIds = ConcurrentHashMap.newKeySet();
+        Map<String, List<Trade>> tradesByExchange = new HashMap<>();
+        Set<String> exchangesPlacing = new HashSet<>();
+        
+        for (Trade trade : trades) {
+            if (trade.isAwaitingTrigger()) {
+                // Never reached the exchange, only needs to be disarmed; a trigger that already
+                // fired is being placed by the trigger executor and is left to it
+                if (conditionalOrderService.unregister(trade)) {
+                    cancelledIds.add(trade.getId());
+                }
+            } else if (trade.isBeingPlaced()) {
+                exchangesPlacing.add(trade.getExchange());
+            } else {
+                tradesByExchange.computeIfAbsent(trade.getExchange(), k -> new ArrayList<>()).add(trade);
+            }
+        }
+        
+        List<CompletableFuture<Void>> cancellations = new ArrayList<>();
+        
+        for (Map.Entry<String, List<Trade>> entry : tradesByExchange.entrySet()) {
+            // One API key lookup per exchange instead of per order
+            Optional<ApiKey> apiKeyOpt = apiKeyRepository.findActiveApiKeyByUserAndExchange(user, entry.getKey());
+            if (!apiKeyOpt.isPresent()) {
+                logger.warn("No active API key for {}, skipping {} cancels", entry.getKey(), entry.getValue().size());
+                continue;
+            }
+            
+            ApiKey apiKey = apiKeyOpt.get();
+            
+            // Native cancel-all clears the whole account, so it is only used when that is exactly this request
+            if (!exchangesPlacing.contains(entry.getKey()) && coversAccount(apiKey, entry.getValue())
+                    && cancelAllNatively(apiKey)) {
+                entry.getValue().forEach(trade -> cancelledIds.add(trade.getId()));
+                continue;
+            }
+            
+            for (Trade trade : entry.getValue()) {
+                cancellations.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        if (exchangeService.cancelOrder(apiKey, trade.getExchangeOrderId(), trade.getSymbol())) {
+                            cancelledIds.add(trade.getId());
+                        }
+                    } catch (Exception e) {
+                        logger.error("Error cancelling order {}: {}", trade.getExchangeOrderId(), e.getMessage());
+                    }
+                }, cancelExecutor));
+            }
+        }
+        
+        try {
+            CompletableFuture.allOf(cancellations.toArray(new CompletableFuture[0]))
+                    .get(cancelTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            logger.warn("Bulk cancel did not complete within {} ms: {}", cancelTimeoutMs, e.getMessage());
+        }
+        
+        // Snapshot, since timed-out cancels may still complete in the background
+        Set<Long> confirmed = new HashSet<>();
+        if (!cancelledIds.isEmpty()) {
+            // Rows filled or cancelled elsewhere since they were read are skipped, and the rollup
+            // is adjusted from the status each locked row actually had
+            Map<Long, String> previousStatuses = new HashMap<>();
+            for (Object[] row : tradeRepository.lockCancellableStatuses(new HashSet<>(cancelledIds))) {
+                previousStatuses.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+            confirmed.addAll(previousStatuses.keySet());
+            
+            if (!confirmed.isEmpty()) {
+                tradeRepository.markAllAsCancelled(confirmed, LocalDateTime.now());
+                
+                // The bulk update bypasses entity callbacks, so the stats rollup is adjusted here
+                List<Trade> cancelledTrades = new ArrayList<>();
+                for (Trade trade : trades) {
+                    if (confirmed.contains(trade.getId())) {
+                        cancelledTrades.add(trade);
+                        orderJournalService.append(OrderEventType.CANCELLED, trade);
+                    }
+                }
+                tradeStatsService.recordBulkTransition(cancelledTrades, previousStatuses, "CANCELLED");
+            }
+        }
+        
+        List<Long> failedIds = new ArrayList<>();
+        for (Trade trade : trades) {
+            if (!confirmed.contains(trade.getId())) {
+                failedIds.add(trade.getId());
+            }
+        }
+        
+        logger.info("Bulk cancel for user {}: {} of {} orders cancelled", user.getUsername(), confirmed.size(), trades.size());
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("requested", trades.size());
+        result.put("cancelled", confirmed.size());
+        result.put("failedTradeIds", failedIds);
+        return result;
+    }
+    
+    // Whether every order open on the account is one of these trades; orders placed outside this app,
+    // or rows outside the requested scope, keep the request on per-order cancels
+    private boolean coversAccount(ApiKey apiKey, List<Trade> trades) {
+        Set<String> requested = new HashSet<>();
+        for (Trade trade : trades) {
+            requested.add(trade.getExchangeOrderId());
+        }
+        try {
+            return requested.containsAll(exchangeService.getOpenOrderIds(apiKey));
+        } catch (Exception e) {
+            logger.warn("Cannot list open orders on {}, cancelling per order: {}", apiKey.getExchange(), e.getMessage());
+            return false;
+        }
+    }
+    
+    private boolean cancelAllNatively(ApiKey apiKey) {
+        try {
+            Collection<String> cancelled = exchangeService.cancelAllOrders(apiKey);
+            return cancelled != null;
+        } catch (Exception e) {
+            logger.warn("Native cancel-all failed on {}, falling back to per-order cancels: {}", apiKey.getExchange(), e.getMessage());
+            return false;
+        }
+    }
+    
     public Map<String, BigDecimal> getPortfolioBalance(User user, String exchange) throws ExchangeException {
         Optional<ApiKey> apiKeyOpt = apiKeyRepository.findActiveApiKeyByUserAndExchange(user, exchange.toLowerCase());
         if (!apiKeyOpt.isPresent()) {
@@ -147,20 +382,95 @@ public class TradingService {
         return exchangeService.getTicker(apiKeyOpt.get(), symbol);
     }
     
+    @Transactional(readOnly = true)
     public List<Trade> getUserTrades(User user) {
         return tradeRepository.findByUser(user);
     }
     
+    @Transactional(readOnly = true)
     public List<Trade> getUserTradesByExchange(User user, String exchange) {
         return tradeRepository.findByUserAndExchange(user, exchange.toLowerCase());
     }
     
-    public Optional<Trade> getTradeById(User user, Long tradeId) {
-        return tradeRepository.findByIdAndUser(tradeId, user);
+    @Transactional(readOnly = true)
+    public TradeHistoryPage<TradeResponse> getTradeHistoryPage(User user, TradeHistoryFilter filter, String cursor,
+                                                               int size, boolean ascending) {
+        TradeHistoryCursor after = cursor != null && !cursor.trim().isEmpty() ? TradeHistoryCursor.decode(cursor) : null;
+        
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        List<TradeResponse> rows = tradeRepository.findHistoryPage(user, filter, after, ascending, size + 1);
+        rows = tradeArchiveService.unionHistoryPage(rows, user, filter, after, ascending, size + 1);
+        if (rows.size() <= size) {
+            return new TradeHistoryPage<>(rows, null);
+        }
+        
+        List<TradeResponse> page = rows.subList(0, size);
+        TradeResponse last = page.get(size - 1);
+        return new TradeHistoryPage<>(page, new TradeHistoryCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<TradeResponse> getTradeById(User user, Long tradeId) {
+        return tradeRepository.findResponseByIdAndUser(tradeId, user)
+                .map(trade -> orderStateStore.getOpenOrder(user.getId(), tradeId)
+                        .filter(state -> isAheadOf(state, trade))
+                        .map(trade::withLiveState)
+                        .orElse(trade));
+    }
+    
+    /**
+     * Open orders of the user, straight from the journal-backed order state without a query.
+     * Fills are journaled as they happen, so this can be ahead of the write-behind trade rows.
+     */
+    public List<OrderState> getOpenOrders(User user) throws ExchangeException {
+        if (!orderStateStore.isEnabled()) {
+            throw new ExchangeException("Open order state is not available while the order journal is disabled");
+        }
+        List<OrderState> open = new ArrayList<>(orderStateStore.getOpenOrders(user.getId()));
+        open.sort(Comparator.comparingLong(OrderState::getTradeId).reversed());
+        return open;
+    }
+    
+    // The journal lags the row for committed changes and leads it for buffered fills; only the lead is used
+    private static boolean isAheadOf(OrderState state, TradeResponse trade) {
+        OrderStatus stored = OrderStatus.valueOf(trade.getStatus());
+        if (stored.isTerminal() || !stored.canTransitionTo(state.getStatus())) {
+            return false;
+        }
+        BigDecimal liveFilled = state.getFilledAmount() != null ? state.getFilledAmount() : BigDecimal.ZERO;
+        int fill = liveFilled.compareTo(trade.getFilledAmount());
+        return fill > 0 || (fill == 0 && state.getStatus() != stored);
+    }
+    
+    /**
+     * Runs the same order checks as live placement, minus rate limiting and the
+     * per-user daily volume lookup, for orders that never reach an exchange (e.g. backtests).
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void validateSimulatedOrder(String exchange, String symbol, String orderType, String side,
+                                       BigDecimal amount, BigDecimal price) throws ExchangeException {
+        validateOrderShape(exchange, symbol, orderType, side, amount, price, null, null);
     }
     
     private void validateOrderParameters(User user, String exchange, String symbol, String orderType, 
-                                       String side, BigDecimal amount, BigDecimal price) throws ExchangeException {
+                                       String side, BigDecimal amount, BigDecimal price,
+                                       BigDecimal stopPrice, BigDecimal trailingOffset) throws ExchangeException {
+        
+        validateOrderShape(exchange, symbol, orderType, side, amount, price, stopPrice, trailingOffset);
+        
+        // Check daily volume limits (simplified check)
+        BigDecimal dailyVolume = calculateDailyVolume(user);
+        BigDecimal referencePrice = price != null ? price : stopPrice;
+        BigDecimal estimatedOrderValue = referencePrice != null ? amount.multiply(referencePrice) : amount.multiply(BigDecimal.valueOf(50000)); // Rough estimate for market orders
+        
+        if (dailyVolume.add(estimatedOrderValue).compareTo(dailyVolumeLimit) > 0) {
+            throw new ExchangeException("Order would exceed daily volume limit: " + dailyVolumeLimit);
+        }
+    }
+    
+    private void validateOrderShape(String exchange, String symbol, String orderType, String side,
+                                    BigDecimal amount, BigDecimal price,
+                                    BigDecimal stopPrice, BigDecimal trailingOffset) throws ExchangeException {
         
         // Validate exchange
         if (!List.of("binance", "coinbase", "kraken").contains(exchange.toLowerCase())) {
@@ -168,7 +478,8 @@ public class TradingService {
         }
         
         // Validate order type
-        if (!List.of("MARKET", "LIMIT").contains(orderType.toUpperCase())) {
+        boolean conditional = ConditionalOrderService.isConditionalOrderType(orderType);
+        if (!List.of("MARKET", "LIMIT").contains(orderType.toUpperCase()) && !conditional) {
             throw new ExchangeException("Unsupported order type: " + orderType);
         }
         
@@ -183,21 +494,22 @@ public class TradingService {
         }
         
         // Validate price for limit orders
-        if ("LIMIT".equals(orderType.toUpperCase()) && (price == null || price.compareTo(BigDecimal.ZERO) <= 0)) {
+        if (List.of("LIMIT", "STOP_LIMIT").contains(orderType.toUpperCase()) && (price == null || price.compareTo(BigDecimal.ZERO) <= 0)) {
             throw new ExchangeException("Price must be greater than zero for limit orders");
         }
         
-        // Check order size limits
-        if (amount.compareTo(maxOrderSize) > 0) {
-            throw new ExchangeException("Order size exceeds maximum allowed: " + maxOrderSize);
+        // Validate trigger parameters for conditional orders
+        if (conditional && (stopPrice == null || stopPrice.compareTo(BigDecimal.ZERO) <= 0)) {
+            throw new ExchangeException("Stop price must be greater than zero for conditional orders");
         }
         
-        // Check daily volume limits (simplified check)
-        BigDecimal dailyVolume = calculateDailyVolume(user);
-        BigDecimal estimatedOrderValue = price != null ? amount.multiply(price) : amount.multiply(BigDecimal.valueOf(50000)); // Rough estimate for market orders
+        if ("TRAILING_STOP".equals(orderType.toUpperCase()) && (trailingOffset == null || trailingOffset.compareTo(BigDecimal.ZERO) <= 0)) {
+            throw new ExchangeException("Trailing offset must be greater than zero for trailing stop orders");
+        }
         
-        if (dailyVolume.add(estimatedOrderValue).compareTo(dailyVolumeLimit) > 0) {
-            throw new ExchangeException("Order would exceed daily volume limit: " + dailyVolumeLimit);
+        // Check order size limits
+        if (amount.compareTo(maxOrderSize) > 0) {
+            throw new ExchangeException("Order size exceeds maximum allowed: " + maxOrderSize);
         }
     }
     
@@ -0,0 +1,234 @@
+package com.cryptotrader.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Price-indexed book of resting conditional orders for a single exchange/symbol.
+ * Triggers are kept in two sorted maps so that a tick only visits the levels it
+ * actually crossed: O(log n) to locate the boundary plus O(k) for the k fired orders.
+ * Trailing stops are also indexed by the best price they have seen, so a tick only visits
+ * the stops it actually moves.
+ */
+class TriggerBook {
+
+    private final String exchange;
+    private final String symbol;
+
+    // Fire once the price rises to or above the level (buy stops, sell take-profits)
+    private final TreeMap<BigDecimal, TriggerLevel> risingTriggers = new TreeMap<>();
+
+    // Fire once the price falls to or below the level (sell stops, buy take-profits)
+    private final TreeMap<BigDecimal, TriggerLevel> fallingTriggers = new TreeMap<>();
+
+    // Trailing stops by anchor, the best price seen so far: level + offset for sells
+    // (a high-water mark) and level - offset for buys (a low-water mark)
+    private final TreeMap<BigDecimal, TriggerLevel> sellTrailingAnchors = new TreeMap<>();
+    private final TreeMap<BigDecimal, TriggerLevel> buyTrailingAnchors = new TreeMap<>();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<Long, BigDecimal> ratchetedLevels = new HashMap<>();
+
+    private BigDecimal lastPrice;
+
+    TriggerBook(String exchange, String symbol) {
+        this.exchange = exchange;
+        this.symbol = symbol;
+    }
+
+    synchronized void add(long tradeId, BigDecimal level, boolean rising, BigDecimal trailingOffset) {
+        remove(tradeId);
+
+        Entry entry = new Entry(tradeId, level, rising, trailingOffset);
+        entries.put(tradeId, entry);
+        levels(rising).computeIfAbsent(level, k -> new TriggerLevel()).add(tradeId);
+
+        if (trailingOffset != null) {
+            anchors(rising).computeIfAbsent(entry.anchor(), k -> new TriggerLevel()).add(tradeId);
+        }
+    }
+
+    synchronized boolean remove(long tradeId) {
+        Entry entry = entries.remove(tradeId);
+        if (entry == null) {
+            return false;
+        }
+
+        ratchetedLevels.remove(tradeId);
+        removeFromLevel(entry);
+        removeFromAnchor(entry);
+        return true;
+    }
+
+    /**
+     * Applies a price tick and returns the ids of every trigger it crossed.
+     * Fired triggers are removed from the book.
+     */
+    synchronized List<Long> onPrice(BigDecimal price) {
+        if (lastPrice == null || price.compareTo(lastPrice) != 0) {
+            // Sells trail a new high, buys a new low
+            ratchet(false, price);
+            ratchet(true, price);
+        }
+        lastPrice = price;
+
+        List<Long> fired = new ArrayList<>();
+        drain(risingTriggers.headMap(price, true), fired);
+        drain(fallingTriggers.tailMap(price, true), fired);
+        return fired;
+    }
+
+    /**
+     * Returns and clears the trailing stop levels that moved since the last call,
+     * so they can be persisted without a write per tick.
+     */
+    synchronized Map<Long, BigDecimal> drainRatchetedLevels() {
+        if (ratchetedLevels.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, BigDecimal> moved = new HashMap<>(ratchetedLevels);
+        ratchetedLevels.clear();
+        return moved;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    String getExchange() {
+        return exchange;
+    }
+
+    String getSymbol() {
+        return symbol;
+    }
+
+    // Moves the stops whose anchor the price just passed to the new price; the rest are not visited
+    private void ratchet(boolean rising, BigDecimal price) {
+        NavigableMap<BigDecimal, TriggerLevel> passed = rising
+                ? buyTrailingAnchors.tailMap(price, false)
+                : sellTrailingAnchors.headMap(price, false);
+        if (passed.isEmpty()) {
+            return;
+        }
+
+        TriggerLevel moved = new TriggerLevel();
+        for (TriggerLevel anchored : passed.values()) {
+            for (int i = 0; i < anchored.size; i++) {
+                Entry entry = entries.get(anchored.tradeIds[i]);
+                removeFromLevel(entry);
+                entry.level = rising ? price.add(entry.trailingOffset) : price.subtract(entry.trailingOffset);
+                levels(rising).computeIfAbsent(entry.level, k -> new TriggerLevel()).add(entry.tradeId);
+                ratchetedLevels.put(entry.tradeId, entry.level);
+                moved.add(entry.tradeId);
+            }
+        }
+        passed.clear();
+        anchors(rising).merge(price, moved, TriggerLevel::addAll);
+    }
+
+    private void drain(NavigableMap<BigDecimal, TriggerLevel> crossed, List<Long> fired) {
+        if (crossed.isEmpty()) {
+            return;
+        }
+
+        for (TriggerLevel level : crossed.values()) {
+            for (int i = 0; i < level.size; i++) {
+                long tradeId = level.tradeIds[i];
+                Entry entry = entries.remove(tradeId);
+                ratchetedLevels.remove(tradeId);
+                if (entry != null) {
+                    removeFromAnchor(entry);
+                }
+                fired.add(tradeId);
+            }
+        }
+        crossed.clear();
+    }
+
+    private void removeFromLevel(Entry entry) {
+        TreeMap<BigDecimal, TriggerLevel> book = levels(entry.rising);
+        TriggerLevel level = book.get(entry.level);
+        if (level != null && level.remove(entry.tradeId) && level.size == 0) {
+            book.remove(entry.level);
+        }
+    }
+
+    private void removeFromAnchor(Entry entry) {
+        if (entry.trailingOffset == null) {
+            return;
+        }
+        TreeMap<BigDecimal, TriggerLevel> anchors = anchors(entry.rising);
+        TriggerLevel anchored = anchors.get(entry.anchor());
+        if (anchored != null && anchored.remove(entry.tradeId) && anchored.size == 0) {
+            anchors.remove(entry.anchor());
+        }
+    }
+
+    private TreeMap<BigDecimal, TriggerLevel> levels(boolean rising) {
+        return rising ? risingTriggers : fallingTriggers;
+    }
+
+    private TreeMap<BigDecimal, TriggerLevel> anchors(boolean rising) {
+        return rising ? buyTrailingAnchors : sellTrailingAnchors;
+    }
+
+    private static final class Entry {
+        private final long tradeId;
+        private final boolean rising;
+        private final BigDecimal trailingOffset;
+        private BigDecimal level;
+
+        private Entry(long tradeId, BigDecimal level, boolean rising, BigDecimal trailingOffset) {
+            this.tradeId = tradeId;
+            this.level = level;
+            this.rising = rising;
+            this.trailingOffset = trailingOffset;
+        }
+
+        // Best price seen by a trailing stop, derived from its level so the two never disagree
+        private BigDecimal anchor() {
+            return rising ? level.subtract(trailingOffset) : level.add(trailingOffset);
+        }
+    }
+
+    // Trade ids resting at one price level, stored unboxed to keep large books compact
+    private static final class TriggerLevel {
+        private long[] tradeIds = new long[2];
+        private int size;
+
+        private void add(long tradeId) {
+            if (size == tradeIds.length) {
+                tradeIds = Arrays.copyOf(tradeIds, size * 2);
+            }
+            tradeIds[size++] = tradeId;
+        }
+
+        private TriggerLevel addAll(TriggerLevel other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.tradeIds[i]);
+            }
+            return this;
+        }
+
+        private boolean remove(long tradeId) {
+            for (int i = 0; i < size; i++) {
+                if (tradeIds[i] == tradeId) {
+                    tradeIds[i] = tradeIds[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+-- Baseline schema for the in-memory development database
+
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE api_keys_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE trades_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE paper_account_snapshots_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+    id                    BIGINT       NOT NULL,
+    username              VARCHAR(50)  NOT NULL,
+    email                 VARCHAR(255) NOT NULL,
+    password              VARCHAR(255) NOT NULL,
+    created_at            TIMESTAMP    NOT NULL,
+    updated_at            TIMESTAMP,
+    is_active             BOOLEAN,
+    failed_login_attempts INTEGER,
+    locked_until          TIMESTAMP,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE api_keys (
+    id                     BIGINT       NOT NULL,
+    user_id                BIGINT       NOT NULL,
+    exchange               VARCHAR(255) NOT NULL,
+    encrypted_api_key      TEXT         NOT NULL,
+    encrypted_api_secret   TEXT         NOT NULL,
+    encrypted_passphrase   TEXT,
+    created_at             TIMESTAMP    NOT NULL,
+    updated_at             TIMESTAMP,
+    is_active              BOOLEAN,
+    last_used              TIMESTAMP,
+    test_connection_status VARCHAR(255),
+    test_connection_at     TIMESTAMP,
+    account_type           VARCHAR(255),
+    CONSTRAINT pk_api_keys PRIMARY KEY (id),
+    CONSTRAINT fk_api_keys_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE trades (
+    id                BIGINT         NOT NULL,
+    user_id           BIGINT         NOT NULL,
+    exchange          VARCHAR(255)   NOT NULL,
+    symbol            VARCHAR(255)   NOT NULL,
+    order_type        VARCHAR(255)   NOT NULL,
+    side              VARCHAR(255)   NOT NULL,
+    amount            NUMERIC(20, 8) NOT NULL,
+    price             NUMERIC(20, 8),
+    filled_amount     NUMERIC(20, 8),
+    average_price     NUMERIC(20, 8),
+    total_cost        NUMERIC(20, 8),
+    fee_amount        NUMERIC(20, 8),
+    fee_currency      VARCHAR(255),
+    status            VARCHAR(255)   NOT NULL,
+    exchange_order_id VARCHAR(255),
+    error_message     TEXT,
+    created_at        TIMESTAMP      NOT NULL,
+    updated_at        TIMESTAMP,
+    executed_at       TIMESTAMP,
+    cancelled_at      TIMESTAMP,
+    trigger_price     NUMERIC(20, 8),
+    trailing_offset   NUMERIC(20, 8),
+    triggered_at      TIMESTAMP,
+    CONSTRAINT pk_trades PRIMARY KEY (id),
+    CONSTRAINT fk_trades_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE paper_account_snapshots (
+    id         BIGINT NOT NULL,
+    api_key_id BIGINT NOT NULL,
+    balances   TEXT   NOT NULL,
+    updated_at TIMESTAMP,
+    CONSTRAINT pk_paper_account_snapshots PRIMARY KEY (id),
+    CONSTRAINT uk_paper_account_snapshots_api_key UNIQUE (api_key_id)
+);
+
+CREATE TABLE trade_stats_rollups (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id          BIGINT         NOT NULL,
+    exchange         VARCHAR(255)   NOT NULL,
+    trade_date       DATE           NOT NULL,
+    total_trades     BIGINT         NOT NULL,
+    filled_trades    BIGINT         NOT NULL,
+    failed_trades    BIGINT         NOT NULL,
+    cancelled_trades BIGINT         NOT NULL,
+    open_trades      BIGINT         NOT NULL,
+    filled_volume    NUMERIC(28, 8) NOT NULL,
+    buy_volume       NUMERIC(28, 8) NOT NULL,
+    sell_volume      NUMERIC(28, 8) NOT NULL,
+    updated_at       TIMESTAMP,
+    CONSTRAINT pk_trade_stats_rollups PRIMARY KEY (id),
+    CONSTRAINT uk_trade_stats_rollups_user_exchange_date UNIQUE (user_id, exchange, trade_date)
+);
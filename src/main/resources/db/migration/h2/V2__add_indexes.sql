@@ -0,0 +1,10 @@
+-- Indexes the repository queries rely on. Monthly partitioning of trades is PostgreSQL-only.
+
+CREATE INDEX idx_trades_user_created ON trades (user_id, created_at, id);
+CREATE INDEX idx_trades_user_exchange_created ON trades (user_id, exchange, created_at, id);
+CREATE INDEX idx_trades_user_symbol_created ON trades (user_id, symbol, created_at, id);
+CREATE INDEX idx_trades_user_status_created ON trades (user_id, status, created_at, id);
+CREATE INDEX idx_trades_status_created ON trades (status, created_at, id);
+CREATE INDEX idx_trades_exchange_order_id ON trades (exchange_order_id, user_id);
+
+CREATE INDEX idx_api_keys_user_exchange_active ON api_keys (user_id, exchange, is_active);
@@ -0,0 +1,2 @@
+-- Optimistic locking column for Trade
+ALTER TABLE trades ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,2 @@
+-- Version claim checked against every token; bumped on password change, lock or deactivation
+ALTER TABLE users ADD COLUMN security_version INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,11 @@
+-- Progress of re-encrypting api_keys under each new encryption key, so KeyRotationService resumes after a restart
+CREATE TABLE key_rotation_checkpoints (
+    target_key_id  VARCHAR(32) NOT NULL,
+    last_id        BIGINT      NOT NULL,
+    rows_rotated   BIGINT      NOT NULL,
+    rows_failed    BIGINT      NOT NULL,
+    started_at     TIMESTAMP   NOT NULL,
+    updated_at     TIMESTAMP   NOT NULL,
+    completed_at   TIMESTAMP,
+    CONSTRAINT pk_key_rotation_checkpoints PRIMARY KEY (target_key_id)
+);
@@ -0,0 +1,3 @@
+-- Lease held by the instance running a rotation, so concurrent sweeps never advance the same checkpoint
+ALTER TABLE key_rotation_checkpoints ADD COLUMN lease_owner VARCHAR(64);
+ALTER TABLE key_rotation_checkpoints ADD COLUMN lease_until TIMESTAMP;
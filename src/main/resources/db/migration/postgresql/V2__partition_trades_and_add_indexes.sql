@@ -0,0 +1,102 @@
+-- Range-partitions trades by created_at month and adds the indexes the repository queries
+-- rely on. Existing rows are moved into the partitions covering their months.
+
+-- Monthly partition named trades_yyyy_mm; no-op when it already exists
+CREATE OR REPLACE FUNCTION create_trades_partition(for_month DATE) RETURNS VOID AS $$
+DECLARE
+    month_start DATE := date_trunc('month', for_month)::DATE;
+    partition_name TEXT := 'trades_' || to_char(month_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF trades FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Partitions for the current month and the next months_ahead months; run daily by the application
+CREATE OR REPLACE FUNCTION ensure_trades_partitions(months_ahead INTEGER) RETURNS VOID AS $$
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        PERFORM create_trades_partition((date_trunc('month', now()) + make_interval(months => i))::DATE);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Indexes Hibernate may have created on the old table; index names are schema-wide
+DROP INDEX IF EXISTS idx_trades_user_created;
+DROP INDEX IF EXISTS idx_trades_user_exchange_created;
+DROP INDEX IF EXISTS idx_trades_user_symbol_created;
+DROP INDEX IF EXISTS idx_trades_user_status_created;
+DROP INDEX IF EXISTS idx_trades_status_created;
+
+ALTER TABLE trades RENAME TO trades_unpartitioned;
+ALTER TABLE trades_unpartitioned DROP CONSTRAINT IF EXISTS pk_trades;
+ALTER TABLE trades_unpartitioned DROP CONSTRAINT IF EXISTS trades_pkey;
+
+-- The partition key has to be part of the primary key
+CREATE TABLE trades (
+    id                BIGINT         NOT NULL,
+    user_id           BIGINT         NOT NULL,
+    exchange          VARCHAR(255)   NOT NULL,
+    symbol            VARCHAR(255)   NOT NULL,
+    order_type        VARCHAR(255)   NOT NULL,
+    side              VARCHAR(255)   NOT NULL,
+    amount            NUMERIC(20, 8) NOT NULL,
+    price             NUMERIC(20, 8),
+    filled_amount     NUMERIC(20, 8),
+    average_price     NUMERIC(20, 8),
+    total_cost        NUMERIC(20, 8),
+    fee_amount        NUMERIC(20, 8),
+    fee_currency      VARCHAR(255),
+    status            VARCHAR(255)   NOT NULL,
+    exchange_order_id VARCHAR(255),
+    error_message     TEXT,
+    created_at        TIMESTAMP      NOT NULL,
+    updated_at        TIMESTAMP,
+    executed_at       TIMESTAMP,
+    cancelled_at      TIMESTAMP,
+    trigger_price     NUMERIC(20, 8),
+    trailing_offset   NUMERIC(20, 8),
+    triggered_at      TIMESTAMP,
+    CONSTRAINT pk_trades PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_trades_user FOREIGN KEY (user_id) REFERENCES users (id)
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows outside every monthly partition instead of failing the insert
+CREATE TABLE trades_default PARTITION OF trades DEFAULT;
+
+DO $$
+DECLARE
+    partition_month DATE;
+BEGIN
+    SELECT date_trunc('month', MIN(created_at))::DATE INTO partition_month FROM trades_unpartitioned;
+    WHILE partition_month IS NOT NULL AND partition_month < date_trunc('month', now()) LOOP
+        PERFORM create_trades_partition(partition_month);
+        partition_month := (partition_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+    PERFORM ensure_trades_partitions(3);
+END $$;
+
+INSERT INTO trades (id, user_id, exchange, symbol, order_type, side, amount, price, filled_amount, average_price,
+                    total_cost, fee_amount, fee_currency, status, exchange_order_id, error_message, created_at,
+                    updated_at, executed_at, cancelled_at, trigger_price, trailing_offset, triggered_at)
+SELECT id, user_id, exchange, symbol, order_type, side, amount, price, filled_amount, average_price,
+       total_cost, fee_amount, fee_currency, status, exchange_order_id, error_message, created_at,
+       updated_at, executed_at, cancelled_at, trigger_price, trailing_offset, triggered_at
+FROM trades_unpartitioned;
+
+DROP TABLE trades_unpartitioned;
+
+-- Created on the parent, so every current and future partition gets them
+CREATE INDEX idx_trades_user_created ON trades (user_id, created_at, id);
+CREATE INDEX idx_trades_user_exchange_created ON trades (user_id, exchange, created_at, id);
+CREATE INDEX idx_trades_user_symbol_created ON trades (user_id, symbol, created_at, id);
+CREATE INDEX idx_trades_user_status_created ON trades (user_id, status, created_at, id);
+CREATE INDEX idx_trades_status_created ON trades (status, created_at, id);
+CREATE INDEX idx_trades_exchange_order_id ON trades (exchange_order_id, user_id);
+
+CREATE INDEX IF NOT EXISTS idx_api_keys_user_exchange_active ON api_keys (user_id, exchange, is_active);
+
+ANALYZE trades;
+ANALYZE api_keys;
@@ -0,0 +1,2 @@
+-- Optimistic locking column for Trade; added on the partitioned parent, so every partition gets it
+ALTER TABLE trades ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- Running fee aggregates per (user, exchange, fee currency, month), adjusted by FeeLedgerService
+CREATE TABLE IF NOT EXISTS fee_rollups (
+    id           BIGSERIAL      NOT NULL,
+    user_id      BIGINT         NOT NULL,
+    exchange     VARCHAR(255)   NOT NULL,
+    currency     VARCHAR(255)   NOT NULL,
+    fee_month    DATE           NOT NULL,
+    maker_fills  BIGINT         NOT NULL,
+    taker_fills  BIGINT         NOT NULL,
+    maker_fees   NUMERIC(28, 8) NOT NULL,
+    taker_fees   NUMERIC(28, 8) NOT NULL,
+    maker_volume NUMERIC(28, 8) NOT NULL,
+    taker_volume NUMERIC(28, 8) NOT NULL,
+    updated_at   TIMESTAMP,
+    CONSTRAINT pk_fee_rollups PRIMARY KEY (id),
+    CONSTRAINT uk_fee_rollups_user_exchange_currency_month UNIQUE (user_id, exchange, currency, fee_month)
+);
@@ -0,0 +1,2 @@
+-- Version claim checked against every token; bumped on password change, lock or deactivation
+ALTER TABLE users ADD COLUMN IF NOT EXISTS security_version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,30 @@
+-- Rotating refresh tokens; only a SHA-256 of each token is stored. Tokens rotated from the same
+-- login share a family, which is revoked as a whole when a used token is presented again
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id               BIGSERIAL    NOT NULL,
+    user_id          BIGINT       NOT NULL,
+    token_hash       VARCHAR(64)  NOT NULL,
+    family_id        VARCHAR(36)  NOT NULL,
+    security_version INTEGER      NOT NULL,
+    expires_at       TIMESTAMP    NOT NULL,
+    created_at       TIMESTAMP    NOT NULL,
+    used_at          TIMESTAMP,
+    revoked_at       TIMESTAMP,
+    CONSTRAINT pk_refresh_tokens PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+
+-- Access tokens revoked before they expire (logout), by jti; rows are deleted once expired
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    id         BIGSERIAL    NOT NULL,
+    jti        VARCHAR(36)  NOT NULL,
+    expires_at TIMESTAMP    NOT NULL,
+    revoked_at TIMESTAMP    NOT NULL,
+    CONSTRAINT pk_revoked_tokens PRIMARY KEY (id),
+    CONSTRAINT uk_revoked_tokens_jti UNIQUE (jti)
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);